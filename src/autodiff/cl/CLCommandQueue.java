@@ -1,16 +1,24 @@
 package autodiff.cl;
 
+import static org.jocl.CL.CL_PROFILING_COMMAND_END;
+import static org.jocl.CL.CL_PROFILING_COMMAND_START;
 import static org.jocl.CL.clCreateCommandQueue;
 import static org.jocl.CL.clEnqueueNDRangeKernel;
 import static org.jocl.CL.clEnqueueReadBuffer;
+import static org.jocl.CL.clFinish;
+import static org.jocl.CL.clFlush;
+import static org.jocl.CL.clGetEventProfilingInfo;
 import static org.jocl.CL.clReleaseCommandQueue;
+import static org.jocl.CL.clWaitForEvents;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 import org.jocl.CL;
 import org.jocl.Pointer;
 import org.jocl.Sizeof;
 import org.jocl.cl_command_queue;
+import org.jocl.cl_event;
 import org.jocl.cl_mem;
 
 /**
@@ -20,8 +28,17 @@ public final class CLCommandQueue implements Serializable {
 	
 	private final cl_command_queue commandQueue;
 	
+	private boolean released;
+	
 	public CLCommandQueue(final CLContext context) {
-		this.commandQueue = clCreateCommandQueue(context.getContext(), context.getDevice().getId(), 0, null);
+		this(context, 0L);
+	}
+	
+	/**
+	 * @param properties eg <code>CL_QUEUE_PROFILING_ENABLE</code>
+	 */
+	public CLCommandQueue(final CLContext context, final long properties) {
+		this.commandQueue = clCreateCommandQueue(context.getContext(), context.getDevice().getId(), properties, null);
 	}
 	
 	public final cl_command_queue getCommandQueue() {
@@ -52,8 +69,54 @@ public final class CLCommandQueue implements Serializable {
 				bytes, result, 0, null, null);
 	}
 	
-	public final void release() {
-		clReleaseCommandQueue(this.getCommandQueue());
+	/**
+	 * @return An event signaling the completion of the kernel, which will start after the events of <code>waitList</code>
+	 */
+	public final cl_event enqueueNDRangeKernel(final CLKernel kernel,
+			final long[] globalWorkSize, final long[] localWorkSize, final Collection<cl_event> waitList) {
+		final cl_event result = new cl_event();
+		
+		clEnqueueNDRangeKernel(this.getCommandQueue(), kernel.getKernel(), globalWorkSize.length, null,
+				globalWorkSize, localWorkSize, waitList.size(), array(waitList), result);
+		
+		return result;
+	}
+	
+	/**
+	 * @return An event signaling the completion of the transfer, which will start after the events of <code>waitList</code>
+	 */
+	public final cl_event enqueueWriteBuffer(final cl_mem buffer, final long bytes, final Pointer values,
+			final Collection<cl_event> waitList) {
+		final cl_event result = new cl_event();
+		
+		CL.clEnqueueWriteBuffer(this.getCommandQueue(), buffer, false, 0,
+				bytes, values, waitList.size(), array(waitList), result);
+		
+		return result;
+	}
+	
+	/**
+	 * Blocks until the transfer, which starts after the events of <code>waitList</code>, is complete.
+	 */
+	public final void enqueueReadBuffer(final cl_mem buffer, final long bytes, final Pointer result,
+			final Collection<cl_event> waitList) {
+		clEnqueueReadBuffer(this.getCommandQueue(), buffer, true, 0,
+				bytes, result, waitList.size(), array(waitList), null);
+	}
+	
+	public final void flush() {
+		clFlush(this.getCommandQueue());
+	}
+	
+	public final void finish() {
+		clFinish(this.getCommandQueue());
+	}
+	
+	public final synchronized void release() {
+		if (!this.released) {
+			this.released = true;
+			clReleaseCommandQueue(this.getCommandQueue());
+		}
 	}
 	
 	/**
@@ -61,4 +124,30 @@ public final class CLCommandQueue implements Serializable {
 	 */
 	private static final long serialVersionUID = -8782273179290708884L;
 	
+	public static final void waitFor(final Collection<cl_event> events) {
+		if (!events.isEmpty()) {
+			clWaitForEvents(events.size(), array(events));
+		}
+	}
+	
+	/**
+	 * The queue of <code>event</code> must have been created with <code>CL_QUEUE_PROFILING_ENABLE</code>,
+	 * and <code>event</code> must be complete.
+	 * 
+	 * @return The execution time of the command of <code>event</code>, in nanoseconds
+	 */
+	public static final long getExecutionTime(final cl_event event) {
+		final long[] start = { 0L };
+		final long[] end = { 0L };
+		
+		clGetEventProfilingInfo(event, CL_PROFILING_COMMAND_START, Sizeof.cl_ulong, Pointer.to(start), null);
+		clGetEventProfilingInfo(event, CL_PROFILING_COMMAND_END, Sizeof.cl_ulong, Pointer.to(end), null);
+		
+		return end[0] - start[0];
+	}
+	
+	static final cl_event[] array(final Collection<cl_event> events) {
+		return events.isEmpty() ? null : events.toArray(new cl_event[events.size()]);
+	}
+	
 }
@@ -11,7 +11,9 @@ import static org.jocl.CL.clReleaseContext;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import multij.tools.Tools;
 
@@ -39,6 +41,10 @@ public final class CLContext implements Serializable {
 	
 	private final List<cl_mem> buffers;
 	
+	private final Map<String, CLKernel> kernels;
+	
+	private int kernelCacheCapacity;
+	
 	public CLContext(final long preferredDeviceType, final int preferredDeviceIndex) {
 		this(findDevice(preferredDeviceType, preferredDeviceIndex));
 	}
@@ -60,6 +66,8 @@ public final class CLContext implements Serializable {
         this.commandQueues = new ArrayList<>();
         this.programs = new ArrayList<>();
         this.buffers = new ArrayList<>();
+        this.kernels = new LinkedHashMap<>(16, 0.75F, true);
+        this.kernelCacheCapacity = DEFAULT_KERNEL_CACHE_CAPACITY;
 	}
 	
 	public final CLDevice getDevice() {
@@ -71,7 +79,18 @@ public final class CLContext implements Serializable {
 	}
 	
 	public final CLCommandQueue createCommandQueue() {
-        return new CLCommandQueue(this);
+        return this.createCommandQueue(0L);
+	}
+	
+	/**
+	 * @param properties eg <code>CL_QUEUE_PROFILING_ENABLE</code>
+	 */
+	public final CLCommandQueue createCommandQueue(final long properties) {
+		final CLCommandQueue result = new CLCommandQueue(this, properties);
+		
+		this.commandQueues.add(result);
+		
+		return result;
 	}
 	
 	public final CLCommandQueue getDefaultCommandQueue() {
@@ -115,13 +134,68 @@ public final class CLContext implements Serializable {
 		return result;
 	}
 	
+	/**
+	 * Kernels are shared by source: the program is built on the first request for <code>source</code>,
+	 * and released when more than {@link #getKernelCacheCapacity()} other sources have been requested since its last use.
+	 * <br>Callers must not keep the result across calls that may evict it (see {@link CLKernel#isReleased()}),
+	 * and must set all its arguments and enqueue it while holding its lock, since other threads may use it;
+	 * evicted kernels are released under that lock.
+	 */
+	public final synchronized CLKernel getOrCreateKernel(final String source, final String name) {
+		CLKernel result = this.kernels.get(source);
+		
+		if (result == null) {
+			result = this.createAndBuildProgram(source).createKernel(name);
+			this.kernels.put(source, result);
+			
+			while (Math.max(1, this.getKernelCacheCapacity()) < this.kernels.size()) {
+				final Map.Entry<String, CLKernel> eldest = this.kernels.entrySet().iterator().next();
+				
+				this.kernels.remove(eldest.getKey());
+				this.release(eldest.getValue().getProgram());
+			}
+		}
+		
+		return result;
+	}
+	
+	public final synchronized int getKernelCacheCapacity() {
+		return this.kernelCacheCapacity;
+	}
+	
+	public final synchronized CLContext setKernelCacheCapacity(final int kernelCacheCapacity) {
+		this.kernelCacheCapacity = kernelCacheCapacity;
+		
+		return this;
+	}
+	
+	public final synchronized int getCachedKernelCount() {
+		return this.kernels.size();
+	}
+	
+	/**
+	 * Releases the kernels returned by {@link #getOrCreateKernel(String, String)} and their programs,
+	 * once they are not being enqueued anymore; processors get them again when needed.
+	 */
+	public final synchronized void releaseKernels() {
+		this.kernels.values().forEach(kernel -> this.release(kernel.getProgram()));
+		this.kernels.clear();
+	}
+	
+	private final void release(final CLProgram program) {
+		program.releaseKernels();
+		program.release();
+		this.programs.remove(program);
+	}
+	
 	public final void releaseCommandQueues() {
 		this.commandQueues.forEach(CLCommandQueue::release);
 		this.commandQueues.clear();
 		this.defaultCommandQueue = null;
 	}
 	
-	public final void releasePrograms() {
+	public final synchronized void releasePrograms() {
+		this.releaseKernels();
 		this.programs.forEach(CLProgram::release);
 		this.programs.clear();
 	}
@@ -151,6 +225,8 @@ public final class CLContext implements Serializable {
 	 */
 	private static final long serialVersionUID = 4356751746914058899L;
 	
+	public static final int DEFAULT_KERNEL_CACHE_CAPACITY = 256;
+	
 	public static final CLDevice findDevice(final long preferredDeviceType, final int preferredDeviceIndex) {
 		CLDevice defaultResult = null;
 		final CLHardware hardware = new CLHardware();
@@ -26,6 +26,8 @@ public final class CLKernel implements Serializable {
 	
 	private final Map<Integer, cl_mem> args;
 	
+	private volatile boolean released;
+	
 	public CLKernel(final CLProgram program, final String name) {
 		this.program = program;
 		this.name = name;
@@ -50,6 +52,11 @@ public final class CLKernel implements Serializable {
         clSetKernelArg(this.getKernel(), argIndex, Sizeof.cl_mem, Pointer.to(buffer));
 	}
 	
+	public final void setArg(final int argIndex, final float value) {
+		this.args.remove(argIndex);
+        clSetKernelArg(this.getKernel(), argIndex, Sizeof.cl_float, Pointer.to(new float[] { value }));
+	}
+	
 	public final cl_mem getArg(final int index) {
 		return this.args.get(index);
 	}
@@ -76,8 +83,15 @@ public final class CLKernel implements Serializable {
 		return this.getProgram().getContext().getDefaultCommandQueue();
 	}
 	
-	public final void release() {
-		clReleaseKernel(this.getKernel());
+	public final boolean isReleased() {
+		return this.released;
+	}
+	
+	public final synchronized void release() {
+		if (!this.released) {
+			this.released = true;
+			clReleaseKernel(this.getKernel());
+		}
 	}
 	
 	@Override
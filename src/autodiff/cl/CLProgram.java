@@ -25,6 +25,8 @@ public final class CLProgram implements Serializable {
 	
 	private final List<CLKernel> kernels;
 	
+	private boolean released;
+	
 	public CLProgram(final CLContext context, final String source) {
 		this.context = context;
 		this.program = clCreateProgramWithSource(context.getContext(),
@@ -59,8 +61,15 @@ public final class CLProgram implements Serializable {
 		this.kernels.clear();
 	}
 	
-	public final void release() {
-		clReleaseProgram(this.getProgram());
+	public final boolean isReleased() {
+		return this.released;
+	}
+	
+	public final synchronized void release() {
+		if (!this.released) {
+			this.released = true;
+			clReleaseProgram(this.getProgram());
+		}
 	}
 	
 	@Override
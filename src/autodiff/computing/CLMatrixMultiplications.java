@@ -0,0 +1,290 @@
+package autodiff.computing;
+
+import static java.util.Collections.synchronizedMap;
+import static org.jocl.CL.CL_MEM_READ_WRITE;
+import static org.jocl.CL.clCreateBuffer;
+import static org.jocl.CL.clReleaseMemObject;
+
+import autodiff.cl.CLCommandQueue;
+import autodiff.cl.CLContext;
+import autodiff.cl.CLDevice;
+import autodiff.cl.CLKernel;
+import autodiff.cl.CLProgram;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import multij.tools.IllegalInstantiationException;
+
+import org.jocl.Sizeof;
+import org.jocl.cl_mem;
+
+/**
+ * Generates matrix multiplication kernels that stage square tiles of both operands in local memory,
+ * each work item accumulating {@link Tiling#getWorkPerItem()} results of one column in registers.
+ * <br>Tiles are loaded so that consecutive work items read consecutive addresses whether the operands are transposed or not,
+ * and the products are accumulated in the same order as in the untiled kernel.
+ * <br>The tiling is chosen per device by {@link #getTiling(CLContext)}, which benchmarks {@link #CANDIDATES} once.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class CLMatrixMultiplications {
+	
+	private CLMatrixMultiplications() {
+		throw new IllegalInstantiationException();
+	}
+	
+	public static final List<Tiling> CANDIDATES = Arrays.asList(
+			new Tiling(8, 1), new Tiling(16, 1), new Tiling(16, 2), new Tiling(16, 4),
+			new Tiling(32, 2), new Tiling(32, 4), new Tiling(32, 8), new Tiling(64, 8), new Tiling(64, 16));
+	
+	/**
+	 * Side of the square matrices used for tuning.
+	 */
+	public static final int TUNING_SIZE = 512;
+	
+	public static final int TUNING_RUNS = 3;
+	
+	private static final Map<String, Tiling> tilings = synchronizedMap(new HashMap<>());
+	
+	/**
+	 * @return The fastest of the candidates that fit on the device of <code>context</code>,
+	 * or <code>null</code> if none fits
+	 */
+	public static final Tiling getTiling(final CLContext context) {
+		final CLDevice device = context.getDevice();
+		final String key = device.getPlatform().getName() + "/" + device.getName() + "/" + device.getDriverVersion();
+		
+		synchronized (tilings) {
+			if (!tilings.containsKey(key)) {
+				tilings.put(key, tune(context));
+			}
+			
+			return tilings.get(key);
+		}
+	}
+	
+	/**
+	 * Overrides the choice of {@link #getTiling(CLContext)} for <code>device</code>.
+	 *
+	 * @param tiling <code>null</code> to disable tiling
+	 */
+	public static final void setTiling(final CLDevice device, final Tiling tiling) {
+		tilings.put(device.getPlatform().getName() + "/" + device.getName() + "/" + device.getDriverVersion(), tiling);
+	}
+	
+	public static final Tiling tune(final CLContext context) {
+		final int n = TUNING_SIZE;
+		final long bytes = (long) Sizeof.cl_float * n * n;
+		final cl_mem left = clCreateBuffer(context.getContext(), CL_MEM_READ_WRITE, bytes, null, null);
+		final cl_mem right = clCreateBuffer(context.getContext(), CL_MEM_READ_WRITE, bytes, null, null);
+		final cl_mem result = clCreateBuffer(context.getContext(), CL_MEM_READ_WRITE, bytes, null, null);
+		final CLCommandQueue queue = context.getDefaultCommandQueue();
+		Tiling best = null;
+		long bestTime = Long.MAX_VALUE;
+		
+		try {
+			for (final Tiling tiling : CANDIDATES) {
+				if (!tiling.fits(context.getDevice())) {
+					continue;
+				}
+				
+				final CLProgram program = context.createAndBuildProgram(getSource("tuning", n, n, n, false, false, tiling));
+				
+				try {
+					final CLKernel kernel = program.createKernel("tuning");
+					final long[] globalWorkSize = tiling.getGlobalWorkSize(n, n);
+					final long[] localWorkSize = tiling.getLocalWorkSize();
+					
+					kernel.setArg(0, left);
+					kernel.setArg(1, right);
+					kernel.setArg(2, result);
+					
+					queue.enqueueNDRangeKernel(kernel, globalWorkSize, localWorkSize);
+					queue.finish();
+					
+					final long start = System.nanoTime();
+					
+					for (int i = 0; i < TUNING_RUNS; ++i) {
+						queue.enqueueNDRangeKernel(kernel, globalWorkSize, localWorkSize);
+					}
+					
+					queue.finish();
+					
+					final long time = System.nanoTime() - start;
+					
+					if (time < bestTime) {
+						best = tiling;
+						bestTime = time;
+					}
+				} catch (final RuntimeException exception) {
+					// the device rejected this candidate
+				} finally {
+					program.releaseKernels();
+					program.release();
+				}
+			}
+		} finally {
+			clReleaseMemObject(left);
+			clReleaseMemObject(right);
+			clReleaseMemObject(result);
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * The kernel takes <code>(left, right, result)</code> and adds the product to <code>result</code>;
+	 * it must be enqueued with {@link Tiling#getGlobalWorkSize(int, int)} and {@link Tiling#getLocalWorkSize()}.
+	 *
+	 * @param rows Rows of the product
+	 * @param columns Columns of the product
+	 * @param stride Columns of the (transposed if <code>transposeLeft</code>) left operand
+	 */
+	public static final String getSource(final String kernelName, final int rows, final int columns, final int stride,
+			final boolean transposeLeft, final boolean transposeRight, final Tiling tiling) {
+		final int tileSize = tiling.getTileSize();
+		final int workPerItem = tiling.getWorkPerItem();
+		final int rowsPerStep = tileSize / workPerItem;
+		String result = "";
+		
+		result += "__kernel void " + kernelName + "(";
+		result += "__global float const * const left, ";
+		result += "__global float const * const right, ";
+		result += "__global float * const result) {\n";
+		result += "	int const rows = " + rows + ";\n";
+		result += "	int const columns = " + columns + ";\n";
+		result += "	int const stride = " + stride + ";\n";
+		result += "	int const tx = get_local_id(0);\n";
+		result += "	int const ty = get_local_id(1);\n";
+		result += "	int const r0 = get_group_id(1) * " + tileSize + ";\n";
+		result += "	int const c0 = get_group_id(0) * " + tileSize + ";\n";
+		result += "	__local float leftTile[" + tileSize + "][" + (tileSize + 1) + "];\n";
+		result += "	__local float rightTile[" + tileSize + "][" + (tileSize + 1) + "];\n";
+		result += "	float values[" + workPerItem + "];\n";
+		result += "	for (int w = 0; w < " + workPerItem + "; ++w) {\n";
+		result += "		values[w] = 0.0F;\n";
+		result += "	}\n";
+		result += "	for (int k0 = 0; k0 < stride; k0 += " + tileSize + ") {\n";
+		result += "		for (int w = 0; w < " + workPerItem + "; ++w) {\n";
+		result += "			int const y = ty + w * " + rowsPerStep + ";\n";
+		
+		// leftTile[row][k] and rightTile[k][column], with tx running along contiguous addresses
+		if (transposeLeft) {
+			result += "			int const r = r0 + tx;\n";
+			result += "			int const k = k0 + y;\n";
+			result += "			leftTile[tx][y] = r < rows && k < stride ? left[r + k * rows] : 0.0F;\n";
+		} else {
+			result += "			int const r = r0 + y;\n";
+			result += "			int const k = k0 + tx;\n";
+			result += "			leftTile[y][tx] = r < rows && k < stride ? left[k + r * stride] : 0.0F;\n";
+		}
+		
+		if (transposeRight) {
+			result += "			int const c = c0 + y;\n";
+			result += "			int const l = k0 + tx;\n";
+			result += "			rightTile[tx][y] = c < columns && l < stride ? right[l + c * stride] : 0.0F;\n";
+		} else {
+			result += "			int const c = c0 + tx;\n";
+			result += "			int const l = k0 + y;\n";
+			result += "			rightTile[y][tx] = c < columns && l < stride ? right[c + l * columns] : 0.0F;\n";
+		}
+		
+		result += "		}\n";
+		result += "		barrier(CLK_LOCAL_MEM_FENCE);\n";
+		result += "		int const kn = min(" + tileSize + ", stride - k0);\n";
+		result += "		for (int k = 0; k < kn; ++k) {\n";
+		result += "			float const b = rightTile[k][tx];\n";
+		result += "			for (int w = 0; w < " + workPerItem + "; ++w) {\n";
+		result += "				values[w] += leftTile[ty + w * " + rowsPerStep + "][k] * b;\n";
+		result += "			}\n";
+		result += "		}\n";
+		result += "		barrier(CLK_LOCAL_MEM_FENCE);\n";
+		result += "	}\n";
+		result += "	int const c = c0 + tx;\n";
+		result += "	for (int w = 0; w < " + workPerItem + "; ++w) {\n";
+		result += "		int const r = r0 + ty + w * " + rowsPerStep + ";\n";
+		result += "		if (r < rows && c < columns) {\n";
+		result += "			result[c + r * columns] += values[w];\n";
+		result += "		}\n";
+		result += "	}\n";
+		result += "}\n";
+		
+		return result;
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static final class Tiling implements Serializable {
+		
+		private final int tileSize;
+		
+		private final int workPerItem;
+		
+		/**
+		 * @param tileSize Side of the square of results computed by a work group
+		 * @param workPerItem Results computed by each work item, must divide <code>tileSize</code>
+		 */
+		public Tiling(final int tileSize, final int workPerItem) {
+			if (tileSize % workPerItem != 0) {
+				throw new IllegalArgumentException(workPerItem + " does not divide " + tileSize);
+			}
+			
+			this.tileSize = tileSize;
+			this.workPerItem = workPerItem;
+		}
+		
+		public final int getTileSize() {
+			return this.tileSize;
+		}
+		
+		public final int getWorkPerItem() {
+			return this.workPerItem;
+		}
+		
+		public final long[] getLocalWorkSize() {
+			return new long[] { this.getTileSize(), this.getTileSize() / this.getWorkPerItem() };
+		}
+		
+		public final long[] getGlobalWorkSize(final int rows, final int columns) {
+			final int tileSize = this.getTileSize();
+			final long[] result = this.getLocalWorkSize();
+			
+			result[0] *= (columns + tileSize - 1) / tileSize;
+			result[1] *= (rows + tileSize - 1) / tileSize;
+			
+			return result;
+		}
+		
+		/**
+		 * @return <code>true</code> if a product with <code>rows</code> rows and <code>columns</code> columns
+		 * fills at least half of the tiles in each direction
+		 */
+		public final boolean isEfficient(final int rows, final int columns) {
+			return this.getTileSize() <= 2 * Math.min(rows, columns);
+		}
+		
+		public final boolean fits(final CLDevice device) {
+			final long[] localWorkSize = this.getLocalWorkSize();
+			final long[] maxWorkItemSizes = device.getMaxWorkItemSizes();
+			
+			return localWorkSize[0] * localWorkSize[1] <= device.getMaxWorkGroupSize()
+					&& 2 <= maxWorkItemSizes.length
+					&& localWorkSize[0] <= maxWorkItemSizes[0] && localWorkSize[1] <= maxWorkItemSizes[1]
+					&& 2L * Sizeof.cl_float * this.getTileSize() * (this.getTileSize() + 1) <= device.getLocalMemSize();
+		}
+		
+		@Override
+		public final String toString() {
+			return this.getTileSize() + "x" + this.getWorkPerItem();
+		}
+		
+		private static final long serialVersionUID = -1630914316785766253L;
+		
+	}
+	
+}
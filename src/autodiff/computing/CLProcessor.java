@@ -6,19 +6,34 @@ import static autodiff.reasoning.proofs.ElementaryVerification.R;
 import static autodiff.reasoning.tactics.Stack.*;
 import static multij.rules.PatternPredicate.matchWith;
 import static java.lang.Math.max;
+import static autodiff.nodes.NodesTools.NaI;
+import static autodiff.nodes.NodesTools.product;
 import static multij.tools.Tools.cast;
 import static multij.tools.Tools.swap;
 import static org.jocl.CL.CL_MEM_READ_WRITE;
 import static org.jocl.CL.CL_MEM_USE_HOST_PTR;
+import static org.jocl.CL.CL_QUEUE_PROFILING_ENABLE;
 import static org.jocl.CL.setExceptionsEnabled;
 
+import autodiff.cl.CLCommandQueue;
 import autodiff.cl.CLContext;
 import autodiff.cl.CLKernel;
+import autodiff.computing.CLMatrixMultiplications.Tiling;
+import autodiff.io.ComputationCache;
 import autodiff.nodes.Computation;
+import autodiff.nodes.Convolution;
+import autodiff.nodes.Fusion;
+import autodiff.nodes.Gathering;
 import autodiff.nodes.Mapping;
 import autodiff.nodes.MatrixMultiplication;
 import autodiff.nodes.Node;
 import autodiff.nodes.NodeVisitor;
+import autodiff.nodes.NodesTools.GridSampling;
+import autodiff.nodes.Pooling;
+import autodiff.nodes.Reduction;
+import autodiff.nodes.Storage;
+import autodiff.nodes.StructuredMatrix;
+import autodiff.nodes.StructuredMatrix.Sparse;
 import autodiff.nodes.Zipping;
 import autodiff.reasoning.deductions.Basics;
 import autodiff.reasoning.deductions.ToCLCode;
@@ -33,10 +48,14 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import multij.rules.Rules;
 import multij.tools.Pair;
@@ -45,6 +64,7 @@ import multij.tools.TicToc;
 import org.jocl.CL;
 import org.jocl.Pointer;
 import org.jocl.Sizeof;
+import org.jocl.cl_event;
 import org.jocl.cl_mem;
 
 /**
@@ -54,9 +74,11 @@ public final class CLProcessor implements NodeProcessor {
 	
 	private final Map<Object, TicToc> timers;
 	
-	private final Map<Node<?>, List<Node<?>>> forwards;
+	private final ScheduleCache<List<Node<?>>> forwards;
 	
-	private final Map<Node<?>, List<Node<?>>> backwards;
+	private final ScheduleCache<List<Node<?>>> backwards;
+	
+	private final ScheduleCache<ConstantFolding> constantFoldings;
 	
 	private final CLContext context;
 	
@@ -64,7 +86,25 @@ public final class CLProcessor implements NodeProcessor {
 	
 	private final Map<Object, cl_mem> buffers;
 	
-	private final Map<Node<?>, CLKernel> forwardKernels;
+	private final ScheduleCache<CLKernel> forwardKernels;
+	
+	private final Map<Storage, Long> deviceVersions;
+	
+	private final List<CLCommandQueue> queues;
+	
+	private final Map<Storage, StorageEvents> storageEvents;
+	
+	private final List<Pair<Object, cl_event>> events;
+	
+	private final Map<Object, Long> deviceTimes;
+	
+	private int queueCount;
+	
+	private final List<cl_event> queueLastEvents;
+	
+	private int nextQueueIndex;
+	
+	private boolean profiling;
 	
 	private final Forwarder forwarder;
 	
@@ -72,21 +112,56 @@ public final class CLProcessor implements NodeProcessor {
 	
 	private final ForwardInitializer forwardInitializer;
 	
+	private final WorkSizesGetter workSizesGetter;
+	
+	private final SideOutputsGetter sideOutputsGetter;
+	
+	private boolean fusing;
+	
+	private boolean foldingConstants;
+	
+	private Tiling matrixMultiplicationTiling;
+	
+	private boolean matrixMultiplicationTilingResolved;
+	
 	public CLProcessor() {
 		this(new CLContext());
 	}
 	
 	public CLProcessor(final CLContext context) {
 		this.timers = new HashMap<>();
-		this.forwards = new HashMap<>();
-		this.backwards = new HashMap<>();
+		this.forwards = new ScheduleCache<>();
+		this.backwards = new ScheduleCache<>();
+		this.constantFoldings = new ScheduleCache<>(Integer.MAX_VALUE);
 		this.context = context;
 		this.pointers = new IdentityHashMap<>();
 		this.buffers = new IdentityHashMap<>();
-		this.forwardKernels = new IdentityHashMap<>();
+		this.forwardKernels = new ScheduleCache<>(Integer.MAX_VALUE);
+		this.deviceVersions = new IdentityHashMap<>();
+		this.queues = new ArrayList<>();
+		this.storageEvents = new IdentityHashMap<>();
+		this.events = new ArrayList<>();
+		this.queueLastEvents = new ArrayList<>();
+		this.deviceTimes = new HashMap<>();
 		this.forwarder = this.new Forwarder();
 		this.forwardGetter = this.new ForwardGetter();
 		this.forwardInitializer = this.new ForwardInitializer();
+		this.workSizesGetter = this.new WorkSizesGetter();
+		this.sideOutputsGetter = new SideOutputsGetter();
+		this.fusing = true;
+		this.foldingConstants = true;
+		
+		// the constant foldings are unbounded, and evicted with the forward nodes they were folded out of
+		this.forwards.setEvictionListener((node, schedule) -> {
+			final ConstantFolding folding = this.getConstantFoldings().remove(node);
+			
+			this.releaseSchedule(schedule);
+			
+			if (folding != null) {
+				this.releaseSchedule(folding.getNodes());
+			}
+		});
+		this.backwards.setEvictionListener((__, schedule) -> this.releaseSchedule(schedule));
 	}
 	
 	@Override
@@ -95,12 +170,12 @@ public final class CLProcessor implements NodeProcessor {
 	}
 	
 	@Override
-	public final Map<Node<?>, List<Node<?>>> getForwards() {
+	public final ScheduleCache<List<Node<?>>> getForwards() {
 		return this.forwards;
 	}
 	
 	@Override
-	public final Map<Node<?>, List<Node<?>>> getBackwards() {
+	public final ScheduleCache<List<Node<?>>> getBackwards() {
 		return this.backwards;
 	}
 	
@@ -109,89 +184,576 @@ public final class CLProcessor implements NodeProcessor {
 	}
 	
 	@Override
-	public final NodeVisitor<Void> getForwarder() {
-		return this.forwarder;
+	public final ScheduleCache<ConstantFolding> getConstantFoldings() {
+		return this.constantFoldings;
+	}
+	
+	/**
+	 * Sets the capacity of the schedule caches of this processor (see {@link ScheduleCache});
+	 * the device buffers and kernels of the evicted schedules are released (see {@link #releaseSchedule(List)}).
+	 */
+	public final CLProcessor setCacheCapacity(final int cacheCapacity) {
+		this.getForwards().setCapacity(cacheCapacity);
+		this.getBackwards().setCapacity(cacheCapacity);
+		
+		return this;
 	}
 	
 	@Override
-	public final <N extends Node<?>> N fullForward(final N node) {
-		NodeProcessor.super.fullForward(node);
+	public final boolean isFoldingConstants() {
+		return this.foldingConstants;
+	}
+	
+	public final CLProcessor setFoldingConstants(final boolean foldingConstants) {
+		if (this.foldingConstants != foldingConstants) {
+			this.foldingConstants = foldingConstants;
+			this.getForwards().clear();
+			this.getBackwards().clear();
+			this.getConstantFoldings().clear();
+		}
 		
-		this.readBufferNow(node);
+		return this;
+	}
+	
+	@Override
+	public final boolean isFusing() {
+		return this.fusing;
+	}
+	
+	public final CLProcessor setFusing(final boolean fusing) {
+		if (this.fusing != fusing) {
+			this.fusing = fusing;
+			this.getForwards().clear();
+			this.getBackwards().clear();
+			this.getConstantFoldings().clear();
+		}
 		
-		return node;
+		return this;
 	}
 	
 	@Override
-	public final <N extends Node<?>> N fullBackwardDiff(final N node) {
-		NodeProcessor.super.fullBackwardDiff(node);
+	public final NodeVisitor<Void> getForwarder() {
+		return this.forwarder;
+	}
+	
+	/**
+	 * @return The tiling of the local-memory kernels used for {@link MatrixMultiplication} nodes
+	 * (by default, the one tuned for the device by {@link CLMatrixMultiplications#getTiling(CLContext)}),
+	 * or <code>null</code> to use one work item per result
+	 */
+	public final Tiling getMatrixMultiplicationTiling() {
+		if (!this.matrixMultiplicationTilingResolved) {
+			this.matrixMultiplicationTiling = CLMatrixMultiplications.getTiling(this.getContext());
+			this.matrixMultiplicationTilingResolved = true;
+		}
+		
+		return this.matrixMultiplicationTiling;
+	}
+	
+	public final CLProcessor setMatrixMultiplicationTiling(final Tiling matrixMultiplicationTiling) {
+		this.matrixMultiplicationTiling = matrixMultiplicationTiling;
+		this.matrixMultiplicationTilingResolved = true;
+		this.getForwardKernels().keySet().removeIf(node -> node instanceof MatrixMultiplication);
+		
+		return this;
+	}
+	
+	/**
+	 * @return The tiling to use for <code>node</code>, or <code>null</code>
+	 */
+	final Tiling getTiling(final MatrixMultiplication node) {
+		final Tiling result = this.getMatrixMultiplicationTiling();
+		final int[] shape = node.getLengths(new int[2]);
+		
+		return result != null && result.isEfficient(shape[0], shape[1]) ? result : null;
+	}
+	
+	/**
+	 * @return The matrix whose rows are combined by the sparse kernel of <code>node</code>:
+	 * <code>op(left)</code> if it is sparse, otherwise the transpose of <code>op(right)</code> if it is sparse,
+	 * or <code>null</code> if the kernel is dense
+	 */
+	static final Sparse getSparseRows(final MatrixMultiplication node) {
+		final StructuredMatrix left = StructuredMatrix.of(node.getLeft(), node.isTransposeLeft());
 		
-		if (node.hasDiffs()) {
-			this.readBufferNow(node.getDiffs());
+		if (left instanceof Sparse) {
+			return (Sparse) left;
 		}
 		
-		return node;
+		final StructuredMatrix right = StructuredMatrix.of(node.getRight(), !node.isTransposeRight());
+		
+		return right instanceof Sparse ? (Sparse) right : null;
 	}
 	
-	@Override
-	public final void forward(final Iterable<Node<?>> nodes) {
-		for (final Node<?> node : nodes) {
-			final TicToc timer = getOrCreateTimer(node.getClass().getSimpleName());
-			
-			timer.tic();
+	/**
+	 * @param sparseLeft <code>true</code> if the rows of <code>op(left)</code> are given in CSR form,
+	 * <code>false</code> if the columns of <code>op(right)</code> are
+	 * @return The source of a kernel computing one element of the product per work item,
+	 * combining only the entries of the sparse operand (see {@link #getSparseRows(MatrixMultiplication)})
+	 */
+	public static final String getSparseMatrixMultiplicationSource(final String kernelName,
+			final int rows, final int columns, final int stride,
+			final boolean transposeLeft, final boolean transposeRight, final boolean sparseLeft) {
+		String result = "";
+		
+		result += "__kernel void " + kernelName + "(";
+		result += "__global float const * const left, ";
+		result += "__global float const * const right, ";
+		result += "__global float * const result, ";
+		result += "__global int const * const rowStarts, ";
+		result += "__global int const * const columnIndices, ";
+		result += "__global float const * const values) {\n";
+		result += "	int const gid = get_global_id(0);\n";
+		result += "	int const rows = " + rows + ";\n";
+		result += "	int const columns = " + columns + ";\n";
+		result += "	int const stride = " + stride + ";\n";
+		result += "	int const r = gid / columns;\n";
+		result += "	int const c = gid % columns;\n";
+		result += "	int const i = " + (sparseLeft ? "r" : "c") + ";\n";
+		result += "	float value = 0.0F;\n";
+		result += "	for (int l = rowStarts[i]; l < rowStarts[i + 1]; ++l) {\n";
+		result += "		int const k = columnIndices[l];\n";
+		
+		if (sparseLeft) {
+			result += "		value += values[l] * right[" + (transposeRight ? "k + c * stride" : "c + k * columns") + "];\n";
+		} else {
+			result += "		value += left[" + (transposeLeft ? "r + k * rows" : "k + r * stride") + "] * values[l];\n";
+		}
+		
+		result += "	}\n";
+		result += "	result[gid] += value;\n";
+		result += "}\n";
+		
+		return result;
+	}
+	
+	public final int getQueueCount() {
+		return this.queueCount;
+	}
+	
+	/**
+	 * With 0 queues (the default), all commands go in order through the default command queue.
+	 * <br>Otherwise, kernels are distributed over <code>queueCount</code> queues, host-to-device copies go through
+	 * an additional queue, and each command waits for the events of the commands that last wrote its inputs
+	 * and that read or wrote its outputs, so that independent branches of the graph and transfers can overlap.
+	 */
+	public final synchronized CLProcessor setQueueCount(final int queueCount) {
+		if (this.queueCount != queueCount) {
+			this.releaseQueues();
+			this.queueCount = queueCount;
+		}
+		
+		return this;
+	}
+	
+	public final boolean isProfiling() {
+		return this.profiling;
+	}
+	
+	/**
+	 * Enables device profiling of the commands enqueued when {@link #getQueueCount()} is not 0.
+	 * 
+	 * @see #getDeviceTimes()
+	 */
+	public final synchronized CLProcessor setProfiling(final boolean profiling) {
+		if (this.profiling != profiling) {
+			this.releaseQueues();
+			this.profiling = profiling;
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * {@link #getTimers()} measures the time spent enqueueing commands on the host;
+	 * this map gives the time spent executing them on the device, in nanoseconds, with the same keys
+	 * (plus "write" for host-to-device copies and "fill").
+	 * <br>It is only updated when profiling is enabled, and waits for all enqueued commands.
+	 */
+	public final synchronized Map<Object, Long> getDeviceTimes() {
+		this.synchronize();
+		
+		return this.deviceTimes;
+	}
+	
+	/**
+	 * Waits for all enqueued commands, then accumulates their profiling times and releases their events.
+	 */
+	public final synchronized void synchronize() {
+		if (!this.events.isEmpty()) {
+			this.queues.forEach(CLCommandQueue::finish);
 			
-			this.writeBuffer(node);
+			for (final Pair<Object, cl_event> keyAndEvent : this.events) {
+				if (this.isProfiling()) {
+					this.deviceTimes.merge(keyAndEvent.getFirst(),
+							CLCommandQueue.getExecutionTime(keyAndEvent.getSecond()), Long::sum);
+				}
+				
+				CL.clReleaseEvent(keyAndEvent.getSecond());
+			}
 			
+			this.events.clear();
+			this.storageEvents.clear();
+			Collections.fill(this.queueLastEvents, null);
+		}
+	}
+	
+	/**
+	 * Only uploads the storages modified by the host since their last upload,
+	 * and leaves the results on the device until the host accesses them (see {@link Storage#setHostSynchronizer(Runnable)}).
+	 */
+	@Override
+	public final synchronized void forward(final Iterable<Node<?>> nodes) {
+		if (MAXIMUM_PENDING_EVENTS < this.events.size()) {
+			this.synchronize();
+		}
+		
+		for (final Node<?> node : nodes) {
 			if (node.isComputationNode()) {
-				node.accept(this.forwardInitializer).enqueueNDRange(node.getLength());
+				final String key = node.getClass().getSimpleName();
+				final TicToc timer = getOrCreateTimer(key);
 				
-				this.readBuffer(node);
+				timer.tic();
+				
+				final List<Node<?>> sideOutputs = node.accept(this.sideOutputsGetter);
+				final List<cl_event> waitList = new ArrayList<>();
+				
+				for (final Node<?> argument : node.getArguments()) {
+					this.writeBuffer(argument);
+					this.addDependencies(argument, false, waitList);
+				}
+				
+				this.writeBuffer(node);
+				this.addDependencies(node, true, waitList);
+				
+				for (final Node<?> sideOutput : sideOutputs) {
+					this.writeBuffer(sideOutput);
+					this.addDependencies(sideOutput, true, waitList);
+				}
+				
+				final long[][] workSizes = node.accept(this.workSizesGetter);
+				
+				if (this.getQueueCount() == 0) {
+					withKernel(() -> this.getForwardKernel(node), kernel -> {
+						node.accept(this.forwardInitializer);
+						kernel.enqueueNDRange(workSizes[0], workSizes[1]);
+						
+						return null;
+					});
+				} else {
+					final int queueIndex = this.pickQueueIndex(node);
+					final cl_event event = withKernel(() -> this.getForwardKernel(node), kernel -> this.getQueue(queueIndex)
+							.enqueueNDRangeKernel(node.accept(this.forwardInitializer), workSizes[0], workSizes[1], waitList));
+					
+					this.addEvent(key, event, queueIndex);
+					
+					for (final Node<?> argument : node.getArguments()) {
+						this.getStorageEvents(argument).getReads().add(event);
+						this.setHostWaiting(argument);
+					}
+					
+					this.getStorageEvents(node).setLastWrite(event, queueIndex);
+					sideOutputs.forEach(sideOutput -> this.getStorageEvents(sideOutput).setLastWrite(event, queueIndex));
+				}
+				
+				this.setDeviceModified(node);
+				sideOutputs.forEach(this::setDeviceModified);
+				
+				timer.toc();
+			}
+		}
+		
+		this.queues.forEach(CLCommandQueue::flush);
+	}
+	
+	/**
+	 * Fills on the device.
+	 */
+	@Override
+	public final synchronized <N extends Node<?>> N fill(final N node, final float value) {
+		final int n = node.getLength();
+		
+		if (0 < n) {
+			final cl_mem buffer = this.clBuffer(node);
+			
+			if (this.getQueueCount() == 0) {
+				withKernel(() -> this.getContext().getOrCreateKernel(getFillSource(), "fill"), kernel -> {
+					kernel.setArg(0, buffer);
+					kernel.setArg(1, value);
+					kernel.enqueueNDRange(n);
+					
+					return null;
+				});
+			} else {
+				final List<cl_event> waitList = new ArrayList<>();
+				
+				this.addDependencies(node, true, waitList);
+				
+				final int queueIndex = this.pickQueueIndex(node);
+				final cl_event event = withKernel(() -> this.getContext().getOrCreateKernel(getFillSource(), "fill"), kernel -> {
+					kernel.setArg(0, buffer);
+					kernel.setArg(1, value);
+					
+					return this.getQueue(queueIndex).enqueueNDRangeKernel(kernel, new long[] { n }, null, waitList);
+				});
+				
+				this.addEvent("fill", event, queueIndex);
+				this.getStorageEvents(node).setLastWrite(event, queueIndex);
 			}
 			
-			timer.toc();
+			this.setDeviceModified(node);
 		}
+		
+		return node;
 	}
 	
 	public final CLKernel getForwardKernel(final Node<?> node) {
+		final CLKernel result = this.getForwardKernels().get(node);
+		
+		if (result != null && !result.isReleased()) {
+			return result;
+		}
+		
+		this.getForwardKernels().remove(node);
+		
 		return node.accept(this.forwardGetter);
 	}
 	
+	/**
+	 * Forgets the kernels of this processor, but leaves them to the context,
+	 * since other processors using the same context may be using them.
+	 * <br>The values left on the device are copied back first.
+	 */
 	@Override
-	public final void reset() {
+	public final synchronized void reset() {
+		for (final Storage storage : this.deviceVersions.keySet()) {
+			if (this.isHostSynchronizer(storage.getHostSynchronizer())) {
+				storage.synchronizeHost();
+			}
+		}
+		
+		this.deviceVersions.clear();
+		this.releaseQueues();
+		
 		this.buffers.values().forEach(CL::clReleaseMemObject);
 		this.buffers.clear();
 		
-		this.getForwardKernels().values().forEach(CLKernel::release);
 		this.getForwardKernels().clear();
 	}
 	
+	/**
+	 * Copies back the values left on the device by the nodes of <code>schedule</code> and their arguments,
+	 * then releases their device buffers and forgets their kernels (kernels are shared by source through the context,
+	 * which releases them itself, see {@link CLContext#getOrCreateKernel(String, String)}).
+	 * <br>The buffers of the nodes that are also used by other schedules are created and uploaded again when needed.
+	 */
+	@Override
+	public final synchronized void releaseSchedule(final List<Node<?>> schedule) {
+		final Collection<Node<?>> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		for (final Node<?> node : schedule) {
+			nodes.add(node);
+			nodes.addAll(node.getArguments());
+			
+			if (node instanceof Fusion) {
+				nodes.addAll(((Fusion) node).getSteps());
+			}
+		}
+		
+		for (final Node<?> node : nodes) {
+			final Storage storage = node.getStorage();
+			
+			if (this.isHostSynchronizer(storage.getHostSynchronizer())) {
+				storage.synchronizeHost();
+			}
+		}
+		
+		this.synchronize();
+		
+		for (final Node<?> node : nodes) {
+			final Storage storage = node.getStorage();
+			
+			this.deviceVersions.remove(storage);
+			this.getForwardKernels().remove(node);
+			this.pointers.remove(node);
+			
+			if (storage.isAllocated()) {
+				this.release(storage.getRawFloatBuffer());
+			}
+			
+			if (node instanceof MatrixMultiplication) {
+				final Sparse rows = getSparseRows((MatrixMultiplication) node);
+				
+				if (rows != null) {
+					this.release(rows.getRowStartBuffer());
+					this.release(rows.getColumnIndexBuffer());
+					this.release(rows.getValueBuffer());
+				}
+			}
+		}
+	}
+	
+	private final void release(final Buffer buffer) {
+		final cl_mem clBuffer = this.buffers.remove(buffer);
+		
+		if (clBuffer != null) {
+			CL.clReleaseMemObject(clBuffer);
+		}
+		
+		this.pointers.remove(buffer);
+	}
+	
 	final void readBufferNow(final Node<?> node) {
 		this.getContext().getDefaultCommandQueue().enqueueReadBuffer(true,
 				this.clBuffer(node), Sizeof.cl_float * node.getLength(), this.pointer(node));
 	}
 	
-	final void readBuffer(final Node<?> node) {
-		this.getContext().getDefaultCommandQueue().enqueueReadBuffer(false,
-				this.clBuffer(node), Sizeof.cl_float * node.getLength(), this.pointer(node));
+	/**
+	 * Uploads the values of <code>node</code> if the device copy is missing or stale.
+	 */
+	final void writeBuffer(final Node<?> node) {
+		final Storage storage = node.getStorage();
+		
+		if (!storage.isHostSynchronized() && !this.isHostSynchronizer(storage.getHostSynchronizer())) {
+			storage.synchronizeHost();
+		}
+		
+		if (storage.isHostSynchronized()) {
+			final Long deviceVersion = this.deviceVersions.get(storage);
+			final long version = storage.getVersion();
+			
+			if (deviceVersion == null || deviceVersion != version) {
+				if (this.getQueueCount() == 0) {
+					this.getContext().getDefaultCommandQueue().enqueueWriteBuffer(false,
+							this.clBuffer(node), Sizeof.cl_float * node.getLength(), this.pointer(node));
+				} else {
+					final List<cl_event> waitList = new ArrayList<>();
+					
+					this.addDependencies(node, true, waitList);
+					
+					final cl_event event = this.getTransferQueue().enqueueWriteBuffer(
+							this.clBuffer(node), Sizeof.cl_float * node.getLength(), this.pointer(node), waitList);
+					
+					this.addEvent("write", event, -1);
+					this.getStorageEvents(node).setLastWrite(event, -1);
+					this.setHostWaiting(node);
+				}
+				
+				this.deviceVersions.put(storage, version);
+			}
+		}
 	}
 	
-	final void writeBuffer(final Node<?> node) {
-		this.getContext().getDefaultCommandQueue().enqueueWriteBuffer(false,
-				this.clBuffer(node), Sizeof.cl_float * node.getLength(), this.pointer(node));
+	/**
+	 * Records that the device copy of <code>node</code> is more recent than the host values.
+	 */
+	final void setDeviceModified(final Node<?> node) {
+		final Storage storage = node.getStorage();
+		
+		this.deviceVersions.put(storage, storage.getVersion());
+		storage.setHostSynchronizer(this.new HostSynchronizer(node, true));
+	}
+	
+	/**
+	 * Makes the next host access to <code>node</code> wait for the pending commands using it.
+	 */
+	final void setHostWaiting(final Node<?> node) {
+		final Storage storage = node.getStorage();
+		
+		if (!this.isHostSynchronizer(storage.getHostSynchronizer())) {
+			storage.setHostSynchronizer(this.new HostSynchronizer(node, false));
+		}
+	}
+	
+	/**
+	 * Adds to <code>waitList</code> the event of the last command writing <code>node</code>,
+	 * and if <code>writing</code>, the events of the commands reading it since.
+	 */
+	final void addDependencies(final Node<?> node, final boolean writing, final List<cl_event> waitList) {
+		final StorageEvents events = this.storageEvents.get(node.getStorage());
+		
+		if (events != null) {
+			if (events.getLastWrite() != null && !waitList.contains(events.getLastWrite())) {
+				waitList.add(events.getLastWrite());
+			}
+			
+			if (writing) {
+				events.getReads().stream().filter(e -> !waitList.contains(e)).forEach(waitList::add);
+			}
+		}
 	}
 	
-	final Map<Node<?>, CLKernel> getForwardKernels() {
+	final StorageEvents getStorageEvents(final Node<?> node) {
+		return this.storageEvents.computeIfAbsent(node.getStorage(), __ -> new StorageEvents());
+	}
+	
+	/**
+	 * @param queueIndex -1 for the transfer queue
+	 */
+	final void addEvent(final Object key, final cl_event event, final int queueIndex) {
+		this.events.add(new Pair<>(key, event));
+		
+		if (0 <= queueIndex) {
+			this.queueLastEvents.set(queueIndex, event);
+		}
+	}
+	
+	/**
+	 * Keeps <code>node</code> on the queue of its first argument if nothing else has been enqueued there since
+	 * (so that chains stay on one queue), otherwise uses the next queue (so that independent branches are spread).
+	 */
+	final int pickQueueIndex(final Node<?> node) {
+		for (final Node<?> argument : node.getArguments()) {
+			final StorageEvents events = this.storageEvents.get(argument.getStorage());
+			
+			if (events != null && 0 <= events.getQueueIndex()
+					&& events.getLastWrite() == this.queueLastEvents.get(events.getQueueIndex())) {
+				return events.getQueueIndex();
+			}
+		}
+		
+		return this.nextQueueIndex++ % this.getQueueCount();
+	}
+	
+	/**
+	 * @param queueIndex in <code>[0 .. getQueueCount() - 1]</code>
+	 */
+	final CLCommandQueue getQueue(final int queueIndex) {
+		while (this.queues.size() <= this.getQueueCount()) {
+			this.queues.add(this.getContext().createCommandQueue(this.isProfiling() ? CL_QUEUE_PROFILING_ENABLE : 0L));
+			this.queueLastEvents.add(null);
+		}
+		
+		return this.queues.get(queueIndex);
+	}
+	
+	final CLCommandQueue getTransferQueue() {
+		return this.getQueue(this.getQueueCount());
+	}
+	
+	private final void releaseQueues() {
+		this.synchronize();
+		this.queues.forEach(CLCommandQueue::release);
+		this.queues.clear();
+		this.queueLastEvents.clear();
+	}
+	
+	final boolean isHostSynchronizer(final Runnable hostSynchronizer) {
+		return hostSynchronizer instanceof HostSynchronizer && ((HostSynchronizer) hostSynchronizer).getProcessor() == this;
+	}
+	
+	final ScheduleCache<CLKernel> getForwardKernels() {
 		return this.forwardKernels;
 	}
 	
 	final cl_mem clBuffer(final Node<?> node) {
-		return this.buffers.computeIfAbsent(node.getFloatBuffer(), __ -> getContext().createBuffer(
+		return this.buffers.computeIfAbsent(node.getStorage().getRawFloatBuffer(), __ -> getContext().createBuffer(
 				CL_MEM_READ_WRITE | CL_MEM_USE_HOST_PTR, Float.BYTES, node.getLength(),
 				this.pointer(node)));
 	}
 	
 	final Pointer pointer(final Node<?> node) {
-		return this.pointers.computeIfAbsent(node, __ -> Pointer.toBuffer(node.getFloatBuffer().position(0)));
+		return this.pointers.computeIfAbsent(node, __ -> Pointer.toBuffer(node.getStorage().getRawFloatBuffer().position(0)));
 	}
 	
 	final cl_mem clBuffer(final LongBuffer buffer) {
@@ -217,6 +779,9 @@ public final class CLProcessor implements NodeProcessor {
 	}
 	
 	/**
+	 * Sources only depend on node types, functions and sizes (not on node identities),
+	 * so that structurally identical nodes share their kernel (see {@link CLContext#getOrCreateKernel(String, String)}).
+	 * 
 	 * @author codistmonk (creation 2016-07-18)
 	 */
 	final class ForwardGetter implements NodeVisitor<CLKernel> {
@@ -229,7 +794,7 @@ public final class CLProcessor implements NodeProcessor {
 				final String functionName = node.getFunctionName();
 				final List<Object> forwardDefinition = Functions.getDefinition(functionName, 1);
 				final String expression = this.context.newSupplier(forwardDefinition);
-				final String kernelName = node.getClass().getSimpleName() + node.getId();
+				final String kernelName = node.getClass().getSimpleName();
 				String programSource = "";
 				
 				programSource += "__kernel void " + kernelName + "(";
@@ -240,7 +805,7 @@ public final class CLProcessor implements NodeProcessor {
 				programSource += "	result[gid] += " + expression + ";\n";
 				programSource += "}\n";
 				
-				return getContext().createAndBuildProgram(programSource).createKernel(kernelName);
+				return getContext().getOrCreateKernel(programSource, kernelName);
 			});
 		}
 		
@@ -256,7 +821,7 @@ public final class CLProcessor implements NodeProcessor {
 				final String functionName = node.getFunctionName();
 				final List<Object> forwardDefinition = Functions.getDefinition(functionName, 2);
 				final String expression = this.context.newSupplier(forwardDefinition);
-				final String kernelName = node.getClass().getSimpleName() + node.getId();
+				final String kernelName = node.getClass().getSimpleName();
 				String programSource = "";
 				
 				programSource += "__kernel void " + kernelName + "(";
@@ -271,7 +836,75 @@ public final class CLProcessor implements NodeProcessor {
 				programSource += "	}\n";
 				programSource += "}\n";
 				
-				return getContext().createAndBuildProgram(programSource).createKernel(kernelName);
+				return getContext().getOrCreateKernel(programSource, kernelName);
+			});
+		}
+		
+		@Override
+		public final CLKernel visit(final Fusion node) {
+			return getForwardKernels().computeIfAbsent(node, __ -> {
+				final List<Node<?>> steps = node.getSteps();
+				final int stepCount = steps.size();
+				final int[][] operands = node.getOperands();
+				final List<Node<?>> arguments = node.getArguments();
+				final int argumentCount = arguments.size();
+				final int l = node.getLength();
+				final int[] materializedIntermediates = node.getMaterializedIntermediates();
+				final String kernelName = node.getClass().getSimpleName();
+				String programSource = "";
+				
+				programSource += "__kernel void " + kernelName + "(";
+				
+				for (int i = 0; i < argumentCount; ++i) {
+					programSource += "__global float const * const argument" + i + ", ";
+				}
+				
+				programSource += "__global float * const result";
+				
+				for (final int s : materializedIntermediates) {
+					programSource += ", __global float * const step" + s;
+				}
+				
+				programSource += ") {\n";
+				programSource += "	int const gid = get_global_id(0);\n";
+				
+				for (int s = 0; s < stepCount; ++s) {
+					final Node<?> step = steps.get(s);
+					final int[] stepOperands = operands[s];
+					final List<Object> forwardDefinition = Functions.getDefinition(
+							Fusion.getFunctionName(step), stepOperands.length);
+					final String expression = this.context.newSupplier(forwardDefinition);
+					
+					programSource += "	float v" + s + ";\n";
+					programSource += "	{\n";
+					
+					for (int j = 0; j < stepOperands.length; ++j) {
+						final int operand = stepOperands[j];
+						final String operandSource;
+						
+						if (0 <= operand) {
+							operandSource = "v" + operand;
+						} else {
+							final int m = arguments.get(-1 - operand).getLength();
+							
+							operandSource = "argument" + (-1 - operand) + (m == l ? "[gid]" : "[gid % " + m + "]");
+						}
+						
+						programSource += "		float const " + (j == 0 ? "x" : "y") + " = " + operandSource + ";\n";
+					}
+					
+					programSource += "		v" + s + " = " + expression + ";\n";
+					programSource += "	}\n";
+				}
+				
+				for (final int s : materializedIntermediates) {
+					programSource += "	step" + s + "[gid] = v" + s + ";\n";
+				}
+				
+				programSource += "	result[gid] += v" + (stepCount - 1) + ";\n";
+				programSource += "}\n";
+				
+				return getContext().getOrCreateKernel(programSource, kernelName);
 			});
 		}
 		
@@ -296,7 +929,19 @@ public final class CLProcessor implements NodeProcessor {
 				final int rows = leftShape[0];
 				final int columns = rightShape[1];
 				final int stride = leftShape[1];
-				final String kernelName = node.getClass().getSimpleName() + node.getId();
+				final String kernelName = node.getClass().getSimpleName();
+				final Tiling tiling = getTiling(node);
+				
+				if (getSparseRows(node) != null) {
+					return getContext().getOrCreateKernel(getSparseMatrixMultiplicationSource(kernelName, rows, columns, stride,
+							transposeLeft, transposeRight, StructuredMatrix.of(left, transposeLeft) instanceof Sparse), kernelName);
+				}
+				
+				if (tiling != null) {
+					return getContext().getOrCreateKernel(CLMatrixMultiplications.getSource(
+							kernelName, rows, columns, stride, transposeLeft, transposeRight, tiling), kernelName);
+				}
+				
 				String programSource = "";
 				
 				programSource += "__kernel void " + kernelName + "(";
@@ -318,37 +963,289 @@ public final class CLProcessor implements NodeProcessor {
 				programSource += "	result[gid] += value;\n";
 				programSource += "}\n";
 				
-				return getContext().createAndBuildProgram(programSource).createKernel(kernelName);
+				return getContext().getOrCreateKernel(programSource, kernelName);
 			});
 		}
 		
 		@Override
-		public final CLKernel visit(final Computation node) {
+		public final CLKernel visit(final Reduction node) {
 			return getForwardKernels().computeIfAbsent(node, __ -> {
-				final String kernelName = node.getClass().getSimpleName() + node.getId();
+				final int[] full = node.getFullLengths();
+				final int[] blocks = node.getBlockLengths();
+				final int d = full.length;
+				final String kernelName = node.getClass().getSimpleName();
+				String programSource = "";
 				
-				final Deduction clCodeDeduction = Basics.build(new Deduction(node.getBoundForm(), node.getName() + "_to_CL"), new Runnable() {
+				programSource += "__kernel void " + kernelName + "(";
+				programSource += "__global float const * const argument, ";
+				programSource += "__global float * const result) {\n";
+				programSource += "	int const gid = get_global_id(0);\n";
+				
+				if (node.isTransposed()) {
+					// one work item per element of the full side, reading the element of its block
+					programSource += "	int tmp = gid;\n";
+					programSource += "	int reducedIndex = 0;\n";
+					
+					for (int i = d - 1, w = 1; 0 <= i; --i) {
+						programSource += "	reducedIndex += ((tmp % " + full[i] + ") / " + blocks[i] + ") * " + w + ";\n";
+						programSource += "	tmp /= " + full[i] + ";\n";
+						w *= full[i] / blocks[i];
+					}
 					
-					@Override
-					public final void run() {
-						final Object boundForm = proposition(-1);
-						final Object valuesExpression = left(middle(right(boundForm)));
+					programSource += "	result[gid] += argument[reducedIndex];\n";
+				} else {
+					// one work item per element of the reduced side, summing its block
+					programSource += "	float value = 0.0F;\n";
+					programSource += "	for (int b = 0; b < " + product(blocks) + "; ++b) {\n";
+					programSource += "		int tmp = gid;\n";
+					programSource += "		int tmpB = b;\n";
+					programSource += "		int fullIndex = 0;\n";
+					
+					for (int i = d - 1, w = 1; 0 <= i; --i) {
+						final int reduced = full[i] / blocks[i];
 						
-						Stack.bind("identity", $("to_CL", valuesExpression));
-						ToCLCode.computeToCL(proposition(-1));
+						programSource += "		fullIndex += ((tmp % " + reduced + ") * " + blocks[i] + " + tmpB % " + blocks[i] + ") * " + w + ";\n";
+						programSource += "		tmp /= " + reduced + ";\n";
+						programSource += "		tmpB /= " + blocks[i] + ";\n";
+						w *= full[i];
 					}
 					
-				}, new Simple(1));
+					programSource += "		value += argument[fullIndex];\n";
+					programSource += "	}\n";
+					programSource += "	result[gid] += value;\n";
+				}
+				
+				programSource += "}\n";
+				
+				return getContext().getOrCreateKernel(programSource, kernelName);
+			});
+		}
+		
+		@Override
+		public final CLKernel visit(final Gathering node) {
+			return getForwardKernels().computeIfAbsent(node, __ -> {
+				final int n = node.getIndices().getLength();
+				final int vectorCount = node.getVectorCount();
+				final int indicesStride = node.getIndicesStride();
+				final int vectorsStride = node.getVectorsStride();
+				final String kernelName = node.getClass().getSimpleName();
+				String programSource = "";
+				
+				programSource += "int offset(float const index, int const chunk) {\n";
+				programSource += "	float const shifted = index + " + vectorCount + " * chunk;\n";
+				programSource += "	int const result = (int) shifted;\n";
+				programSource += "	return result == shifted && 0 <= result && result < " + vectorsStride + " ? result : -1;\n";
+				programSource += "}\n";
+				programSource += "__kernel void " + kernelName + "(";
+				programSource += "__global float const * const argument, ";
+				programSource += "__global float const * const indices, ";
+				programSource += "__global float * const result) {\n";
+				programSource += "	int const gid = get_global_id(0);\n";
+				
+				if (node.isTransposed()) {
+					// one work item per (row, chunk), so that no two work items write the same element
+					programSource += "	int const r = gid / " + node.getIndicesCount() + ";\n";
+					programSource += "	int const i = gid % " + node.getIndicesCount() + ";\n";
+					programSource += "	for (int j = i * " + indicesStride + "; j < (i + 1) * " + indicesStride + "; ++j) {\n";
+					programSource += "		int const o = offset(indices[j], i);\n";
+					programSource += "		if (0 <= o) {\n";
+					programSource += "			result[r * " + vectorsStride + " + o] += argument[r * " + n + " + j];\n";
+					programSource += "		}\n";
+					programSource += "	}\n";
+				} else {
+					programSource += "	int const r = gid / " + n + ";\n";
+					programSource += "	int const j = gid % " + n + ";\n";
+					programSource += "	int const o = offset(indices[j], j / " + indicesStride + ");\n";
+					programSource += "	if (0 <= o) {\n";
+					programSource += "		result[gid] += argument[r * " + vectorsStride + " + o];\n";
+					programSource += "	}\n";
+				}
+				
+				programSource += "}\n";
+				
+				return getContext().getOrCreateKernel(programSource, kernelName);
+			});
+		}
+		
+		@Override
+		public final CLKernel visit(final Convolution node) {
+			return getForwardKernels().computeIfAbsent(node, __ -> {
+				final int inputChannels = node.getInputChannels();
+				final int inputHeight = node.getInputHeight();
+				final int inputWidth = node.getInputWidth();
+				final int outputChannels = node.getOutputChannels();
+				final int outputHeight = node.getOutputHeight();
+				final int outputWidth = node.getOutputWidth();
+				final int kernelHeight = node.getKernelHeight();
+				final int kernelWidth = node.getKernelWidth();
+				final int top = node.getPatchTop();
+				final int left = node.getPatchLeft();
+				final int verticalStride = node.getVerticalStride();
+				final int horizontalStride = node.getHorizontalStride();
+				final String kernelName = node.getClass().getSimpleName();
+				String programSource = "";
+				
+				programSource += "__kernel void " + kernelName + "(";
+				programSource += "__global float const * const left, ";
+				programSource += "__global float const * const right, ";
+				programSource += "__global float * const result) {\n";
+				programSource += "	int const gid = get_global_id(0);\n";
+				programSource += "	float value = 0.0F;\n";
+				
+				switch (node.getOperation()) {
+				case CONVOLUTION:
+					// one work item per output element
+					programSource += "	int const ox = gid % " + outputWidth + ";\n";
+					programSource += "	int const oy = (gid / " + outputWidth + ") % " + outputHeight + ";\n";
+					programSource += "	int const o = (gid / " + (outputWidth * outputHeight) + ") % " + outputChannels + ";\n";
+					programSource += "	int const n = gid / " + (outputWidth * outputHeight * outputChannels) + ";\n";
+					programSource += "	for (int c = 0; c < " + inputChannels + "; ++c) {\n";
+					programSource += "		for (int i = 0; i < " + kernelHeight + "; ++i) {\n";
+					programSource += "			int const y = " + top + " + oy * " + verticalStride + " + i;\n";
+					programSource += "			for (int j = 0; j < " + kernelWidth + "; ++j) {\n";
+					programSource += "				int const x = " + left + " + ox * " + horizontalStride + " + j;\n";
+					programSource += "				if (0 <= y && y < " + inputHeight + " && 0 <= x && x < " + inputWidth + ") {\n";
+					programSource += "					value += right[((o * " + inputChannels + " + c) * " + kernelHeight + " + i) * " + kernelWidth + " + j]";
+					programSource += " * left[((n * " + inputChannels + " + c) * " + inputHeight + " + y) * " + inputWidth + " + x];\n";
+					programSource += "				}\n";
+					programSource += "			}\n";
+					programSource += "		}\n";
+					programSource += "	}\n";
+					break;
+				case INPUTS_DIFFS:
+					// one work item per input element, gathering from the outputs whose patches contain it
+					programSource += "	int const x = gid % " + inputWidth + ";\n";
+					programSource += "	int const y = (gid / " + inputWidth + ") % " + inputHeight + ";\n";
+					programSource += "	int const c = (gid / " + (inputWidth * inputHeight) + ") % " + inputChannels + ";\n";
+					programSource += "	int const n = gid / " + (inputWidth * inputHeight * inputChannels) + ";\n";
+					programSource += "	for (int i = 0; i < " + kernelHeight + "; ++i) {\n";
+					programSource += "		int const dy = y - " + top + " - i;\n";
+					programSource += "		int const oy = dy / " + verticalStride + ";\n";
+					programSource += "		if (dy < 0 || dy % " + verticalStride + " != 0 || " + outputHeight + " <= oy) continue;\n";
+					programSource += "		for (int j = 0; j < " + kernelWidth + "; ++j) {\n";
+					programSource += "			int const dx = x - " + left + " - j;\n";
+					programSource += "			int const ox = dx / " + horizontalStride + ";\n";
+					programSource += "			if (dx < 0 || dx % " + horizontalStride + " != 0 || " + outputWidth + " <= ox) continue;\n";
+					programSource += "			for (int o = 0; o < " + outputChannels + "; ++o) {\n";
+					programSource += "				value += left[((n * " + outputChannels + " + o) * " + outputHeight + " + oy) * " + outputWidth + " + ox]";
+					programSource += " * right[((o * " + inputChannels + " + c) * " + kernelHeight + " + i) * " + kernelWidth + " + j];\n";
+					programSource += "			}\n";
+					programSource += "		}\n";
+					programSource += "	}\n";
+					break;
+				case KERNELS_DIFFS:
+					// one work item per kernel element, summing over inputs and output positions
+					programSource += "	int const j = gid % " + kernelWidth + ";\n";
+					programSource += "	int const i = (gid / " + kernelWidth + ") % " + kernelHeight + ";\n";
+					programSource += "	int const c = (gid / " + (kernelWidth * kernelHeight) + ") % " + inputChannels + ";\n";
+					programSource += "	int const o = gid / " + (kernelWidth * kernelHeight * inputChannels) + ";\n";
+					programSource += "	for (int n = 0; n < " + node.getInputCount() + "; ++n) {\n";
+					programSource += "		for (int oy = 0; oy < " + outputHeight + "; ++oy) {\n";
+					programSource += "			int const y = " + top + " + oy * " + verticalStride + " + i;\n";
+					programSource += "			if (y < 0 || " + inputHeight + " <= y) continue;\n";
+					programSource += "			for (int ox = 0; ox < " + outputWidth + "; ++ox) {\n";
+					programSource += "				int const x = " + left + " + ox * " + horizontalStride + " + j;\n";
+					programSource += "				if (x < 0 || " + inputWidth + " <= x) continue;\n";
+					programSource += "				value += right[((n * " + outputChannels + " + o) * " + outputHeight + " + oy) * " + outputWidth + " + ox]";
+					programSource += " * left[((n * " + inputChannels + " + c) * " + inputHeight + " + y) * " + inputWidth + " + x];\n";
+					programSource += "			}\n";
+					programSource += "		}\n";
+					programSource += "	}\n";
+					break;
+				}
+				
+				programSource += "	result[gid] += value;\n";
+				programSource += "}\n";
+				
+				return getContext().getOrCreateKernel(programSource, kernelName);
+			});
+		}
+		
+		@Override
+		public final CLKernel visit(final Pooling node) {
+			return getForwardKernels().computeIfAbsent(node, __ -> {
+				final GridSampling grid = node.getGrid();
+				final int inputHeight = grid.getInputHeight();
+				final int inputWidth = grid.getInputWidth();
+				final int outputHeight = grid.getOutputHeight();
+				final int outputWidth = grid.getOutputWidth();
+				final int channelsSize = grid.getInputChannels() * outputHeight * outputWidth;
+				final int patchHeight = node.getSampling().getPatchHeight();
+				final int patchWidth = node.getSampling().getPatchWidth();
+				final int top = node.getPatchTop();
+				final int left = node.getPatchLeft();
+				final int verticalStride = grid.getStrides()[GridSampling.VERTICAL_STRIDE];
+				final int horizontalStride = grid.getStrides()[GridSampling.HORIZONTAL_STRIDE];
+				final String kernelName = node.getClass().getSimpleName();
+				String programSource = "";
+				
+				// one work item per output element, with the argmax as a side output
+				programSource += "__kernel void " + kernelName + "(";
+				programSource += "__global float const * const inputs, ";
+				programSource += "__global float * const result, ";
+				programSource += "__global float * const indices) {\n";
+				programSource += "	int const gid = get_global_id(0);\n";
+				programSource += "	int const ox = gid % " + outputWidth + ";\n";
+				programSource += "	int const oy = (gid / " + outputWidth + ") % " + outputHeight + ";\n";
+				programSource += "	int const c = (gid / " + (outputWidth * outputHeight) + ") % " + grid.getInputChannels() + ";\n";
+				programSource += "	int const n = gid / " + channelsSize + ";\n";
+				programSource += "	float max = -INFINITY;\n";
+				programSource += "	float argmax = " + NaI + "F;\n";
+				programSource += "	for (int i = 0; i < " + patchHeight + "; ++i) {\n";
+				programSource += "		int const y = " + top + " + oy * " + verticalStride + " + i;\n";
+				programSource += "		for (int j = 0; j < " + patchWidth + "; ++j) {\n";
+				programSource += "			int const x = " + left + " + ox * " + horizontalStride + " + j;\n";
+				programSource += "			if (0 <= y && y < " + inputHeight + " && 0 <= x && x < " + inputWidth + ") {\n";
+				programSource += "				int const index = (c * " + inputHeight + " + y) * " + inputWidth + " + x;\n";
+				programSource += "				float const value = inputs[n * " + grid.getInputSize() + " + index];\n";
+				programSource += "				if (max < value) {\n";
+				programSource += "					max = value;\n";
+				programSource += "					argmax = index;\n";
+				programSource += "				}\n";
+				programSource += "			} else if (max < 0.0F) {\n";
+				programSource += "				max = 0.0F;\n";
+				programSource += "				argmax = " + NaI + "F;\n";
+				programSource += "			}\n";
+				programSource += "		}\n";
+				programSource += "	}\n";
+				programSource += "	result[gid] += max;\n";
+				programSource += "	indices[gid] = argmax;\n";
+				programSource += "}\n";
+				
+				return getContext().getOrCreateKernel(programSource, kernelName);
+			});
+		}
+		
+		@Override
+		public final CLKernel visit(final Computation node) {
+			return getForwardKernels().computeIfAbsent(node, __ -> {
+				final String kernelName = node.getClass().getSimpleName();
+				
+				final String body = ComputationCache.get(node, "cl", () -> {
+					final Deduction clCodeDeduction = Basics.build(new Deduction(node.getBoundForm(), node.getName() + "_to_CL"), new Runnable() {
+						
+						@Override
+						public final void run() {
+							final Object boundForm = proposition(-1);
+							final Object valuesExpression = left(middle(right(boundForm)));
+							
+							Stack.bind("identity", $("to_CL", valuesExpression));
+							ToCLCode.computeToCL(proposition(-1));
+						}
+						
+					}, new Simple(1));
+					
+					return deepJoin("", right(clCodeDeduction.getProposition(clCodeDeduction.getPropositionName(-1))));
+				});
 				
 				String programSource = "";
 				
 				programSource += "__kernel void " + kernelName + "(";
 				programSource += "__global float * const result) {\n";
-				programSource += deepJoin("",
-						right(clCodeDeduction.getProposition(clCodeDeduction.getPropositionName(-1))));
+				programSource += body;
 				programSource += "}\n";
 				
-				return getContext().createAndBuildProgram(programSource).createKernel(kernelName);
+				return getContext().getOrCreateKernel(programSource, kernelName);
 			});
 		}
 		
@@ -372,6 +1269,27 @@ public final class CLProcessor implements NodeProcessor {
 			
 			result.setArg(n, clBuffer(node));
 			
+			final List<Node<?>> sideOutputs = node.accept(sideOutputsGetter);
+			final int m = sideOutputs.size();
+			
+			for (int i = 0; i < m; ++i) {
+				result.setArg(n + 1 + i, clBuffer(sideOutputs.get(i)));
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public final CLKernel visit(final MatrixMultiplication node) {
+			final CLKernel result = this.visit((Node<?>) node);
+			final Sparse rows = getSparseRows(node);
+			
+			if (rows != null) {
+				result.setArg(3, clBuffer(rows.getRowStartBuffer()));
+				result.setArg(4, clBuffer(rows.getColumnIndexBuffer()));
+				result.setArg(5, clBuffer(rows.getValueBuffer()));
+			}
+			
 			return result;
 		}
 		
@@ -379,6 +1297,135 @@ public final class CLProcessor implements NodeProcessor {
 		
 	}
 	
+	/**
+	 * Provides the global and local (<code>null</code> to let the implementation choose) work sizes of a kernel.
+	 * 
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	final class WorkSizesGetter implements NodeVisitor<long[][]> {
+		
+		@Override
+		public final long[][] visit(final Node<?> node) {
+			return new long[][] { { node.getLength() }, null };
+		}
+		
+		@Override
+		public final long[][] visit(final Gathering node) {
+			return new long[][] { { node.isTransposed() ? node.getRowCount() * node.getIndicesCount() : node.getLength() }, null };
+		}
+		
+		@Override
+		public final long[][] visit(final MatrixMultiplication node) {
+			final Tiling tiling = getTiling(node);
+			
+			if (tiling == null || getSparseRows(node) != null) {
+				return this.visit((Node<?>) node);
+			}
+			
+			final int[] shape = node.getLengths(new int[2]);
+			
+			return new long[][] { tiling.getGlobalWorkSize(shape[0], shape[1]), tiling.getLocalWorkSize() };
+		}
+		
+		private static final long serialVersionUID = 5016374358402577465L;
+		
+	}
+	
+	/**
+	 * Copies the device values of a node back to the host.
+	 * 
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	final class HostSynchronizer implements Runnable {
+		
+		private final Node<?> node;
+		
+		private final boolean download;
+		
+		/**
+		 * @param download <code>false</code> to only wait for the pending commands using <code>node</code>
+		 */
+		HostSynchronizer(final Node<?> node, final boolean download) {
+			this.node = node;
+			this.download = download;
+		}
+		
+		final CLProcessor getProcessor() {
+			return CLProcessor.this;
+		}
+		
+		@Override
+		public final void run() {
+			synchronized (CLProcessor.this) {
+				if (getQueueCount() == 0) {
+					if (this.download) {
+						readBufferNow(this.node);
+					}
+				} else {
+					final StorageEvents events = storageEvents.remove(this.node.getStorage());
+					final List<cl_event> waitList = events == null ? Collections.emptyList() : events.getAll();
+					
+					if (this.download) {
+						getTransferQueue().enqueueReadBuffer(clBuffer(this.node),
+								Sizeof.cl_float * this.node.getLength(), pointer(this.node), waitList);
+					}
+					
+					CLCommandQueue.waitFor(waitList);
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Events of the commands using a storage.
+	 * 
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	static final class StorageEvents {
+		
+		private final List<cl_event> reads = new ArrayList<>();
+		
+		private cl_event lastWrite;
+		
+		private int queueIndex = -1;
+		
+		/**
+		 * @return The events of the commands reading the storage since {@link #getLastWrite()}
+		 */
+		public final List<cl_event> getReads() {
+			return this.reads;
+		}
+		
+		public final cl_event getLastWrite() {
+			return this.lastWrite;
+		}
+		
+		/**
+		 * @return The index of the queue of {@link #getLastWrite()}, or -1 for the transfer queue
+		 */
+		public final int getQueueIndex() {
+			return this.queueIndex;
+		}
+		
+		public final void setLastWrite(final cl_event lastWrite, final int queueIndex) {
+			this.lastWrite = lastWrite;
+			this.queueIndex = queueIndex;
+			this.reads.clear();
+		}
+		
+		public final List<cl_event> getAll() {
+			final List<cl_event> result = new ArrayList<>(this.reads);
+			
+			if (this.lastWrite != null) {
+				result.add(this.lastWrite);
+			}
+			
+			return result;
+		}
+		
+	}
+	
 	/**
 	 * @author codistmonk (creation 2016-07-17)
 	 */
@@ -396,10 +1443,32 @@ public final class CLProcessor implements NodeProcessor {
 	
 	public static final CLProcessor INSTANCE = new CLProcessor();
 	
+	/**
+	 * Beyond this number of events, {@link #forward(Iterable)} starts with {@link #synchronize()}.
+	 */
+	public static final int MAXIMUM_PENDING_EVENTS = 4096;
+	
 	static {
         setExceptionsEnabled(true);
 	}
 	
+	/**
+	 * Kernels are shared by the processors using the same context, and their arguments are captured when they are enqueued,
+	 * so <code>action</code> sets the arguments and enqueues while holding the lock of the kernel,
+	 * which {@link CLKernel#release()} also takes; a kernel released in the meantime (eg evicted by the context) is got again.
+	 */
+	static final <T> T withKernel(final Supplier<CLKernel> kernelGetter, final Function<CLKernel, T> action) {
+		while (true) {
+			final CLKernel kernel = kernelGetter.get();
+			
+			synchronized (kernel) {
+				if (!kernel.isReleased()) {
+					return action.apply(kernel);
+				}
+			}
+		}
+	}
+	
 	static final String getAddressSource() {
 		return "__kernel void "
 				+ "getAddress(__global void const * const a,"
@@ -417,6 +1486,14 @@ public final class CLProcessor implements NodeProcessor {
 		return getFillSource(1F, "1");
 	}
 	
+	static final String getFillSource() {
+		return "__kernel void "
+				+ "fill(__global float * const a, float const x)\n"
+				+ "{\n"
+				+ "    a[get_global_id(0)] = x;\n"
+				+ "}";
+	}
+	
 	static final String getFillSource(final float x, final String nameSuffix) {
 		return "__kernel void "
 				+ "fill" + nameSuffix + "(__global float * const a)\n"
@@ -0,0 +1,277 @@
+package autodiff.computing;
+
+import autodiff.computing.DefaultProcessor.JavaCodeContext;
+import autodiff.reasoning.deductions.Sequences;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Compiles the programs derived by {@link autodiff.reasoning.deductions.ToJavaCode} into JVM classes,
+ * so that {@link autodiff.nodes.Computation} nodes run as plain loops over the named buffers
+ * instead of being pattern-matched by {@link JavaCodeContext.Interpreter} at every step.
+ * <br>Each buffer name is resolved once into a local variable, <code>repeat(n, counter, index, body)</code> becomes a
+ * <code>for</code> loop whose counter still lives in its buffer, and arithmetic is done on unboxed floats
+ * in the same order as the interpreter, so both give identical results.
+ * <br>{@link #compile(Object)} returns <code>null</code> when a program contains a construct that is not translated
+ * or when compilation is not available (see {@link RuntimeCompiler}), in which case callers should interpret it.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class CompiledComputations {
+	
+	private CompiledComputations() {
+		throw new IllegalInstantiationException();
+	}
+	
+	/**
+	 * @return A new compiled computation, or <code>null</code>
+	 */
+	public static final CompiledComputation compile(final Object program) {
+		if (!RuntimeCompiler.isAvailable()) {
+			return null;
+		}
+		
+		final Translator translator = new Translator();
+		
+		try {
+			translator.statement(program, "\t\t");
+		} catch (final RuntimeException exception) {
+			return null;
+		}
+		
+		final String className = RuntimeCompiler.newClassName("CompiledComputation");
+		String source = "";
+		
+		source += "public final class " + className + " implements " + CompiledComputation.class.getCanonicalName() + " {\n";
+		source += "	@Override\n";
+		source += "	public final void run(final " + JavaCodeContext.class.getCanonicalName() + " context) {\n";
+		
+		for (final Map.Entry<String, String> entry : translator.getBuffers().entrySet()) {
+			source += "		java.nio.FloatBuffer " + entry.getValue() + " = context.getBuffer(" + entry.getKey() + ");\n";
+		}
+		
+		source += translator.getCode();
+		source += "	}\n";
+		source += "	private static final void addTo(final java.nio.FloatBuffer target, final int index, final float value) {\n";
+		source += "		target.put(index, target.get(index) + value);\n";
+		source += "	}\n";
+		source += "}\n";
+		
+		return RuntimeCompiler.newInstance(CompiledComputation.class, className, source);
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static abstract interface CompiledComputation {
+		
+		/**
+		 * Runs the compiled program against the buffers of <code>context</code>,
+		 * like {@link JavaCodeContext#run(Object)} would run the original program.
+		 */
+		public abstract void run(JavaCodeContext context);
+		
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	static final class Translator {
+		
+		private final Map<String, String> buffers = new LinkedHashMap<>();
+		
+		private final StringBuilder code = new StringBuilder();
+		
+		private int lastLocalId;
+		
+		/**
+		 * @return Buffer names as Java string literals, associated with their local variable names
+		 */
+		public final Map<String, String> getBuffers() {
+			return this.buffers;
+		}
+		
+		public final String getCode() {
+			return this.code.toString();
+		}
+		
+		/**
+		 * @throws IllegalArgumentException If <code>program</code> contains an unsupported construct
+		 */
+		public final void statement(final Object program, final String indent) {
+			final List<?> list = list(program);
+			
+			if (isCall(list)) {
+				final String functionName = list.get(0).toString();
+				final List<Object> arguments = Sequences.flattenSequence(",", list.get(2));
+				
+				if ("repeat".equals(functionName) && 4 == arguments.size()) {
+					final List<?> body = list(arguments.get(3));
+					
+					if (body.size() != 3 || !"()->{".equals(body.get(0)) || !"}".equals(body.get(2))) {
+						throw new IllegalArgumentException();
+					}
+					
+					final String n = this.newLocal("n");
+					final String counter = this.buffer(arguments.get(1));
+					final String index = this.newLocal("i");
+					
+					this.line(indent, "{");
+					this.line(indent + "\t", "final int " + n + " = (int) " + this.expression(arguments.get(0)) + ";");
+					this.line(indent + "\t", "final int " + index + " = (int) " + this.expression(arguments.get(2)) + ";");
+					this.line(indent + "\t", "for (" + counter + ".put(" + index + ", 0F); " + counter + ".get(" + index + ") < " + n + "; "
+							+ "addTo(" + counter + ", " + index + ", 1F)) {");
+					this.statement(body.get(1), indent + "\t\t");
+					this.line(indent + "\t", "}");
+					this.line(indent, "}");
+					
+					return;
+				}
+				
+				if ("allocate".equals(functionName) && 2 == arguments.size()) {
+					final String name = name(arguments.get(0));
+					final String buffer = this.buffer(arguments.get(0));
+					
+					this.line(indent, "context.allocate(" + name + ", (int) " + this.expression(arguments.get(1)) + ");");
+					this.line(indent, buffer + " = context.getBuffer(" + name + ");");
+					
+					return;
+				}
+				
+				if ("write".equals(functionName) && 3 == arguments.size()) {
+					this.line(indent, this.buffer(arguments.get(0)) + ".put((int) " + this.expression(arguments.get(1))
+							+ ", " + this.expression(arguments.get(2)) + ");");
+					
+					return;
+				}
+				
+				if ("addTo".equals(functionName) && 3 == arguments.size()) {
+					this.line(indent, "addTo(" + this.buffer(arguments.get(0)) + ", (int) " + this.expression(arguments.get(1))
+							+ ", " + this.expression(arguments.get(2)) + ");");
+					
+					return;
+				}
+				
+				if ("addTo".equals(functionName) && 4 == arguments.size()) {
+					this.line(indent, "addTo(" + this.buffer(arguments.get(0)) + ", (int) " + this.expression(arguments.get(1))
+							+ ", " + this.buffer(arguments.get(2)) + ".get((int) " + this.expression(arguments.get(3)) + "));");
+					
+					return;
+				}
+				
+				throw new IllegalArgumentException("Unsupported: " + functionName);
+			}
+			
+			if (isTernary(list)) {
+				this.line(indent, "if (" + this.expression(list.get(0)) + ") {");
+				this.statement(list.get(2), indent + "\t");
+				this.line(indent, "} else {");
+				this.statement(list.get(4), indent + "\t");
+				this.line(indent, "}");
+				
+				return;
+			}
+			
+			for (final Object element : list) {
+				if (!";".equals(element)) {
+					this.statement(element, indent);
+				}
+			}
+		}
+		
+		/**
+		 * @return A Java expression of type <code>float</code> (or <code>boolean</code> for comparisons)
+		 * @throws IllegalArgumentException If <code>expression</code> contains an unsupported construct
+		 */
+		public final String expression(final Object expression) {
+			if (expression instanceof Number) {
+				return CompiledFunctions.toJava(((Number) expression).floatValue());
+			}
+			
+			final List<?> list = list(expression);
+			
+			if (isCall(list)) {
+				final String functionName = list.get(0).toString();
+				final List<Object> arguments = Sequences.flattenSequence(",", list.get(2));
+				
+				if ("read".equals(functionName) && 2 == arguments.size()) {
+					return this.buffer(arguments.get(0)) + ".get((int) " + this.expression(arguments.get(1)) + ")";
+				}
+				
+				if ("floor".equals(functionName) && 2 == arguments.size()) {
+					return "((float) Math.floor(" + this.buffer(arguments.get(0)) + ".get((int) " + this.expression(arguments.get(1)) + ")))";
+				}
+				
+				if ("floor".equals(functionName) && 1 == arguments.size()) {
+					return "((float) Math.floor(" + this.expression(arguments.get(0)) + "))";
+				}
+				
+				throw new IllegalArgumentException("Unsupported: " + functionName);
+			}
+			
+			if (isTernary(list)) {
+				return "(" + this.expression(list.get(0)) + " ? " + this.expression(list.get(2)) + " : " + this.expression(list.get(4)) + ")";
+			}
+			
+			if (3 == list.size() && "(".equals(list.get(0)) && ")".equals(list.get(2))) {
+				return this.expression(list.get(1));
+			}
+			
+			if (3 == list.size() && BINARY_OPERATORS.contains(list.get(1))) {
+				return "(" + this.expression(list.get(0)) + " " + list.get(1) + " " + this.expression(list.get(2)) + ")";
+			}
+			
+			throw new IllegalArgumentException("Unsupported: " + expression);
+		}
+		
+		private final String buffer(final Object nameExpression) {
+			return this.buffers.computeIfAbsent(name(nameExpression), __ -> this.newLocal("buffer"));
+		}
+		
+		private final String newLocal(final String prefix) {
+			return prefix + (++this.lastLocalId);
+		}
+		
+		private final void line(final String indent, final String line) {
+			this.code.append(indent).append(line).append('\n');
+		}
+		
+		private static final List<String> BINARY_OPERATORS = Arrays.asList("+", "-", "*", "/", "%", "<", ">", "==");
+		
+		/**
+		 * @return A Java string literal
+		 */
+		private static final String name(final Object nameExpression) {
+			final List<?> list = list(nameExpression);
+			
+			if (3 != list.size() || !"\"".equals(list.get(0)) || !"\"".equals(list.get(2))) {
+				throw new IllegalArgumentException("Unsupported buffer name: " + nameExpression);
+			}
+			
+			return "\"" + list.get(1).toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+		}
+		
+		private static final boolean isCall(final List<?> list) {
+			return 4 == list.size() && list.get(0) instanceof String && "(".equals(list.get(1)) && ")".equals(list.get(3));
+		}
+		
+		private static final boolean isTernary(final List<?> list) {
+			return 5 == list.size() && "?".equals(list.get(1)) && ":".equals(list.get(3));
+		}
+		
+		private static final List<?> list(final Object object) {
+			if (!(object instanceof List)) {
+				throw new IllegalArgumentException("Unsupported: " + object);
+			}
+			
+			return (List<?>) object;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,199 @@
+package autodiff.computing;
+
+import static java.util.Collections.synchronizedMap;
+
+import autodiff.computing.DefaultProcessor.Binary;
+import autodiff.computing.DefaultProcessor.Constant;
+import autodiff.computing.DefaultProcessor.Context;
+import autodiff.computing.DefaultProcessor.FloatSupplier;
+import autodiff.computing.DefaultProcessor.IfThenElse;
+import autodiff.computing.DefaultProcessor.Unary;
+import autodiff.computing.DefaultProcessor.Variable;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import multij.tools.IllegalInstantiationException;
+import multij.tools.Pair;
+
+/**
+ * Compiles {@link Functions} definitions into JVM classes whose loops read and write the buffers directly,
+ * so that the JIT sees monomorphic, inlinable code instead of a tree of {@link FloatSupplier}s.
+ * <br>The expression is derived from the supplier tree built by {@link Context#newSupplier(Object)},
+ * each operation being delegated to the static <code>forward</code> method of its supplier class,
+ * so compiled and interpreted results are identical.
+ * <br>Compiled functions are cached by function name and arity; {@link #get(String, int)} returns <code>null</code>
+ * when a function cannot be compiled (see {@link RuntimeCompiler}), in which case callers should interpret it.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class CompiledFunctions {
+	
+	private CompiledFunctions() {
+		throw new IllegalInstantiationException();
+	}
+	
+	private static final Map<String, Pair<List<Object>, CompiledFunction>> cache = synchronizedMap(new HashMap<>());
+	
+	/**
+	 * @return The compiled version of the current definition of <code>functionName</code> with <code>arity</code> variables,
+	 * or <code>null</code>
+	 */
+	public static final CompiledFunction get(final String functionName, final int arity) {
+		final List<Object> definition = Functions.getDefinition(functionName, arity);
+		
+		if (definition == null) {
+			return null;
+		}
+		
+		final String key = Functions.fName(functionName, arity);
+		Pair<List<Object>, CompiledFunction> result = cache.get(key);
+		
+		if (result == null || result.getFirst() != definition) {
+			result = new Pair<>(definition, compile(definition));
+			cache.put(key, result);
+		}
+		
+		return result.getSecond();
+	}
+	
+	/**
+	 * @return A new compiled function, or <code>null</code>
+	 */
+	public static final CompiledFunction compile(final List<Object> definition) {
+		if (!RuntimeCompiler.isAvailable()) {
+			return null;
+		}
+		
+		final String expression;
+		
+		try {
+			final Context context = new Context();
+			final FloatSupplier supplier = context.newSupplier(definition);
+			
+			expression = toJava(supplier, context.getInputs());
+		} catch (final RuntimeException exception) {
+			return null;
+		}
+		
+		final String className = RuntimeCompiler.newClassName("CompiledFunction");
+		String source = "";
+		
+		source += "public final class " + className + " implements " + CompiledFunction.class.getCanonicalName() + " {\n";
+		source += "	@Override\n";
+		source += "	public final float apply(final float x0, final float x1) {\n";
+		source += "		return " + expression + ";\n";
+		source += "	}\n";
+		source += "	@Override\n";
+		source += "	public final void map(final java.nio.FloatBuffer argument, final java.nio.FloatBuffer result, final int n) {\n";
+		source += "		final float x1 = 0F;\n";
+		source += "		for (int i = 0; i < n; ++i) {\n";
+		source += "			final float x0 = argument.get(i);\n";
+		source += "			result.put(i, result.get(i) + " + expression + ");\n";
+		source += "		}\n";
+		source += "	}\n";
+		source += "	@Override\n";
+		source += "	public final void zip(final java.nio.FloatBuffer left, final int m, final java.nio.FloatBuffer right, final int n,\n";
+		source += "			final java.nio.FloatBuffer result, final int l) {\n";
+		source += "		final int mm = Math.max(l, Math.max(m, n));\n";
+		source += "		if (m == mm && n == mm && l == mm) {\n";
+		source += "			for (int i = 0; i < mm; ++i) {\n";
+		source += "				final float x0 = left.get(i);\n";
+		source += "				final float x1 = right.get(i);\n";
+		source += "				result.put(i, result.get(i) + " + expression + ");\n";
+		source += "			}\n";
+		source += "		} else {\n";
+		source += "			for (int i = 0; i < mm; ++i) {\n";
+		source += "				final float x0 = left.get(i % m);\n";
+		source += "				final float x1 = right.get(i % n);\n";
+		source += "				final int k = i % l;\n";
+		source += "				result.put(k, result.get(k) + " + expression + ");\n";
+		source += "			}\n";
+		source += "		}\n";
+		source += "	}\n";
+		source += "}\n";
+		
+		return RuntimeCompiler.newInstance(CompiledFunction.class, className, source);
+	}
+	
+	/**
+	 * @return A Java expression computing <code>supplier</code>, whose inputs are named <code>x0</code>, <code>x1</code>...
+	 * @throws IllegalArgumentException If <code>supplier</code> contains an unknown kind of supplier
+	 */
+	public static final String toJava(final FloatSupplier supplier, final List<Variable> inputs) {
+		if (supplier instanceof Constant) {
+			return toJava(supplier.get());
+		}
+		
+		if (supplier instanceof Variable) {
+			final int index = inputs.indexOf(supplier);
+			
+			if (index < 0) {
+				throw new IllegalArgumentException("Unbound variable");
+			}
+			
+			return "x" + index;
+		}
+		
+		if (supplier instanceof IfThenElse) {
+			final IfThenElse ifThenElse = (IfThenElse) supplier;
+			
+			return "(" + toJava(ifThenElse.getCondition(), inputs) + " != 0F ? "
+					+ toJava(ifThenElse.getResultIfConditionNot0(), inputs) + " : "
+					+ toJava(ifThenElse.getResultElse(), inputs) + ")";
+		}
+		
+		if (supplier instanceof Unary) {
+			return forwardName(supplier) + "(" + toJava(((Unary) supplier).getArgument(), inputs) + ")";
+		}
+		
+		if (supplier instanceof Binary) {
+			final Binary binary = (Binary) supplier;
+			
+			return forwardName(supplier) + "(" + toJava(binary.getLeft(), inputs) + ", " + toJava(binary.getRight(), inputs) + ")";
+		}
+		
+		throw new IllegalArgumentException("Unsupported: " + supplier.getClass());
+	}
+	
+	/**
+	 * @return A Java expression of type <code>float</code> whose value is <code>value</code>
+	 */
+	public static final String toJava(final float value) {
+		return Float.isFinite(value) ? "(" + value + "F)" : "Float.intBitsToFloat(" + Float.floatToRawIntBits(value) + ")";
+	}
+	
+	private static final String forwardName(final FloatSupplier supplier) {
+		if (supplier.getClass().getEnclosingClass() != DefaultProcessor.class) {
+			throw new IllegalArgumentException("Unsupported: " + supplier.getClass());
+		}
+		
+		return supplier.getClass().getCanonicalName() + ".forward";
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static abstract interface CompiledFunction {
+		
+		/**
+		 * @param x1 Ignored by unary functions
+		 */
+		public abstract float apply(float x0, float x1);
+		
+		/**
+		 * Computes <code>result[i] += f(argument[i])</code> for <code>i</code> in <code>[0 .. n - 1]</code>.
+		 */
+		public abstract void map(FloatBuffer argument, FloatBuffer result, int n);
+		
+		/**
+		 * Computes <code>result[i % l] += f(left[i % m], right[i % n])</code>
+		 * for <code>i</code> in <code>[0 .. max(l, m, n) - 1]</code>.
+		 */
+		public abstract void zip(FloatBuffer left, int m, FloatBuffer right, int n, FloatBuffer result, int l);
+		
+	}
+	
+}
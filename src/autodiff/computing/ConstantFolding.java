@@ -0,0 +1,175 @@
+package autodiff.computing;
+
+import autodiff.nodes.Computation;
+import autodiff.nodes.CustomNode;
+import autodiff.nodes.Node;
+import autodiff.nodes.Storage;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The computation nodes of a forward schedule whose values only depend on constants, ie on
+ * {@link Computation} nodes without node bindings (eg {@link autodiff.nodes.NodesTools#range(int)} or replicators)
+ * and on data whose storage is declared constant (see {@link Storage#setConstant(boolean)}),
+ * never on parameters (nodes with diffs) nor on other inputs.
+ * <br>Processors evaluate them once, drop them from the schedule, and evaluate them again
+ * only after a constant storage has been written (see {@link Storage#getWriteCount()}),
+ * eg through {@link Node#set(int, float)}.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class ConstantFolding implements Serializable {
+	
+	private final List<Node<?>> nodes;
+	
+	private final Set<Node<?>> folded;
+	
+	private final List<Storage> sources;
+	
+	private final long[] writeCounts;
+	
+	private boolean evaluated;
+	
+	/**
+	 * @param schedule In evaluation order
+	 */
+	public ConstantFolding(final List<Node<?>> schedule) {
+		final Map<Storage, Boolean> constants = new IdentityHashMap<>();
+		final Set<Storage> sources = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		this.nodes = new ArrayList<>();
+		this.folded = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		for (final Node<?> node : schedule) {
+			if (node.isComputationNode() && isConstant(node, constants, sources)) {
+				this.nodes.add(node);
+				this.folded.add(node);
+			}
+		}
+		
+		this.sources = new ArrayList<>(sources);
+		this.writeCounts = new long[this.sources.size()];
+	}
+	
+	/**
+	 * @return The folded nodes, in evaluation order
+	 */
+	public final List<Node<?>> getNodes() {
+		return this.nodes;
+	}
+	
+	public final boolean isFolded(final Node<?> node) {
+		return this.folded.contains(node);
+	}
+	
+	/**
+	 * @return The constant storages read by the folded nodes
+	 */
+	public final List<Storage> getSources() {
+		return this.sources;
+	}
+	
+	/**
+	 * @return <code>true</code> if the folded nodes have not been evaluated since the last write to a source
+	 */
+	public final synchronized boolean isStale() {
+		if (!this.evaluated) {
+			return true;
+		}
+		
+		final int n = this.sources.size();
+		
+		for (int i = 0; i < n; ++i) {
+			if (this.writeCounts[i] != this.sources.get(i).getWriteCount()) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	public final synchronized void evaluate(final NodeProcessor processor) {
+		processor.zeroComputationNodes(this.getNodes());
+		processor.forward(this.getNodes());
+		
+		final int n = this.sources.size();
+		
+		for (int i = 0; i < n; ++i) {
+			this.writeCounts[i] = this.sources.get(i).getWriteCount();
+		}
+		
+		this.evaluated = true;
+	}
+	
+	private static final long serialVersionUID = 2309542733493669302L;
+	
+	/**
+	 * @return <code>true</code> if all the nodes writing the storage of <code>node</code> only depend on constants,
+	 * or if nothing writes it and it is declared constant
+	 */
+	private static final boolean isConstant(final Node<?> node, final Map<Storage, Boolean> constants, final Set<Storage> sources) {
+		final Storage storage = node.getStorage();
+		final Boolean known = constants.get(storage);
+		
+		if (known != null) {
+			return known;
+		}
+		
+		// a storage reached again while its writers are examined is read by one of them
+		constants.put(storage, false);
+		
+		boolean result = true;
+		boolean written = false;
+		
+		for (final Node<?> contributor : new ArrayList<>(storage.getContributors())) {
+			final Node<?> writer = contributor instanceof CustomNode ? ((CustomNode<?>) contributor).unfold() : contributor;
+			
+			if (writer.hasDiffs()) {
+				result = false;
+				break;
+			}
+			
+			if (writer.isComputationNode()) {
+				written = true;
+				
+				if (!isConstantWriter(writer, constants, sources)) {
+					result = false;
+					break;
+				}
+			}
+		}
+		
+		if (result && !written) {
+			result = storage.isConstant();
+			
+			if (result) {
+				sources.add(storage);
+			}
+		}
+		
+		constants.put(storage, result);
+		
+		return result;
+	}
+	
+	private static final boolean isConstantWriter(final Node<?> writer, final Map<Storage, Boolean> constants, final Set<Storage> sources) {
+		if (writer instanceof Computation && ((Computation) writer).getBindings().values().stream().anyMatch(Node.class::isInstance)) {
+			return false;
+		}
+		
+		for (final Node<?> argument : writer.getArguments()) {
+			if (!isConstant(argument, constants, sources)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+}
@@ -9,11 +9,21 @@ import static multij.rules.PatternPredicate.matchWith;
 import static java.lang.Math.*;
 import static multij.tools.Tools.*;
 
+import autodiff.computing.CompiledComputations.CompiledComputation;
+import autodiff.computing.CompiledFunctions.CompiledFunction;
+import autodiff.io.ComputationCache;
 import autodiff.nodes.Computation;
+import autodiff.nodes.Convolution;
+import autodiff.nodes.Fusion;
+import autodiff.nodes.Gathering;
 import autodiff.nodes.Mapping;
 import autodiff.nodes.MatrixMultiplication;
 import autodiff.nodes.Node;
 import autodiff.nodes.NodeVisitor;
+import autodiff.nodes.Pooling;
+import autodiff.nodes.Reduction;
+import autodiff.nodes.Storage;
+import autodiff.nodes.StructuredMatrix;
 import autodiff.nodes.Zipping;
 import autodiff.reasoning.deductions.Basics;
 import autodiff.reasoning.deductions.Sequences;
@@ -29,11 +39,18 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import multij.rules.Rules;
 import multij.rules.PatternPredicate;
@@ -45,32 +62,61 @@ import multij.tools.TicToc;
  */
 public final class DefaultProcessor implements NodeProcessor {
 	
-	private final Map<Object, TicToc> timers = new HashMap<>();
+	private final Map<Object, TicToc> timers = new ConcurrentHashMap<>();
 	
-	private final Map<Node<?>, Object> computationCodes = new HashMap<>();
+	private final ScheduleCache<Object> computationCodes = new ScheduleCache<>();
 	
-	private final Map<Node<?>, List<Node<?>>> forwards = new HashMap<>();
+	private final ScheduleCache<Pair<Object, CompiledComputation>> compiledComputations = new ScheduleCache<>();
 	
-	private final Map<Node<?>, List<Node<?>>> backwards = new HashMap<>();
+	private final ScheduleCache<List<Node<?>>> forwards = new ScheduleCache<>();
+	
+	private final ScheduleCache<List<Node<?>>> backwards = new ScheduleCache<>();
+	
+	private final ScheduleCache<ConstantFolding> constantFoldings = new ScheduleCache<>(Integer.MAX_VALUE);
 	
 	private final Forwarder forwarder = this.new Forwarder();
 	
+	private final Queue<Forwarder> spareForwarders = new ConcurrentLinkedQueue<>();
+	
+	private boolean parallel;
+	
+	private MemoryPlan memoryPlan;
+	
+	private boolean fusing;
+	
+	private boolean foldingConstants = true;
+	
+	private boolean compilingFunctions;
+	
+	private boolean compilingComputations = true;
+	
+	private boolean checkingComputations;
+	
+	public DefaultProcessor() {
+		// the constant foldings are unbounded, and evicted with the forward nodes they were folded out of
+		this.forwards.setEvictionListener((node, __) -> this.getConstantFoldings().remove(node));
+	}
+	
 	@Override
 	public final Map<Object, TicToc> getTimers() {
 		return this.timers;
 	}
 	
-	public final Map<Node<?>, Object> getComputationCodes() {
+	public final ScheduleCache<Object> getComputationCodes() {
 		return this.computationCodes;
 	}
 	
+	public final ScheduleCache<Pair<Object, CompiledComputation>> getCompiledComputations() {
+		return this.compiledComputations;
+	}
+	
 	@Override
-	public final Map<Node<?>, List<Node<?>>> getForwards() {
+	public final ScheduleCache<List<Node<?>>> getForwards() {
 		return this.forwards;
 	}
 	
 	@Override
-	public final Map<Node<?>, List<Node<?>>> getBackwards() {
+	public final ScheduleCache<List<Node<?>>> getBackwards() {
 		return this.backwards;
 	}
 	
@@ -79,10 +125,222 @@ public final class DefaultProcessor implements NodeProcessor {
 		return this.forwarder;
 	}
 	
+	@Override
+	public final ScheduleCache<ConstantFolding> getConstantFoldings() {
+		return this.constantFoldings;
+	}
+	
+	/**
+	 * Sets the capacity of the caches of this processor (see {@link ScheduleCache}).
+	 */
+	public final DefaultProcessor setCacheCapacity(final int cacheCapacity) {
+		this.getComputationCodes().setCapacity(cacheCapacity);
+		this.getCompiledComputations().setCapacity(cacheCapacity);
+		this.getForwards().setCapacity(cacheCapacity);
+		this.getBackwards().setCapacity(cacheCapacity);
+		
+		return this;
+	}
+	
+	@Override
+	public final boolean isFoldingConstants() {
+		return this.foldingConstants;
+	}
+	
+	public final DefaultProcessor setFoldingConstants(final boolean foldingConstants) {
+		if (this.foldingConstants != foldingConstants) {
+			this.foldingConstants = foldingConstants;
+			this.getForwards().clear();
+			this.getBackwards().clear();
+			this.getConstantFoldings().clear();
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Off by default.
+	 */
+	@Override
+	public final boolean isFusing() {
+		return this.fusing;
+	}
+	
+	public final DefaultProcessor setFusing(final boolean fusing) {
+		if (this.fusing != fusing) {
+			this.fusing = fusing;
+			this.getForwards().clear();
+			this.getBackwards().clear();
+			this.getConstantFoldings().clear();
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * @return <code>true</code> if elementwise functions are run through {@link CompiledFunctions} when possible
+	 * <br>Off by default, since compiling needs the JDK compiler at run time.
+	 */
+	public final boolean isCompilingFunctions() {
+		return this.compilingFunctions;
+	}
+	
+	public final DefaultProcessor setCompilingFunctions(final boolean compilingFunctions) {
+		this.compilingFunctions = compilingFunctions;
+		
+		return this;
+	}
+	
+	/**
+	 * @return <code>true</code> if the programs of {@link Computation} nodes are run through {@link CompiledComputations}
+	 * when possible
+	 */
+	public final boolean isCompilingComputations() {
+		return this.compilingComputations;
+	}
+	
+	public final DefaultProcessor setCompilingComputations(final boolean compilingComputations) {
+		this.compilingComputations = compilingComputations;
+		
+		return this;
+	}
+	
+	/**
+	 * @return <code>true</code> if compiled {@link Computation} programs are also interpreted and their results compared
+	 */
+	public final boolean isCheckingComputations() {
+		return this.checkingComputations;
+	}
+	
+	public final DefaultProcessor setCheckingComputations(final boolean checkingComputations) {
+		this.checkingComputations = checkingComputations;
+		
+		return this;
+	}
+	
+	/**
+	 * @return <code>true</code> if independent nodes are computed concurrently (see {@link ParallelScheduler})
+	 * and large elementwise nodes are split across threads
+	 * <br>Timers then measure overlapping intervals, so their totals are only indicative.
+	 * <br>Off by default; the nodes then run on the common {@link ForkJoinPool}.
+	 */
+	public final boolean isParallel() {
+		return this.parallel;
+	}
+	
+	public final DefaultProcessor setParallel(final boolean parallel) {
+		this.parallel = parallel;
+		
+		return this;
+	}
+	
+	public final MemoryPlan getMemoryPlan() {
+		return this.memoryPlan;
+	}
+	
+	/**
+	 * The storages planned by <code>memoryPlan</code> are zeroed just before their first writer
+	 * instead of before the whole schedule, and storages sharing memory are ordered as if they were the same.
+	 * 
+	 * @param memoryPlan <code>null</code> to use the storages independently; should already be applied
+	 */
+	public final DefaultProcessor setMemoryPlan(final MemoryPlan memoryPlan) {
+		this.memoryPlan = memoryPlan;
+		
+		return this;
+	}
+	
+	@Override
+	public final void zeroComputationNodes(final Collection<Node<?>> nodes) {
+		final MemoryPlan plan = this.getMemoryPlan();
+		
+		nodes.stream().filter(n -> n.isComputationNode() && (plan == null || !plan.isPlanned(n.getStorage())))
+		.forEach(n -> this.fill(n, 0F));
+	}
+	
+	@Override
+	public final void forward(final Iterable<Node<?>> nodes) {
+		final List<Node<?>> list = new ArrayList<>();
+		final MemoryPlan plan = this.getMemoryPlan();
+		
+		nodes.forEach(list::add);
+		
+		if (!this.isParallel() || list.size() < 2) {
+			list.forEach(node -> {
+				this.zeroFirstWrites(plan, node);
+				node.accept(this.getForwarder());
+			});
+			
+			return;
+		}
+		
+		// the interpretation contexts of forwarders are not thread-safe, so each task borrows its own
+		ParallelScheduler.run(list, plan == null ? storage -> storage : plan::getMemoryKey, ForkJoinPool.commonPool(), node -> {
+			Forwarder forwarder = this.spareForwarders.poll();
+			
+			if (forwarder == null) {
+				forwarder = this.new Forwarder();
+			}
+			
+			try {
+				this.zeroFirstWrites(plan, node);
+				node.accept(forwarder);
+			} finally {
+				this.spareForwarders.add(forwarder);
+			}
+		});
+	}
+	
+	private final void zeroFirstWrites(final MemoryPlan plan, final Node<?> node) {
+		if (plan != null) {
+			for (final Storage storage : plan.getFirstWrites(node)) {
+				final FloatBuffer buffer = storage.getFloatBuffer();
+				final int n = storage.getLength();
+				
+				for (int i = 0; i < n; ++i) {
+					buffer.put(i, 0F);
+				}
+			}
+		}
+	}
+	
 	private static final long serialVersionUID = -5998082453824765555L;
 	
 	public static final DefaultProcessor INSTANCE = new DefaultProcessor();
 	
+	/**
+	 * Elementwise nodes longer than this are split into chunks of this length when the processor is parallel.
+	 */
+	public static final int ELEMENTWISE_CHUNK_LENGTH = 1 << 14;
+	
+	/**
+	 * Fusions are evaluated by blocks of this length, so that the values of their intermediates stay in cache.
+	 */
+	public static final int FUSION_BLOCK_LENGTH = 1 << 10;
+	
+	/**
+	 * @return A view of elements <code>[start .. start + length - 1]</code> of <code>buffer</code>, indexed from 0
+	 */
+	public static final FloatBuffer slice(final FloatBuffer buffer, final int start, final int length) {
+		final FloatBuffer result = buffer.duplicate();
+		
+		result.limit(start + length);
+		result.position(start);
+		
+		return result.slice();
+	}
+	
+	/**
+	 * Adds <code>source</code> to <code>target</code>, starting at <code>targetOffset</code>.
+	 */
+	public static final void add(final float[] source, final FloatBuffer target, final int targetOffset) {
+		final int n = source.length;
+		
+		for (int i = 0; i < n; ++i) {
+			target.put(targetOffset + i, target.get(targetOffset + i) + source[i]);
+		}
+	}
+	
 	/**
 	 * @author codistmonk (creation 2016-07-11)
 	 */
@@ -98,38 +356,21 @@ public final class DefaultProcessor implements NodeProcessor {
 			
 			final Node<?> left = node.getLeft();
 			final Node<?> right = node.getRight();
-			final int[] leftShape = left.getLengths(new int[2]);
-			final int[] rightShape = right.getLengths(new int[2]);
 			final boolean transposeLeft = node.isTransposeLeft();
 			final boolean transposeRight = node.isTransposeRight();
+			final int rows = left.getLength(2, transposeLeft ? 1 : 0);
+			final int columns = right.getLength(2, transposeRight ? 0 : 1);
+			final int stride = left.getLength(2, transposeLeft ? 0 : 1);
+			final StructuredMatrix structuredLeft = StructuredMatrix.of(left, transposeLeft);
+			final StructuredMatrix structuredRight = structuredLeft == null ? StructuredMatrix.of(right, transposeRight) : null;
 			
-			if (transposeLeft) {
-				swap(leftShape, 0, 1);
-			}
-			
-			if (transposeRight) {
-				swap(rightShape, 0, 1);
-			}
-			
-			final int rows = leftShape[0];
-			final int columns = rightShape[1];
-			final int stride = leftShape[1];
-			
-			for (int r = 0; r < rows; ++r) {
-				for (int c = 0; c < columns; ++c) {
-					float value = 0F;
-					
-					for (int k = 0; k < stride; ++k) {
-						final int leftIndex = transposeLeft ? r + k * rows : k + r * stride;
-						final int rightIndex = transposeRight ? k + c * stride : c + k * columns;
-						final float leftValue = left.get(leftIndex);
-						final float rightValue = right.get(rightIndex);
-						
-						value += leftValue * rightValue;
-					}
-					
-					node.add(c + r * columns, value);
-				}
+			if (structuredLeft != null) {
+				structuredLeft.multiply(right.getFloatBuffer(), transposeRight, node.getFloatBuffer(), columns);
+			} else if (structuredRight != null) {
+				structuredRight.premultiply(left.getFloatBuffer(), transposeLeft, node.getFloatBuffer(), rows);
+			} else {
+				GEMM.multiply(left.getFloatBuffer(), transposeLeft, right.getFloatBuffer(), transposeRight,
+						node.getFloatBuffer(), rows, columns, stride);
 			}
 			
 			timer.toc();
@@ -146,15 +387,32 @@ public final class DefaultProcessor implements NodeProcessor {
 			final Node<?> argument = node.getArgument();
 			final int n = node.getLength();
 			final String functionName = node.getFunctionName();
+			final CompiledFunction compiled = this.getCompiledFunction(functionName, 1);
+			
+			if (compiled != null) {
+				final FloatBuffer argumentBuffer = argument.getFloatBuffer();
+				final FloatBuffer resultBuffer = node.getFloatBuffer();
+				
+				this.forEachChunk(n, (start, length) -> compiled.map(
+						slice(argumentBuffer, start, length), slice(resultBuffer, start, length), length));
+				
+				timer.toc();
+				
+				return null;
+			}
+			
 			final List<Object> forwardDefinition = Functions.getDefinition(functionName, 1);
 			final FloatSupplier forward = this.context.newSupplier(forwardDefinition);
+			final Variable input = this.context.getInputs().get(0);
+			final FloatBuffer argumentBuffer = argument.getFloatBuffer();
+			final FloatBuffer resultBuffer = node.getFloatBuffer();
 			
 			for (int i = 0; i < n; ++i) {
-				this.context.getInputs().get(0).set(argument.get(i));
+				input.set(argumentBuffer.get(i));
 				
 				final float value = forward.get();
 				
-				node.add(i, value);
+				resultBuffer.put(i, resultBuffer.get(i) + value);
 			}
 			
 			timer.toc();
@@ -175,19 +433,44 @@ public final class DefaultProcessor implements NodeProcessor {
 			final int n = right.getLength();
 			final int mm = max(l, max(m, n));
 			final String functionName = node.getFunctionName();
+			final CompiledFunction compiled = this.getCompiledFunction(functionName, 2);
+			
+			if (compiled != null && m == l && n == l) {
+				final FloatBuffer leftBuffer = left.getFloatBuffer();
+				final FloatBuffer rightBuffer = right.getFloatBuffer();
+				final FloatBuffer resultBuffer = node.getFloatBuffer();
+				
+				this.forEachChunk(l, (start, length) -> compiled.zip(slice(leftBuffer, start, length), length,
+						slice(rightBuffer, start, length), length, slice(resultBuffer, start, length), length));
+				
+				timer.toc();
+				
+				return null;
+			}
+			
+			if (compiled != null) {
+				compiled.zip(left.getFloatBuffer(), m, right.getFloatBuffer(), n, node.getFloatBuffer(), l);
+				
+				timer.toc();
+				
+				return null;
+			}
+			
 			final List<Object> forwardDefinition = Functions.getDefinition(functionName, 2);
 			final FloatSupplier forward = this.context.newSupplier(forwardDefinition);
+			final Variable leftInput = this.context.getInputs().get(0);
+			final Variable rightInput = this.context.getInputs().get(1);
+			final FloatBuffer leftBuffer = left.getFloatBuffer();
+			final FloatBuffer rightBuffer = right.getFloatBuffer();
+			final FloatBuffer resultBuffer = node.getFloatBuffer();
 			
 			for (int i = 0; i < mm; ++i) {
-				final float leftValue = left.get(i % m);
-				final float rightValue = right.get(i % n);
-				
-				this.context.getInputs().get(0).set(leftValue);
-				this.context.getInputs().get(1).set(rightValue);
+				leftInput.set(leftBuffer.get(i % m));
+				rightInput.set(rightBuffer.get(i % n));
 				
 				final float value = forward.get();
 				
-				node.add(i % l, value);
+				resultBuffer.put(i % l, resultBuffer.get(i % l) + value);
 			}
 			
 			timer.toc();
@@ -195,13 +478,338 @@ public final class DefaultProcessor implements NodeProcessor {
 			return null;
 		}
 		
+		/**
+		 * Calls <code>process</code> on consecutive ranges covering <code>[0 .. n - 1]</code>,
+		 * concurrently if the processor is parallel and <code>n</code> exceeds {@link #ELEMENTWISE_CHUNK_LENGTH}.
+		 */
+		final void forEachChunk(final int n, final RangeConsumer process) {
+			if (!isParallel() || n <= ELEMENTWISE_CHUNK_LENGTH) {
+				process.accept(0, n);
+			} else {
+				IntStream.range(0, (n + ELEMENTWISE_CHUNK_LENGTH - 1) / ELEMENTWISE_CHUNK_LENGTH).parallel().forEach(chunk -> {
+					final int start = chunk * ELEMENTWISE_CHUNK_LENGTH;
+					
+					process.accept(start, min(ELEMENTWISE_CHUNK_LENGTH, n - start));
+				});
+			}
+		}
+		
+		/**
+		 * Computes <code>result[i] += forward(operandValues[0][i % operandLengths[0]], ...)</code>
+		 * for <code>i</code> in <code>[0 .. n - 1]</code>.
+		 */
+		final void interpret(final FloatSupplier forward, final Variable[] inputs,
+				final FloatBuffer[] operandValues, final int[] operandLengths, final FloatBuffer result, final int n) {
+			final Variable input0 = inputs[0];
+			final FloatBuffer values0 = operandValues[0];
+			
+			if (inputs.length == 1) {
+				for (int i = 0; i < n; ++i) {
+					input0.set(values0.get(i));
+					result.put(i, result.get(i) + forward.get());
+				}
+			} else {
+				final Variable input1 = inputs[1];
+				final FloatBuffer values1 = operandValues[1];
+				final int m0 = operandLengths[0];
+				final int m1 = operandLengths[1];
+				
+				for (int i = 0; i < n; ++i) {
+					input0.set(values0.get(i % m0));
+					input1.set(values1.get(i % m1));
+					result.put(i, result.get(i) + forward.get());
+				}
+			}
+		}
+		
+		final CompiledFunction getCompiledFunction(final String functionName, final int arity) {
+			return isCompilingFunctions() ? CompiledFunctions.get(functionName, arity) : null;
+		}
+		
+		@Override
+		public final Void visit(final Fusion node) {
+			final TicToc timer = getOrCreateTimer("Fusion");
+			
+			timer.tic();
+			
+			final List<Node<?>> steps = node.getSteps();
+			final int stepCount = steps.size();
+			final int[][] operands = node.getOperands();
+			final CompiledFunction[] compiled = new CompiledFunction[stepCount];
+			final FloatSupplier[] forwards = new FloatSupplier[stepCount];
+			final Variable[][] inputs = new Variable[stepCount][];
+			// only the exit and the materialized intermediates have buffers, the other steps use registers
+			final FloatBuffer[] outputs = new FloatBuffer[stepCount];
+			final FloatBuffer[] arguments = node.getArguments().stream().map(Node::getFloatBuffer).toArray(FloatBuffer[]::new);
+			final int[] argumentLengths = node.getArguments().stream().mapToInt(Node::getLength).toArray();
+			final int n = node.getLength();
+			boolean interpreted = false;
+			
+			for (int s = 0; s < stepCount; ++s) {
+				final String functionName = Fusion.getFunctionName(steps.get(s));
+				
+				compiled[s] = this.getCompiledFunction(functionName, operands[s].length);
+				
+				if (compiled[s] == null) {
+					forwards[s] = this.context.newSupplier(Functions.getDefinition(functionName, operands[s].length));
+					inputs[s] = this.context.getInputs().toArray(new Variable[operands[s].length]);
+					interpreted = true;
+				}
+				
+				if (node.isMaterialized(s)) {
+					outputs[s] = steps.get(s).getFloatBuffer();
+				}
+			}
+			
+			final RangeConsumer process = (start, length) -> {
+				final float[] registers = new float[(stepCount + 2) * FUSION_BLOCK_LENGTH];
+				final FloatBuffer registersBuffer = FloatBuffer.wrap(registers);
+				final FloatBuffer[] values = new FloatBuffer[stepCount];
+				final FloatBuffer[] operandValues = new FloatBuffer[2];
+				final int[] operandLengths = new int[2];
+				final int end = start + length;
+				
+				for (int blockStart = start; blockStart < end; blockStart += FUSION_BLOCK_LENGTH) {
+					final int blockLength = min(FUSION_BLOCK_LENGTH, end - blockStart);
+					
+					for (int s = 0; s < stepCount; ++s) {
+						final int[] stepOperands = operands[s];
+						final FloatBuffer result;
+						
+						if (outputs[s] == null) {
+							Arrays.fill(registers, s * FUSION_BLOCK_LENGTH, s * FUSION_BLOCK_LENGTH + blockLength, 0F);
+							result = slice(registersBuffer, s * FUSION_BLOCK_LENGTH, blockLength);
+						} else {
+							result = slice(outputs[s], blockStart, blockLength);
+							
+							// intermediates have no other contributors, so their values are set instead of accumulated
+							if (s < stepCount - 1) {
+								for (int i = 0; i < blockLength; ++i) {
+									result.put(i, 0F);
+								}
+							}
+						}
+						
+						for (int j = 0; j < stepOperands.length; ++j) {
+							final int operand = stepOperands[j];
+							
+							if (0 <= operand) {
+								operandValues[j] = values[operand];
+								operandLengths[j] = blockLength;
+							} else {
+								final FloatBuffer argument = arguments[-1 - operand];
+								final int m = argumentLengths[-1 - operand];
+								
+								if (m == n) {
+									operandValues[j] = slice(argument, blockStart, blockLength);
+									operandLengths[j] = blockLength;
+								} else if (m == 1 && stepOperands.length == 2) {
+									operandValues[j] = argument;
+									operandLengths[j] = 1;
+								} else {
+									// broadcast arguments are gathered into registers
+									final int offset = (stepCount + j) * FUSION_BLOCK_LENGTH;
+									
+									for (int i = 0; i < blockLength; ++i) {
+										registers[offset + i] = argument.get((blockStart + i) % m);
+									}
+									
+									operandValues[j] = slice(registersBuffer, offset, blockLength);
+									operandLengths[j] = blockLength;
+								}
+							}
+						}
+						
+						if (compiled[s] == null) {
+							interpret(forwards[s], inputs[s], operandValues, operandLengths, result, blockLength);
+						} else if (stepOperands.length == 1) {
+							compiled[s].map(operandValues[0], result, blockLength);
+						} else {
+							compiled[s].zip(operandValues[0], operandLengths[0], operandValues[1], operandLengths[1], result, blockLength);
+						}
+						
+						values[s] = result;
+					}
+				}
+			};
+			
+			// the interpretation context is not thread-safe
+			if (interpreted) {
+				process.accept(0, n);
+			} else {
+				this.forEachChunk(n, process);
+			}
+			
+			timer.toc();
+			
+			return null;
+		}
+		
+		@Override
+		public final Void visit(final Reduction node) {
+			final TicToc timer = getOrCreateTimer("Reduction");
+			
+			timer.tic();
+			
+			final FloatBuffer source = node.getArgument().getFloatBuffer();
+			final FloatBuffer target = node.getFloatBuffer();
+			
+			if (node.isTransposed()) {
+				node.forEachIndex((fullIndex, reducedIndex) -> target.put(fullIndex, target.get(fullIndex) + source.get(reducedIndex)));
+			} else {
+				node.forEachIndex((fullIndex, reducedIndex) -> target.put(reducedIndex, target.get(reducedIndex) + source.get(fullIndex)));
+			}
+			
+			timer.toc();
+			
+			return null;
+		}
+		
+		@Override
+		public final Void visit(final Gathering node) {
+			final TicToc timer = getOrCreateTimer("Gathering");
+			
+			timer.tic();
+			
+			final Node<?> argument = node.getArgument();
+			final int[] offsets = node.getOffsets();
+			final int m = node.getRowCount();
+			final int n = offsets.length;
+			final int vectorsStride = node.getVectorsStride();
+			final FloatBuffer source = argument.getFloatBuffer();
+			final FloatBuffer target = node.getFloatBuffer();
+			
+			if (node.isTransposed()) {
+				for (int r = 0; r < m; ++r) {
+					for (int j = 0; j < n; ++j) {
+						final int offset = offsets[j];
+						
+						if (0 <= offset) {
+							final int i = r * vectorsStride + offset;
+							
+							target.put(i, target.get(i) + source.get(r * n + j));
+						}
+					}
+				}
+			} else {
+				for (int r = 0; r < m; ++r) {
+					for (int j = 0; j < n; ++j) {
+						final int offset = offsets[j];
+						
+						if (0 <= offset) {
+							final int i = r * n + j;
+							
+							target.put(i, target.get(i) + source.get(r * vectorsStride + offset));
+						}
+					}
+				}
+			}
+			
+			timer.toc();
+			
+			return null;
+		}
+		
+		@Override
+		public final Void visit(final Convolution node) {
+			final TicToc timer = getOrCreateTimer("Convolution");
+			
+			timer.tic();
+			
+			final Node<?> left = node.getLeft();
+			final Node<?> right = node.getRight();
+			final int inputCount = node.getInputCount();
+			final int outputChannels = node.getOutputChannels();
+			final int outputSize = node.getOutputHeight() * node.getOutputWidth();
+			final int kernelSize = node.getKernelSize();
+			final int outputsLength = outputChannels * outputSize;
+			final FloatBuffer a = left.getFloatBuffer();
+			final FloatBuffer b = right.getFloatBuffer();
+			final FloatBuffer target = node.getFloatBuffer();
+			// inputs are processed by interleaved chunks, each reusing its work arrays
+			final int chunkCount = Math.min(inputCount, Runtime.getRuntime().availableProcessors());
+			
+			switch (node.getOperation()) {
+			case CONVOLUTION:
+				// outputs[n] += kernels (outputChannels x kernelSize) * patches[n] (kernelSize x outputSize)
+				IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+					final float[] columns = new float[kernelSize * outputSize];
+					final float[] outputs = new float[outputsLength];
+					
+					for (int n = chunk; n < inputCount; n += chunkCount) {
+						GEMM.get(target, n * outputsLength, outputs, 0, outputsLength);
+						node.im2col(a, n, columns);
+						GEMM.multiply(b, 0, false, columns, outputs, outputChannels, outputSize, kernelSize);
+						GEMM.put(outputs, 0, target, n * outputsLength, outputsLength);
+					}
+				});
+				break;
+			case INPUTS_DIFFS:
+				// inputs.diffs[n] += col2im(kernels' (kernelSize x outputChannels) * outputs.diffs[n] (outputChannels x outputSize))
+				IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+					final float[] columns = new float[kernelSize * outputSize];
+					final float[] outputDiffs = new float[outputsLength];
+					
+					for (int n = chunk; n < inputCount; n += chunkCount) {
+						Arrays.fill(columns, 0F);
+						GEMM.get(a, n * outputsLength, outputDiffs, 0, outputsLength);
+						GEMM.multiply(b, 0, true, outputDiffs, columns, kernelSize, outputSize, outputChannels);
+						node.col2im(columns, n, target);
+					}
+				});
+				break;
+			case KERNELS_DIFFS:
+			{
+				// kernels.diffs += sum_n outputs.diffs[n] (outputChannels x outputSize) * patches[n]' (outputSize x kernelSize)
+				final float[][] partialSums = new float[chunkCount][];
+				
+				IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+					final float[] columns = new float[kernelSize * outputSize];
+					final float[] patches = new float[outputSize * kernelSize];
+					final float[] partialSum = new float[outputChannels * kernelSize];
+					
+					for (int n = chunk; n < inputCount; n += chunkCount) {
+						node.im2col(a, n, columns);
+						GEMM.multiply(b, n * outputsLength, false, GEMM.transpose(columns, outputSize, kernelSize, patches), partialSum,
+								outputChannels, kernelSize, outputSize);
+					}
+					
+					partialSums[chunk] = partialSum;
+				});
+				
+				for (final float[] partialSum : partialSums) {
+					add(partialSum, target, 0);
+				}
+				
+				break;
+			}
+			}
+			
+			timer.toc();
+			
+			return null;
+		}
+		
+		@Override
+		public final Void visit(final Pooling node) {
+			final TicToc timer = getOrCreateTimer("Pooling");
+			
+			timer.tic();
+			
+			node.forward(node.getInputs().getFloatBuffer(), node.getFloatBuffer(), node.getIndices().getFloatBuffer());
+			
+			timer.toc();
+			
+			return null;
+		}
+		
 		@Override
 		public final Void visit(final Computation node) {
 			final TicToc timer = getOrCreateTimer("ComputationNode");
 			
 			timer.tic();
 			
-			final Object javaCode = getComputationCodes().computeIfAbsent(node, __ -> {
+			final Object javaCode = getComputationCodes().computeIfAbsent(node, __ -> ComputationCache.get(node, "java", () -> {
 				final Deduction javaCodeDeduction = Basics.build(new Deduction(node.getBoundForm(), node.getName() + "_to_java"), new Runnable() {
 					
 					@Override
@@ -216,15 +824,54 @@ public final class DefaultProcessor implements NodeProcessor {
 					
 				}, new Simple(1));
 				
-				return right(javaCodeDeduction.getProposition(javaCodeDeduction.getPropositionName(-1)));
-			});
+				return (Serializable) right(javaCodeDeduction.getProposition(javaCodeDeduction.getPropositionName(-1)));
+			}));
 			
-			{
+			final CompiledComputation compiled = this.getCompiledComputation(node, javaCode);
+			
+			if (compiled == null) {
 				final JavaCodeContext context = new JavaCodeContext();
 				
 				context.setBuffer("result", node.getFloatBuffer());
 				
 				context.run(javaCode);
+			} else if (isCheckingComputations()) {
+				final FloatBuffer result = node.getFloatBuffer();
+				final int n = node.getLength();
+				final FloatBuffer expected = ByteBuffer.allocateDirect(n * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+				
+				for (int i = 0; i < n; ++i) {
+					expected.put(i, result.get(i));
+				}
+				
+				{
+					final JavaCodeContext context = new JavaCodeContext();
+					
+					context.setBuffer("result", expected);
+					
+					context.run(javaCode);
+				}
+				
+				{
+					final JavaCodeContext context = new JavaCodeContext();
+					
+					context.setBuffer("result", result);
+					
+					compiled.run(context);
+				}
+				
+				for (int i = 0; i < n; ++i) {
+					if (Float.floatToIntBits(expected.get(i)) != Float.floatToIntBits(result.get(i))) {
+						throw new IllegalStateException(node.getName() + ": compiled result[" + i + "] = " + result.get(i)
+								+ ", interpreted result[" + i + "] = " + expected.get(i));
+					}
+				}
+			} else {
+				final JavaCodeContext context = new JavaCodeContext();
+				
+				context.setBuffer("result", node.getFloatBuffer());
+				
+				compiled.run(context);
 			}
 			
 			timer.toc();
@@ -232,10 +879,34 @@ public final class DefaultProcessor implements NodeProcessor {
 			return null;
 		}
 		
+		final CompiledComputation getCompiledComputation(final Computation node, final Object javaCode) {
+			if (!isCompilingComputations()) {
+				return null;
+			}
+			
+			Pair<Object, CompiledComputation> result = compiledComputations.get(node);
+			
+			if (result == null || result.getFirst() != javaCode) {
+				result = new Pair<>(javaCode, CompiledComputations.compile(javaCode));
+				compiledComputations.put(node, result);
+			}
+			
+			return result.getSecond();
+		}
+		
 		private static final long serialVersionUID = -8842155630294708599L;
 		
 	}
 	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static abstract interface RangeConsumer {
+		
+		public abstract void accept(int start, int length);
+		
+	}
+	
 	/**
 	 * @author codistmonk (creation 2016-08-16)
 	 */
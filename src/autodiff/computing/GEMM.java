@@ -0,0 +1,350 @@
+package autodiff.computing;
+
+import static java.lang.Math.min;
+
+import java.nio.FloatBuffer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Cache-blocked, multi-threaded general matrix multiplication over float buffers.
+ * <br>Operands are first packed into row-major arrays (which resolves transpositions once),
+ * then row panels are dispatched to the common fork-join pool; inside a panel, the product is
+ * computed by k-blocks and column blocks with a 4-row register-blocked micro-kernel whose inner loop
+ * is contiguous so that the JIT can vectorize it.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class GEMM {
+	
+	private GEMM() {
+		throw new IllegalInstantiationException();
+	}
+	
+	/**
+	 * Rows of a register block.
+	 */
+	public static final int MR = 4;
+	
+	/**
+	 * Rows of a panel (unit of parallel work).
+	 */
+	public static final int ROW_BLOCK = 64;
+	
+	/**
+	 * Depth of a k-block (a <code>KC x NC</code> block of the right operand should fit in L2).
+	 */
+	public static final int KC = 256;
+	
+	/**
+	 * Columns of a column block.
+	 */
+	public static final int NC = 512;
+	
+	/**
+	 * Below this number of multiply-adds, the computation stays on the calling thread.
+	 */
+	public static final long PARALLEL_THRESHOLD = 1L << 18;
+	
+	/**
+	 * Computes <code>result += op(left) op(right)</code>,
+	 * where <code>op(left)</code> is <code>rows x stride</code> and <code>op(right)</code> is <code>stride x columns</code>,
+	 * all matrices being stored row-major.
+	 */
+	public static final void multiply(final FloatBuffer left, final boolean transposeLeft,
+			final FloatBuffer right, final boolean transposeRight,
+			final FloatBuffer result, final int rows, final int columns, final int stride) {
+		if (rows == 0 || columns == 0 || stride == 0) {
+			return;
+		}
+		
+		final float[] a = pack(left, transposeLeft, rows, stride);
+		final float[] b = pack(right, transposeRight, stride, columns);
+		
+		forEachPanel(rows, columns, stride, panel -> {
+			final int r0 = panel * ROW_BLOCK;
+			final int panelRows = min(ROW_BLOCK, rows - r0);
+			final int offset = r0 * columns;
+			final int n = panelRows * columns;
+			final float[] c = new float[n];
+			
+			get(result, offset, c, 0, n);
+			multiplyPanel(a, b, c, columns, stride, r0, panelRows, 0);
+			put(c, 0, result, offset, n);
+		});
+	}
+	
+	/**
+	 * Computes <code>c += a b</code>,
+	 * where <code>a</code> is <code>rows x stride</code> and <code>b</code> is <code>stride x columns</code>,
+	 * all matrices being stored row-major.
+	 */
+	public static final void multiply(final float[] a, final float[] b, final float[] c,
+			final int rows, final int columns, final int stride) {
+		if (rows == 0 || columns == 0 || stride == 0) {
+			return;
+		}
+		
+		forEachPanel(rows, columns, stride, panel -> {
+			final int r0 = panel * ROW_BLOCK;
+			
+			multiplyPanel(a, b, c, columns, stride, r0, min(ROW_BLOCK, rows - r0), r0);
+		});
+	}
+	
+	/**
+	 * Computes <code>c += op(a) b</code>,
+	 * where <code>op(a)</code> is <code>rows x stride</code> and is read in place from <code>a</code> starting at <code>aOffset</code>,
+	 * and <code>b</code> is <code>stride x columns</code>,
+	 * all matrices being stored row-major.
+	 * <br>Unlike {@link #multiply(FloatBuffer, boolean, FloatBuffer, boolean, FloatBuffer, int, int, int)},
+	 * the left operand is not packed, which suits small operands read once per call (eg convolution kernels).
+	 */
+	public static final void multiply(final FloatBuffer a, final int aOffset, final boolean transposeA,
+			final float[] b, final float[] c, final int rows, final int columns, final int stride) {
+		if (rows == 0 || columns == 0 || stride == 0) {
+			return;
+		}
+		
+		final int rowStep = transposeA ? 1 : stride;
+		final int kStep = transposeA ? rows : 1;
+		
+		forEachPanel(rows, columns, stride, panel -> {
+			final int r0 = panel * ROW_BLOCK;
+			final int panelRows = min(ROW_BLOCK, rows - r0);
+			
+			for (int kk = 0; kk < stride; kk += KC) {
+				final int kEnd = min(stride, kk + KC);
+				
+				for (int jj = 0; jj < columns; jj += NC) {
+					final int jEnd = min(columns, jj + NC);
+					int r = 0;
+					
+					for (; r + MR <= panelRows; r += MR) {
+						kernel4(a, aOffset + (r0 + r) * rowStep, rowStep, kStep, b, c, columns, r0 + r, kk, kEnd, jj, jEnd);
+					}
+					
+					for (; r < panelRows; ++r) {
+						kernel1(a, aOffset + (r0 + r) * rowStep, kStep, b, c, columns, r0 + r, kk, kEnd, jj, jEnd);
+					}
+				}
+			}
+		});
+	}
+	
+	/**
+	 * @return A new row-major <code>rows x columns</code> array containing <code>op(source)</code>
+	 */
+	public static final float[] pack(final FloatBuffer source, final boolean transpose, final int rows, final int columns) {
+		final float[] result = new float[rows * columns];
+		
+		if (transpose) {
+			return transpose(source, rows, columns, result);
+		}
+		
+		get(source, 0, result, 0, result.length);
+		
+		return result;
+	}
+	
+	/**
+	 * @return <code>source</code> if <code>!transpose</code>,
+	 * otherwise a new row-major <code>rows x columns</code> array containing the transpose of <code>source</code>
+	 */
+	public static final float[] pack(final float[] source, final boolean transpose, final int rows, final int columns) {
+		return transpose ? transpose(source, rows, columns, new float[rows * columns]) : source;
+	}
+	
+	/**
+	 * Writes the transpose of <code>source</code> (<code>columns x rows</code>) into <code>result</code>
+	 * (<code>rows x columns</code>, row-major), so that callers can reuse it.
+	 * 
+	 * @return <code>result</code>
+	 */
+	public static final float[] transpose(final float[] source, final int rows, final int columns, final float[] result) {
+		// source is columns x rows
+		for (int cc = 0; cc < columns; cc += 32) {
+			final int cEnd = min(columns, cc + 32);
+			
+			for (int rr = 0; rr < rows; rr += 32) {
+				final int rEnd = min(rows, rr + 32);
+				
+				for (int c = cc; c < cEnd; ++c) {
+					for (int r = rr; r < rEnd; ++r) {
+						result[r * columns + c] = source[c * rows + r];
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Writes the transpose of <code>source</code> (<code>columns x rows</code>) into <code>result</code>
+	 * (<code>rows x columns</code>, row-major), reading the buffer in place.
+	 * 
+	 * @return <code>result</code>
+	 */
+	public static final float[] transpose(final FloatBuffer source, final int rows, final int columns, final float[] result) {
+		for (int cc = 0; cc < columns; cc += 32) {
+			final int cEnd = min(columns, cc + 32);
+			
+			for (int rr = 0; rr < rows; rr += 32) {
+				final int rEnd = min(rows, rr + 32);
+				
+				for (int c = cc; c < cEnd; ++c) {
+					for (int r = rr; r < rEnd; ++r) {
+						result[r * columns + c] = source.get(c * rows + r);
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	public static final void get(final FloatBuffer source, final int sourceOffset, final float[] target, final int targetOffset, final int n) {
+		final FloatBuffer view = source.duplicate();
+		
+		view.position(sourceOffset);
+		view.get(target, targetOffset, n);
+	}
+	
+	public static final void put(final float[] source, final int sourceOffset, final FloatBuffer target, final int targetOffset, final int n) {
+		final FloatBuffer view = target.duplicate();
+		
+		view.position(targetOffset);
+		view.put(source, sourceOffset, n);
+	}
+	
+	private static final void forEachPanel(final int rows, final int columns, final int stride, final IntConsumer process) {
+		final int panelCount = (rows + ROW_BLOCK - 1) / ROW_BLOCK;
+		
+		if (panelCount == 1 || (long) rows * columns * stride < PARALLEL_THRESHOLD) {
+			for (int panel = 0; panel < panelCount; ++panel) {
+				process.accept(panel);
+			}
+		} else {
+			IntStream.range(0, panelCount).parallel().forEach(process);
+		}
+	}
+	
+	/**
+	 * Accumulates rows <code>[r0 .. r0 + panelRows - 1]</code> of <code>a b</code>
+	 * into <code>c</code>, starting at row <code>cRow0</code>.
+	 */
+	private static final void multiplyPanel(final float[] a, final float[] b, final float[] c,
+			final int columns, final int stride, final int r0, final int panelRows, final int cRow0) {
+		for (int kk = 0; kk < stride; kk += KC) {
+			final int kEnd = min(stride, kk + KC);
+			
+			for (int jj = 0; jj < columns; jj += NC) {
+				final int jEnd = min(columns, jj + NC);
+				int r = 0;
+				
+				for (; r + MR <= panelRows; r += MR) {
+					kernel4(a, b, c, columns, stride, r0 + r, cRow0 + r, kk, kEnd, jj, jEnd);
+				}
+				
+				for (; r < panelRows; ++r) {
+					kernel1(a, b, c, columns, stride, r0 + r, cRow0 + r, kk, kEnd, jj, jEnd);
+				}
+			}
+		}
+	}
+	
+	private static final void kernel4(final float[] a, final float[] b, final float[] c,
+			final int columns, final int stride, final int aRow, final int cRow,
+			final int kStart, final int kEnd, final int jStart, final int jEnd) {
+		final int a0 = aRow * stride;
+		final int a1 = a0 + stride;
+		final int a2 = a1 + stride;
+		final int a3 = a2 + stride;
+		final int c0 = cRow * columns;
+		final int c1 = c0 + columns;
+		final int c2 = c1 + columns;
+		final int c3 = c2 + columns;
+		
+		for (int k = kStart; k < kEnd; ++k) {
+			final float x0 = a[a0 + k];
+			final float x1 = a[a1 + k];
+			final float x2 = a[a2 + k];
+			final float x3 = a[a3 + k];
+			final int bk = k * columns;
+			
+			for (int j = jStart; j < jEnd; ++j) {
+				final float y = b[bk + j];
+				
+				c[c0 + j] += x0 * y;
+				c[c1 + j] += x1 * y;
+				c[c2 + j] += x2 * y;
+				c[c3 + j] += x3 * y;
+			}
+		}
+	}
+	
+	private static final void kernel1(final float[] a, final float[] b, final float[] c,
+			final int columns, final int stride, final int aRow, final int cRow,
+			final int kStart, final int kEnd, final int jStart, final int jEnd) {
+		final int a0 = aRow * stride;
+		final int c0 = cRow * columns;
+		
+		for (int k = kStart; k < kEnd; ++k) {
+			final float x0 = a[a0 + k];
+			final int bk = k * columns;
+			
+			for (int j = jStart; j < jEnd; ++j) {
+				c[c0 + j] += x0 * b[bk + j];
+			}
+		}
+	}
+	
+	private static final void kernel4(final FloatBuffer a, final int a0, final int rowStep, final int kStep,
+			final float[] b, final float[] c, final int columns, final int cRow,
+			final int kStart, final int kEnd, final int jStart, final int jEnd) {
+		final int a1 = a0 + rowStep;
+		final int a2 = a1 + rowStep;
+		final int a3 = a2 + rowStep;
+		final int c0 = cRow * columns;
+		final int c1 = c0 + columns;
+		final int c2 = c1 + columns;
+		final int c3 = c2 + columns;
+		
+		for (int k = kStart; k < kEnd; ++k) {
+			final int ak = k * kStep;
+			final float x0 = a.get(a0 + ak);
+			final float x1 = a.get(a1 + ak);
+			final float x2 = a.get(a2 + ak);
+			final float x3 = a.get(a3 + ak);
+			final int bk = k * columns;
+			
+			for (int j = jStart; j < jEnd; ++j) {
+				final float y = b[bk + j];
+				
+				c[c0 + j] += x0 * y;
+				c[c1 + j] += x1 * y;
+				c[c2 + j] += x2 * y;
+				c[c3 + j] += x3 * y;
+			}
+		}
+	}
+	
+	private static final void kernel1(final FloatBuffer a, final int a0, final int kStep,
+			final float[] b, final float[] c, final int columns, final int cRow,
+			final int kStart, final int kEnd, final int jStart, final int jEnd) {
+		final int c0 = cRow * columns;
+		
+		for (int k = kStart; k < kEnd; ++k) {
+			final float x0 = a.get(a0 + k * kStep);
+			final int bk = k * columns;
+			
+			for (int j = jStart; j < jEnd; ++j) {
+				c[c0 + j] += x0 * b[bk + j];
+			}
+		}
+	}
+	
+}
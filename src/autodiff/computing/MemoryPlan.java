@@ -0,0 +1,285 @@
+package autodiff.computing;
+
+import autodiff.computing.NodeProcessor.SideOutputsGetter;
+import autodiff.nodes.Node;
+import autodiff.nodes.Storage;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Places the intermediates of a sequence of schedules (typically the forward and backward nodes of a graph)
+ * in slots of a single arena, two intermediates sharing a slot when their lifetimes do not overlap.
+ * <br>The lifetime of a storage goes from its first write to its last access over the concatenated schedules;
+ * it is planned only if its first access is a write by a computation node and if it is not live after the schedules:
+ * storages of the nodes passed as <code>live</code> and diffs of non-computation nodes (parameter gradients) are never planned,
+ * and storages read before being written (inputs, parameters) are not planned either.
+ * <br>Since a slot holds stale values from its previous occupant, a processor using a plan must zero planned storages
+ * just before their first writer instead of before the whole schedule (see {@link #getFirstWrites(Node)}),
+ * and must treat storages sharing a slot as the same memory when ordering nodes (see {@link #getMemoryKey(Storage)}).
+ * <br>The schedules must be the lists that will actually run, so plans should be made after a first full pass
+ * (which may replace stale fusions).
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class MemoryPlan implements Serializable {
+	
+	private final Map<Storage, Integer> slots;
+	
+	private final long[] slotOffsets;
+	
+	private final Map<Node<?>, List<Storage>> firstWrites;
+	
+	private final long unplannedBytes;
+	
+	private final long peakLiveBytes;
+	
+	private transient ByteBuffer arena;
+	
+	public MemoryPlan(final List<List<Node<?>>> schedules, final Collection<Node<?>> live) {
+		final SideOutputsGetter sideOutputsGetter = new SideOutputsGetter();
+		final Map<Storage, int[]> lifetimes = new LinkedHashMap<>();
+		final Map<Storage, Node<?>> firstWriters = new IdentityHashMap<>();
+		final Set<Storage> excluded = Collections.newSetFromMap(new IdentityHashMap<>());
+		int step = 0;
+		
+		live.forEach(node -> excluded.add(node.getStorage()));
+		
+		for (final List<Node<?>> schedule : schedules) {
+			for (final Node<?> node : schedule) {
+				if (node.isComputationNode()) {
+					for (final Node<?> argument : node.getArguments()) {
+						this.access(lifetimes, argument.getStorage(), step, excluded);
+					}
+					
+					this.write(lifetimes, firstWriters, node, node.getStorage(), step, excluded);
+					
+					for (final Node<?> sideOutput : node.accept(sideOutputsGetter)) {
+						this.write(lifetimes, firstWriters, node, sideOutput.getStorage(), step, excluded);
+					}
+				} else if (node.getDiffs() != null) {
+					excluded.add(node.getDiffs().getStorage());
+				}
+				
+				++step;
+			}
+		}
+		
+		lifetimes.keySet().removeAll(excluded);
+		
+		// best-fit assignment in order of first write, a slot being reusable after the last access of its occupant
+		final List<Long> slotSizes = new ArrayList<>();
+		final List<Integer> slotEnds = new ArrayList<>();
+		long liveBytes = 0L;
+		long peakLiveBytes = 0L;
+		final List<Map.Entry<Storage, int[]>> entries = new ArrayList<>(lifetimes.entrySet());
+		
+		entries.sort((e1, e2) -> Integer.compare(e1.getValue()[0], e2.getValue()[0]));
+		
+		this.slots = new IdentityHashMap<>();
+		
+		final List<Map.Entry<Storage, int[]>> active = new ArrayList<>();
+		long unplannedBytes = 0L;
+		
+		for (final Map.Entry<Storage, int[]> entry : entries) {
+			final Storage storage = entry.getKey();
+			final int start = entry.getValue()[0];
+			final long bytes = getAlignedBytes(storage);
+			
+			for (final Map.Entry<Storage, int[]> other : new ArrayList<>(active)) {
+				if (other.getValue()[1] < start) {
+					active.remove(other);
+					liveBytes -= getAlignedBytes(other.getKey());
+				}
+			}
+			
+			active.add(entry);
+			liveBytes += bytes;
+			peakLiveBytes = Math.max(peakLiveBytes, liveBytes);
+			unplannedBytes += bytes;
+			
+			int slot = -1;
+			
+			for (int i = 0; i < slotSizes.size(); ++i) {
+				if (slotEnds.get(i) < start && (slot < 0 || isBetterFit(slotSizes.get(i), slotSizes.get(slot), bytes))) {
+					slot = i;
+				}
+			}
+			
+			if (slot < 0) {
+				slot = slotSizes.size();
+				slotSizes.add(bytes);
+				slotEnds.add(entry.getValue()[1]);
+			} else {
+				slotSizes.set(slot, Math.max(bytes, slotSizes.get(slot)));
+				slotEnds.set(slot, entry.getValue()[1]);
+			}
+			
+			this.slots.put(storage, slot);
+		}
+		
+		this.slotOffsets = new long[slotSizes.size() + 1];
+		
+		for (int i = 0; i < slotSizes.size(); ++i) {
+			this.slotOffsets[i + 1] = this.slotOffsets[i] + slotSizes.get(i);
+		}
+		
+		this.firstWrites = new IdentityHashMap<>();
+		
+		for (final Storage storage : this.slots.keySet()) {
+			this.firstWrites.computeIfAbsent(firstWriters.get(storage), __ -> new ArrayList<>()).add(storage);
+		}
+		
+		this.unplannedBytes = unplannedBytes;
+		this.peakLiveBytes = peakLiveBytes;
+	}
+	
+	public final boolean isPlanned(final Storage storage) {
+		return this.slots.containsKey(storage);
+	}
+	
+	/**
+	 * @return The planned storages first written by <code>node</code>, to be zeroed just before it runs
+	 */
+	public final List<Storage> getFirstWrites(final Node<?> node) {
+		return this.firstWrites.getOrDefault(node, Collections.emptyList());
+	}
+	
+	/**
+	 * @return An object identifying the memory of <code>storage</code>, shared by the storages of a slot
+	 */
+	public final Object getMemoryKey(final Storage storage) {
+		final Integer slot = this.slots.get(storage);
+		
+		return slot == null ? storage : Arrays.asList(this, slot);
+	}
+	
+	public final int getSlotCount() {
+		return this.slotOffsets.length - 1;
+	}
+	
+	/**
+	 * @return The size of the arena
+	 */
+	public final long getArenaBytes() {
+		return this.slotOffsets[this.getSlotCount()];
+	}
+	
+	/**
+	 * @return The memory used by the planned storages without the plan
+	 */
+	public final long getUnplannedBytes() {
+		return this.unplannedBytes;
+	}
+	
+	/**
+	 * @return The maximum memory used at once by live planned storages, a lower bound of {@link #getArenaBytes()}
+	 */
+	public final long getPeakLiveBytes() {
+		return this.peakLiveBytes;
+	}
+	
+	/**
+	 * Allocates the arena and makes the planned storages use their slots; their current values are lost.
+	 */
+	public final synchronized MemoryPlan apply() {
+		if (Integer.MAX_VALUE < this.getArenaBytes()) {
+			throw new IllegalStateException("Arena too large: " + this.getArenaBytes() + " bytes");
+		}
+		
+		this.arena = ByteBuffer.allocateDirect((int) this.getArenaBytes()).order(ByteOrder.nativeOrder());
+		
+		for (final Map.Entry<Storage, Integer> entry : this.slots.entrySet()) {
+			final ByteBuffer view = this.arena.duplicate().order(this.arena.order());
+			
+			view.position((int) this.slotOffsets[entry.getValue()]);
+			
+			entry.getKey().setByteBuffer(view);
+		}
+		
+		return this;
+	}
+	
+	@Override
+	public final String toString() {
+		return "MemoryPlan[" + this.slots.size() + " storages in " + this.getSlotCount() + " slots, arena: "
+				+ this.getArenaBytes() + " bytes, peak live: " + this.getPeakLiveBytes() + " bytes, unplanned: "
+				+ this.getUnplannedBytes() + " bytes]";
+	}
+	
+	private final void access(final Map<Storage, int[]> lifetimes, final Storage storage, final int step,
+			final Set<Storage> excluded) {
+		final int[] lifetime = lifetimes.get(storage);
+		
+		if (lifetime != null) {
+			lifetime[1] = step;
+		} else {
+			// read before being written: its values come from outside the schedules
+			excluded.add(storage);
+		}
+	}
+	
+	private final void write(final Map<Storage, int[]> lifetimes, final Map<Storage, Node<?>> firstWriters,
+			final Node<?> node, final Storage storage, final int step, final Set<Storage> excluded) {
+		final int[] lifetime = lifetimes.get(storage);
+		
+		if (lifetime != null) {
+			lifetime[1] = step;
+		} else if (!excluded.contains(storage)) {
+			lifetimes.put(storage, new int[] { step, step });
+			firstWriters.put(storage, node);
+		}
+	}
+	
+	private static final long serialVersionUID = -7004312948413584371L;
+	
+	/**
+	 * Slots are aligned on cache lines.
+	 */
+	public static final int ALIGNMENT = 64;
+	
+	/**
+	 * @return A plan for the forward nodes of <code>output</code>, followed by its backward nodes if it has diffs
+	 */
+	public static final MemoryPlan forGraph(final NodeProcessor processor, final Node<?> output, final Node<?>... live) {
+		final List<List<Node<?>>> schedules = new ArrayList<>();
+		final List<Node<?>> liveNodes = new ArrayList<>(Arrays.asList(live));
+		
+		schedules.add(processor.collectForward(output));
+		liveNodes.add(output);
+		
+		if (output.hasDiffs()) {
+			schedules.add(processor.collectBackwardDiff(output));
+			liveNodes.add(output.getDiffs());
+		}
+		
+		return new MemoryPlan(schedules, liveNodes);
+	}
+	
+	/**
+	 * @return <code>true</code> if <code>candidate</code> is the smallest slot size fitting <code>bytes</code>,
+	 * or if no size fits and <code>candidate</code> needs the least growth
+	 */
+	static final boolean isBetterFit(final long candidate, final long current, final long bytes) {
+		if (bytes <= current) {
+			return bytes <= candidate && candidate < current;
+		}
+		
+		return current < candidate;
+	}
+	
+	public static final long getAlignedBytes(final Storage storage) {
+		return (Float.BYTES * (long) storage.getLength() + ALIGNMENT - 1L) / ALIGNMENT * ALIGNMENT;
+	}
+	
+}
@@ -1,20 +1,33 @@
 package autodiff.computing;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.reverse;
+import static java.util.Collections.singletonList;
+import static multij.tools.Tools.ignore;
 
+import autodiff.nodes.Convolution;
 import autodiff.nodes.CustomNode;
 import autodiff.nodes.Data;
+import autodiff.nodes.Fusion;
+import autodiff.nodes.Gathering;
 import autodiff.nodes.Mapping;
 import autodiff.nodes.MatrixMultiplication;
 import autodiff.nodes.Node;
 import autodiff.nodes.NodeVisitor;
+import autodiff.nodes.Pooling;
+import autodiff.nodes.Reduction;
 import autodiff.nodes.Zipping;
 import autodiff.ui.JGraphXTools;
 
 import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +53,11 @@ public abstract interface NodeProcessor extends Serializable {
 	
 	public abstract NodeVisitor<Void> getForwarder();
 	
+	/**
+	 * @return <code>true</code> if collected nodes are passed through {@link #fuse(List)}
+	 */
+	public abstract boolean isFusing();
+	
 	public default <N extends Node<?>> N fill(final N node, final float value) {
 		final int n = node.getLength();
 		
@@ -50,14 +68,42 @@ public abstract interface NodeProcessor extends Serializable {
 		return node;
 	}
 	
+	/**
+	 * @return The nodes folded out of the collected forward nodes of each node (see {@link #isFoldingConstants()})
+	 */
+	public abstract Map<Node<?>, ConstantFolding> getConstantFoldings();
+	
+	/**
+	 * @return <code>true</code> if the nodes that only depend on constants are left out of the collected forward nodes
+	 * and evaluated when collecting them, once and again after their constants are written (see {@link ConstantFolding})
+	 */
+	public abstract boolean isFoldingConstants();
+	
 	public default <N extends Node<?>> List<Node<?>> collectForward(final N node) {
-		return this.getForwards().computeIfAbsent(node, __ -> {
-			final List<Node<?>> result = new ArrayList<>(node.accept(new ForwardCollector(true)));
+		final List<Node<?>> result = this.getForwards().computeIfAbsent(node, __ -> {
+			final List<Node<?>> nodes = new ArrayList<>(node.accept(new ForwardCollector(true)));
 			
-			reverse(result);
+			reverse(nodes);
 			
-			return result;
+			if (this.isFoldingConstants()) {
+				final ConstantFolding folding = new ConstantFolding(nodes);
+				
+				if (!folding.getNodes().isEmpty()) {
+					this.getConstantFoldings().put(node, folding);
+					nodes.removeIf(folding::isFolded);
+				}
+			}
+			
+			return this.isFusing() ? this.fuse(nodes) : nodes;
 		});
+		
+		final ConstantFolding folding = this.getConstantFoldings().get(node);
+		
+		if (folding != null && folding.isStale()) {
+			folding.evaluate(this);
+		}
+		
+		return result;
 	}
 	
 	public default <N extends Node<?>> List<Node<?>> collectBackwardDiff(final N node) {
@@ -74,10 +120,91 @@ public abstract interface NodeProcessor extends Serializable {
 				SwingTools.show(JGraphXTools.newGraphComponent(result, 160, 50), "view", false);
 			}
 			
-			return result;
+			return this.isFusing() ? this.fuse(result) : result;
 		});
 	}
 	
+	/**
+	 * Replaces the chains of elementwise nodes of <code>nodes</code> (in evaluation order) with {@link Fusion}s.
+	 * <br>A node is fused into its consumer if it is a {@link Mapping} or a non-reducing {@link Zipping}
+	 * with the same length as its consumer, if the consumer is its only reader in <code>nodes</code>,
+	 * and if no other node contributes to its storage.
+	 */
+	public default List<Node<?>> fuse(final List<Node<?>> nodes) {
+		final Map<Node<?>, Integer> consumerCounts = new HashMap<>();
+		
+		for (final Node<?> node : nodes) {
+			for (final Node<?> argument : node.getArguments()) {
+				consumerCounts.merge(argument, 1, Integer::sum);
+			}
+		}
+		
+		final Map<Node<?>, List<Node<?>>> chains = new HashMap<>();
+		final Collection<Node<?>> fused = new HashSet<>();
+		
+		for (final Node<?> node : nodes) {
+			if (isElementwise(node)) {
+				final List<Node<?>> chain = new ArrayList<>();
+				
+				for (final Node<?> argument : node.getArguments()) {
+					if (chains.containsKey(argument) && consumerCounts.get(argument) == 1
+							&& argument.getLength() == node.getLength()
+							&& argument.getStorage().getContributors().stream().allMatch(c -> c == argument || c instanceof Data)) {
+						chain.addAll(chains.remove(argument));
+						fused.add(argument);
+					}
+				}
+				
+				chain.add(node);
+				chains.put(node, chain);
+			}
+		}
+		
+		final List<Node<?>> result = new ArrayList<>(nodes.size());
+		
+		for (final Node<?> node : nodes) {
+			final List<Node<?>> chain = chains.get(node);
+			
+			if (chain != null && 1 < chain.size()) {
+				result.add(new Fusion(chain));
+			} else if (!fused.contains(node)) {
+				result.add(node);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Recomputes the intermediates that have become needed since their fusion was created
+	 * (typically because diffs were set up after the first forward pass),
+	 * and replaces the stale fusions in the collected forward nodes.
+	 */
+	public default void updateFusions() {
+		for (final List<Node<?>> nodes : this.getForwards().values()) {
+			final int n = nodes.size();
+			
+			for (int i = 0; i < n; ++i) {
+				final Fusion fusion = Tools.cast(Fusion.class, nodes.get(i));
+				
+				if (fusion != null) {
+					final int[] staleSteps = fusion.getStaleSteps();
+					
+					if (0 < staleSteps.length) {
+						for (final int step : staleSteps) {
+							final List<Node<?>> prefix = singletonList(new Fusion(fusion.getSteps().subList(0, step + 1)));
+							
+							this.zeroComputationNodes(prefix);
+							this.forward(prefix);
+						}
+						
+						nodes.set(i, new Fusion(fusion.getSteps()));
+					}
+				}
+			}
+		}
+	}
+	
 	public default void zeroComputationNodes(final Collection<Node<?>> nodes) {
 		nodes.stream().filter(Node::isComputationNode).forEach(n -> this.fill(n, 0F));
 	}
@@ -104,6 +231,10 @@ public abstract interface NodeProcessor extends Serializable {
 				SwingTools.show(JGraphXTools.newGraphComponent(node), "view", true);
 			}
 			
+			if (this.isFusing()) {
+				this.updateFusions();
+			}
+			
 			final List<Node<?>> nodes = collectBackwardDiff(node);
 			
 			this.zeroComputationNodes(nodes);
@@ -121,10 +252,56 @@ public abstract interface NodeProcessor extends Serializable {
 		return node;
 	}
 	
+	public static boolean isElementwise(final Node<?> node) {
+		if (node instanceof Mapping) {
+			return true;
+		}
+		
+		if (node instanceof Zipping) {
+			final Zipping zipping = (Zipping) node;
+			final int l = zipping.getLength();
+			
+			return zipping.getLeft().getLength() <= l && zipping.getRight().getLength() <= l;
+		}
+		
+		return false;
+	}
+	
 	public default void reset() {
 		// NOP
 	}
 	
+	/**
+	 * Drops the nodes collected for <code>node</code> and their constant folding, and releases what the processor
+	 * derived from them (see {@link #releaseSchedule(List)}).
+	 * <br>They will be collected again if <code>node</code> is processed again.
+	 */
+	public default void evict(final Node<?> node) {
+		final List<Node<?>> forward = this.getForwards().remove(node);
+		final List<Node<?>> backward = this.getBackwards().remove(node);
+		final ConstantFolding folding = this.getConstantFoldings().remove(node);
+		
+		if (forward != null) {
+			this.releaseSchedule(forward);
+		}
+		
+		if (backward != null) {
+			this.releaseSchedule(backward);
+		}
+		
+		if (folding != null) {
+			this.releaseSchedule(folding.getNodes());
+		}
+	}
+	
+	/**
+	 * Called for the schedules that are evicted from the caches of this processor.
+	 * <br>The nodes of <code>schedule</code> may still be used by other schedules.
+	 */
+	public default void releaseSchedule(final List<Node<?>> schedule) {
+		ignore(schedule);
+	}
+	
 	public default void forward(final Iterable<Node<?>> nodes) {
 		nodes.forEach(n -> n.accept(this.getForwarder()));
 	}
@@ -185,34 +362,47 @@ public abstract interface NodeProcessor extends Serializable {
 	}
 	
 	/**
+	 * Collects the nodes needed to compute the accepted nodes, each node after all the nodes that need it
+	 * (so the result is in reverse evaluation order), including the contributors of the storages read through {@link Data} nodes.
+	 * <br>The order is computed lazily, in linear time, when the result is iterated:
+	 * the accepted nodes are visited from the last one to the first one, and their arguments depth-first,
+	 * so that nodes accepted later are evaluated earlier unless they depend on nodes accepted earlier.
+	 * <br>Since the order is only computed then, it also takes into account the contributors added
+	 * to already accepted storages (eg by {@link BackwardDiffCollector}).
+	 * 
 	 * @author codistmonk (creation 2016-08-02)
 	 */
 	public static final class ForwardCollector implements NodeVisitor<Collection<Node<?>>> {
 		
 		private final boolean unfolding;
 		
+		private final List<Node<?>> accepted;
+		
 		private final Collection<Node<?>> result;
 		
+		private transient Collection<Node<?>> order;
+		
 		public ForwardCollector(final boolean unfolding) {
 			this.unfolding = unfolding;
-			this.result = new LinkedHashSet<>();
+			this.accepted = new ArrayList<>();
+			this.result = new Result();
 		}
 		
 		public final boolean isUnfolding() {
 			return this.unfolding;
 		}
 		
+		/**
+		 * @return A view of the collected nodes, in reverse evaluation order
+		 */
 		public final Collection<Node<?>> getResult() {
 			return this.result;
 		}
 		
 		@Override
 		public final Collection<Node<?>> visit(final Node<?> node) {
-			// for ordered collections, make sure this is added after its dependents
-			this.result.remove(node);
-			this.result.add(node);
-			
-			node.getArguments().forEach(a -> a.accept(this));
+			this.accepted.add(node);
+			this.order = null;
 			
 			return this.getResult();
 		}
@@ -222,8 +412,110 @@ public abstract interface NodeProcessor extends Serializable {
 			return this.isUnfolding() ? node.unfold().accept(this) : this.visit((Node<?>) node);
 		}
 		
+		final Collection<Node<?>> getOrder() {
+			if (this.order == null) {
+				final List<Node<?>> postorder = new ArrayList<>();
+				final Collection<Node<?>> done = new HashSet<>();
+				
+				for (int i = this.accepted.size() - 1; 0 <= i; --i) {
+					this.collect(this.accepted.get(i), done, postorder);
+				}
+				
+				reverse(postorder);
+				
+				this.order = new LinkedHashSet<>(postorder);
+			}
+			
+			return this.order;
+		}
+		
+		/**
+		 * Appends the nodes needed by <code>root</code> that are not <code>done</code> yet to <code>postorder</code>,
+		 * each node after its arguments, without recursion so that deep graphs cannot overflow the stack.
+		 */
+		private final void collect(final Node<?> root, final Collection<Node<?>> done, final List<Node<?>> postorder) {
+			final Node<?> start = this.resolve(root);
+			
+			if (!done.add(start)) {
+				return;
+			}
+			
+			final Deque<Step> steps = new ArrayDeque<>();
+			
+			steps.push(new Step(start));
+			
+			while (!steps.isEmpty()) {
+				final Step step = steps.peek();
+				
+				if (0 < step.remaining) {
+					// arguments are visited last to first, like accepted nodes
+					final Node<?> argument = this.resolve(step.arguments.get(--step.remaining));
+					
+					if (done.add(argument)) {
+						steps.push(new Step(argument));
+					}
+				} else {
+					steps.pop();
+					postorder.add(step.node);
+				}
+			}
+		}
+		
+		private final Node<?> resolve(final Node<?> node) {
+			Node<?> result = node;
+			
+			while (this.isUnfolding() && result instanceof CustomNode) {
+				result = ((CustomNode<?>) result).unfold();
+			}
+			
+			return result;
+		}
+		
 		private static final long serialVersionUID = 7381617866288668668L;
 		
+		/**
+		 * @author codistmonk (creation 2026-10-18)
+		 */
+		private static final class Step {
+			
+			final Node<?> node;
+			
+			final List<Node<?>> arguments;
+			
+			int remaining;
+			
+			Step(final Node<?> node) {
+				this.node = node;
+				this.arguments = node.getArguments();
+				this.remaining = this.arguments.size();
+			}
+			
+		}
+		
+		/**
+		 * @author codistmonk (creation 2026-10-18)
+		 */
+		private final class Result extends AbstractCollection<Node<?>> implements Serializable {
+			
+			@Override
+			public final Iterator<Node<?>> iterator() {
+				return getOrder().iterator();
+			}
+			
+			@Override
+			public final int size() {
+				return getOrder().size();
+			}
+			
+			@Override
+			public final boolean contains(final Object object) {
+				return getOrder().contains(object);
+			}
+			
+			private static final long serialVersionUID = -3017383497498040950L;
+			
+		}
+		
 	}
 	
 	/**
@@ -394,6 +686,116 @@ public abstract interface NodeProcessor extends Serializable {
 			return this.visit((Node<?>) node);
 		}
 		
+		@Override
+		public final Collection<Node<?>> visit(final Reduction node) {
+			if (!this.done.add(node) || !node.hasDiffs()) {
+				return this.forwardCollector.getResult();
+			}
+			
+			final Node<?> argumentDiffs = node.getArgument().getDiffs();
+			
+			if (argumentDiffs != null) {
+				new Reduction().setStrides(node.getStrides()).setTransposed(!node.isTransposed())
+				.setArgument(node.getDiffs())
+				.setStorage(argumentDiffs).setShape(argumentDiffs.getShape())
+				.accept(this.forwardCollector);
+			}
+			
+			return this.visit((Node<?>) node);
+		}
+		
+		@Override
+		public final Collection<Node<?>> visit(final Gathering node) {
+			if (!this.done.add(node) || !node.hasDiffs()) {
+				return this.forwardCollector.getResult();
+			}
+			
+			final Node<?> argumentDiffs = node.getArgument().getDiffs();
+			
+			if (argumentDiffs != null) {
+				new Gathering().setTransposed(!node.isTransposed())
+				.setArgument(node.getDiffs()).setIndices(node.getIndices())
+				.setStorage(argumentDiffs).setShape(argumentDiffs.getShape())
+				.accept(this.forwardCollector);
+			}
+			
+			return this.visit((Node<?>) node);
+		}
+		
+		@Override
+		public final Collection<Node<?>> visit(final Convolution node) {
+			if (!this.done.add(node) || !node.hasDiffs()) {
+				return this.forwardCollector.getResult();
+			}
+			
+			/*
+			 * The three operations are bilinear, and adjoint to one another:
+			 *   <conv(X, K), Y.diff> = <X, inputsDiffs(Y.diff, K)> = <K, kernelsDiffs(X, Y.diff)>
+			 * 
+			 * Y += conv(X, K)
+			 *   X.diff += inputsDiffs(Y.diff, K)
+			 *   K.diff += kernelsDiffs(X, Y.diff)
+			 * 
+			 * X += inputsDiffs(D, K)
+			 *   D.diff += conv(X.diff, K)
+			 *   K.diff += kernelsDiffs(X.diff, D)
+			 * 
+			 * K += kernelsDiffs(X, D)
+			 *   X.diff += inputsDiffs(D, K.diff)
+			 *   D.diff += conv(X, K.diff)
+			 */
+			
+			final Node<?> left = node.getLeft();
+			final Node<?> right = node.getRight();
+			final Node<?> diffs = node.getDiffs();
+			
+			switch (node.getOperation()) {
+			case CONVOLUTION:
+				this.collectConvolution(node, Convolution.Operation.INPUTS_DIFFS, diffs, right, left.getDiffs());
+				this.collectConvolution(node, Convolution.Operation.KERNELS_DIFFS, left, diffs, right.getDiffs());
+				break;
+			case INPUTS_DIFFS:
+				this.collectConvolution(node, Convolution.Operation.CONVOLUTION, diffs, right, left.getDiffs());
+				this.collectConvolution(node, Convolution.Operation.KERNELS_DIFFS, diffs, left, right.getDiffs());
+				break;
+			case KERNELS_DIFFS:
+				this.collectConvolution(node, Convolution.Operation.INPUTS_DIFFS, right, diffs, left.getDiffs());
+				this.collectConvolution(node, Convolution.Operation.CONVOLUTION, left, diffs, right.getDiffs());
+				break;
+			}
+			
+			return this.visit((Node<?>) node);
+		}
+		
+		private final void collectConvolution(final Convolution node, final Convolution.Operation operation,
+				final Node<?> left, final Node<?> right, final Node<?> target) {
+			if (target != null) {
+				new Convolution(node.getSampling()).setOperation(operation)
+				.setLeft(left).setRight(right)
+				.setStorage(target).setShape(target.getShape())
+				.accept(this.forwardCollector);
+			}
+		}
+		
+		@Override
+		public final Collection<Node<?>> visit(final Pooling node) {
+			if (!this.done.add(node) || !node.hasDiffs()) {
+				return this.forwardCollector.getResult();
+			}
+			
+			final Node<?> inputsDiffs = node.getInputs().getDiffs();
+			
+			if (inputsDiffs != null) {
+				// inputs are seen as a single row of inputCount chunks, each one indexed by a row of argmaxes
+				new Gathering().setTransposed(true)
+				.setArgument(node.getDiffs()).setIndices(node.getIndices())
+				.setStorage(inputsDiffs).setShape(node.getGrid().getInputCount(), node.getGrid().getInputSize())
+				.accept(this.forwardCollector);
+			}
+			
+			return this.visit((Node<?>) node);
+		}
+		
 		@Override
 		public final Collection<Node<?>> visit(final CustomNode<?> node) {
 			if (!this.done.add(node) || !node.hasDiffs()) {
@@ -407,4 +809,37 @@ public abstract interface NodeProcessor extends Serializable {
 		
 	}
 	
+	/**
+	 * Provides the nodes written by a node in addition to its result
+	 * (CL kernels take them as arguments after the result).
+	 * 
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static final class SideOutputsGetter implements NodeVisitor<List<Node<?>>> {
+		
+		@Override
+		public final List<Node<?>> visit(final Node<?> node) {
+			return emptyList();
+		}
+		
+		@Override
+		public final List<Node<?>> visit(final Pooling node) {
+			return singletonList(node.getIndices());
+		}
+		
+		@Override
+		public final List<Node<?>> visit(final Fusion node) {
+			final List<Node<?>> result = new ArrayList<>();
+			
+			for (final int s : node.getMaterializedIntermediates()) {
+				result.add(node.getSteps().get(s));
+			}
+			
+			return result;
+		}
+		
+		private static final long serialVersionUID = -3192870375468937412L;
+		
+	}
+	
 }
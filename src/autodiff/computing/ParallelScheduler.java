@@ -0,0 +1,214 @@
+package autodiff.computing;
+
+import static java.util.Collections.emptyList;
+import static multij.tools.Tools.unchecked;
+
+import autodiff.computing.NodeProcessor.SideOutputsGetter;
+import autodiff.nodes.Node;
+import autodiff.nodes.Storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Runs the nodes of an evaluation order on a fork-join pool, each node being dispatched as soon as
+ * the nodes it depends on are done, so that independent branches of a graph run concurrently.
+ * <br>Dependencies are derived from the storages read (arguments) and written (result and side outputs)
+ * by computation nodes: a node waits for the last previous writer of each storage it reads or writes,
+ * and for the previous readers of each storage it writes.
+ * <br>In particular, the nodes accumulating into a shared storage (eg the diffs of a node with several consumers)
+ * still run one at a time and in evaluation order, so results do not depend on the schedule.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class ParallelScheduler {
+	
+	private ParallelScheduler() {
+		throw new IllegalInstantiationException();
+	}
+	
+	/**
+	 * @return For each node of <code>nodes</code>, the indices of the previous nodes it depends on
+	 */
+	public static final int[][] getDependencies(final List<Node<?>> nodes) {
+		return getDependencies(nodes, storage -> storage);
+	}
+	
+	/**
+	 * @param memoryKey Maps storages to objects that are equal for storages sharing memory (see {@link MemoryPlan})
+	 * @return For each node of <code>nodes</code>, the indices of the previous nodes it depends on
+	 */
+	public static final int[][] getDependencies(final List<Node<?>> nodes, final Function<Storage, Object> memoryKey) {
+		final int n = nodes.size();
+		final int[][] result = new int[n][];
+		final SideOutputsGetter sideOutputsGetter = new SideOutputsGetter();
+		final Map<Object, Integer> lastWriters = new HashMap<>();
+		final Map<Object, List<Integer>> readers = new HashMap<>();
+		
+		for (int i = 0; i < n; ++i) {
+			final Node<?> node = nodes.get(i);
+			final Set<Integer> dependencies = new LinkedHashSet<>();
+			
+			if (node.isComputationNode()) {
+				final List<Object> outputs = new ArrayList<>();
+				
+				outputs.add(memoryKey.apply(node.getStorage()));
+				node.accept(sideOutputsGetter).forEach(sideOutput -> outputs.add(memoryKey.apply(sideOutput.getStorage())));
+				
+				for (final Node<?> argument : node.getArguments()) {
+					final Integer writer = lastWriters.get(memoryKey.apply(argument.getStorage()));
+					
+					if (writer != null) {
+						dependencies.add(writer);
+					}
+				}
+				
+				for (final Object output : outputs) {
+					final Integer writer = lastWriters.get(output);
+					
+					if (writer != null) {
+						dependencies.add(writer);
+					}
+					
+					dependencies.addAll(readers.getOrDefault(output, emptyList()));
+				}
+				
+				for (final Node<?> argument : node.getArguments()) {
+					readers.computeIfAbsent(memoryKey.apply(argument.getStorage()), __ -> new ArrayList<>()).add(i);
+				}
+				
+				for (final Object output : outputs) {
+					lastWriters.put(output, i);
+					readers.remove(output);
+				}
+			}
+			
+			dependencies.remove(i);
+			
+			result[i] = dependencies.stream().mapToInt(Integer::intValue).toArray();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Applies <code>action</code> to each node of <code>nodes</code> on <code>pool</code>, respecting the dependencies
+	 * given by {@link #getDependencies(List)}, and returns when all are done.
+	 * <br>If an action fails, no other node is started and the first failure is rethrown.
+	 */
+	public static final void run(final List<Node<?>> nodes, final ForkJoinPool pool, final Consumer<Node<?>> action) {
+		run(nodes, storage -> storage, pool, action);
+	}
+	
+	/**
+	 * Applies <code>action</code> to each node of <code>nodes</code> on <code>pool</code>, respecting the dependencies
+	 * given by {@link #getDependencies(List, Function)}, and returns when all are done.
+	 * <br>If an action fails, no other node is started and the first failure is rethrown.
+	 */
+	public static final void run(final List<Node<?>> nodes, final Function<Storage, Object> memoryKey,
+			final ForkJoinPool pool, final Consumer<Node<?>> action) {
+		final int n = nodes.size();
+		final int[][] dependencies = getDependencies(nodes, memoryKey);
+		final AtomicInteger[] pendingDependencyCounts = new AtomicInteger[n];
+		final List<List<Integer>> successors = new ArrayList<>(n);
+		final CountDownLatch done = new CountDownLatch(n);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		
+		for (int i = 0; i < n; ++i) {
+			pendingDependencyCounts[i] = new AtomicInteger(dependencies[i].length);
+			successors.add(new ArrayList<>());
+		}
+		
+		for (int i = 0; i < n; ++i) {
+			for (final int dependency : dependencies[i]) {
+				successors.get(dependency).add(i);
+			}
+		}
+		
+		/**
+		 * @author codistmonk (creation 2026-10-18)
+		 */
+		final class Task extends RecursiveAction {
+			
+			private final int index;
+			
+			Task(final int index) {
+				this.index = index;
+			}
+			
+			@Override
+			protected final void compute() {
+				try {
+					if (failure.get() == null) {
+						action.accept(nodes.get(this.index));
+					}
+				} catch (final Throwable exception) {
+					failure.compareAndSet(null, exception);
+				} finally {
+					for (final int successor : successors.get(this.index)) {
+						if (pendingDependencyCounts[successor].decrementAndGet() == 0) {
+							new Task(successor).fork();
+						}
+					}
+					
+					done.countDown();
+				}
+			}
+			
+			private static final long serialVersionUID = 2361874658386451337L;
+			
+		}
+		
+		for (int i = 0; i < n; ++i) {
+			if (dependencies[i].length == 0) {
+				pool.execute(new Task(i));
+			}
+		}
+		
+		try {
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+				
+				@Override
+				public final boolean block() throws InterruptedException {
+					done.await();
+					
+					return true;
+				}
+				
+				@Override
+				public final boolean isReleasable() {
+					return done.getCount() == 0L;
+				}
+				
+			});
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			
+			throw unchecked(exception);
+		}
+		
+		final Throwable throwable = failure.get();
+		
+		if (throwable instanceof Error) {
+			throw (Error) throwable;
+		}
+		
+		if (throwable != null) {
+			throw unchecked(throwable);
+		}
+	}
+	
+}
@@ -0,0 +1,144 @@
+package autodiff.computing;
+
+import static multij.tools.Tools.debugError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Compiles generated Java sources in memory and loads them in a fresh class loader.
+ * <br>Compilation requires a JDK (on a plain JRE, {@link #isAvailable()} returns <code>false</code>)
+ * and the classes referenced by the sources must be on <code>java.class.path</code>;
+ * callers are expected to fall back to interpretation when {@link #compile(String, String)} returns <code>null</code>.
+ * <br>Compilation errors, which mean that a generated source is invalid, are reported through {@link multij.tools.Tools#debugError(Object...)}.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class RuntimeCompiler {
+	
+	private RuntimeCompiler() {
+		throw new IllegalInstantiationException();
+	}
+	
+	private static final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	
+	private static final AtomicLong lastClassId = new AtomicLong();
+	
+	public static final boolean isAvailable() {
+		return compiler != null;
+	}
+	
+	/**
+	 * @return A new class name prefixed with <code>prefix</code>, in the default package
+	 */
+	public static final String newClassName(final String prefix) {
+		return prefix + lastClassId.incrementAndGet();
+	}
+	
+	/**
+	 * @return The compiled class, or <code>null</code> if compilation is not available or failed
+	 */
+	public static final synchronized Class<?> compile(final String className, final String source) {
+		if (!isAvailable()) {
+			return null;
+		}
+		
+		final Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+		final JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+				compiler.getStandardFileManager(null, null, null)) {
+			
+			@Override
+			public final JavaFileObject getJavaFileForOutput(final Location location, final String name,
+					final Kind kind, final FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("bytes:///" + name.replace('.', '/') + kind.extension), kind) {
+					
+					@Override
+					public final OutputStream openOutputStream() {
+						return classes.computeIfAbsent(name, __ -> new ByteArrayOutputStream());
+					}
+					
+				};
+			}
+			
+		};
+		final JavaFileObject sourceFile = new SimpleJavaFileObject(
+				URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE) {
+			
+			@Override
+			public final CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+				return source;
+			}
+			
+		};
+		final StringWriter diagnostics = new StringWriter();
+		
+		if (!compiler.getTask(diagnostics, fileManager, null,
+				Arrays.asList("-classpath", System.getProperty("java.class.path"), "-g:none"),
+				null, Collections.singletonList(sourceFile)).call()) {
+			debugError(diagnostics);
+			
+			return null;
+		}
+		
+		try {
+			return new ClassLoader(RuntimeCompiler.class.getClassLoader()) {
+				
+				@Override
+				protected final Class<?> findClass(final String name) throws ClassNotFoundException {
+					final ByteArrayOutputStream bytes = classes.get(name);
+					
+					if (bytes == null) {
+						return super.findClass(name);
+					}
+					
+					final byte[] b = bytes.toByteArray();
+					
+					return this.defineClass(name, b, 0, b.length);
+				}
+				
+			}.loadClass(className);
+		} catch (final ClassNotFoundException exception) {
+			debugError(exception);
+			
+			return null;
+		}
+	}
+	
+	/**
+	 * @return A new instance of the compiled class, or <code>null</code> if compilation is not available or failed
+	 */
+	public static final <T> T newInstance(final Class<T> type, final String className, final String source) {
+		final Class<?> cls = compile(className, source);
+		
+		if (cls == null) {
+			return null;
+		}
+		
+		try {
+			return type.cast(cls.getDeclaredConstructor().newInstance());
+		} catch (final ReflectiveOperationException exception) {
+			debugError(exception);
+			
+			return null;
+		}
+	}
+	
+}
@@ -0,0 +1,327 @@
+package autodiff.computing;
+
+import autodiff.nodes.Node;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Maps nodes, compared by identity, to what a processor derives from them (eg their schedules),
+ * holding at most {@link #getCapacity()} entries: the least recently used entries are evicted first.
+ * <br>The nodes are held strongly, since a schedule usually references the node it was collected for anyway;
+ * graphs are released by the capacity or by {@link #remove(Object)}.
+ * <br>Evicted values (but not removed or cleared ones) are passed to the eviction listener,
+ * so that processors can release the resources associated with them (see {@link #setEvictionListener(BiConsumer)}).
+ * <br>All the methods are thread-safe and {@link #entrySet()} returns a snapshot.
+ * {@link #computeIfAbsent(Node, Function)} runs the mapping function without locking the cache,
+ * once per node: concurrent calls for the same node wait for its value, and calls for other nodes proceed.
+ * <br>The entries are not serialized.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class ScheduleCache<V> extends AbstractMap<Node<?>, V> implements Serializable {
+	
+	private transient Map<Key, V> entries;
+	
+	private transient Map<Node<?>, Computation<V>> computations;
+	
+	private transient long generation;
+	
+	private transient BiConsumer<Node<?>, V> evictionListener;
+	
+	private int capacity;
+	
+	private long hitCount;
+	
+	private long missCount;
+	
+	private long evictionCount;
+	
+	public ScheduleCache() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public ScheduleCache(final int capacity) {
+		this.capacity = capacity;
+	}
+	
+	public final synchronized int getCapacity() {
+		return this.capacity;
+	}
+	
+	/**
+	 * Evicts the least recently used entries beyond <code>capacity</code>.
+	 */
+	public final synchronized ScheduleCache<V> setCapacity(final int capacity) {
+		this.capacity = capacity;
+		
+		this.evictExcess();
+		
+		return this;
+	}
+	
+	public final synchronized BiConsumer<Node<?>, V> getEvictionListener() {
+		return this.evictionListener;
+	}
+	
+	/**
+	 * @param evictionListener Receives the entries evicted because of the capacity; <code>null</code> to ignore them
+	 */
+	public final synchronized ScheduleCache<V> setEvictionListener(final BiConsumer<Node<?>, V> evictionListener) {
+		this.evictionListener = evictionListener;
+		
+		return this;
+	}
+	
+	/**
+	 * @return The number of calls to {@link #get(Object)} (or {@link #computeIfAbsent(Node, Function)}) that found a value
+	 */
+	public final synchronized long getHitCount() {
+		return this.hitCount;
+	}
+	
+	/**
+	 * @return The number of calls to {@link #get(Object)} (or {@link #computeIfAbsent(Node, Function)}) that found no value
+	 */
+	public final synchronized long getMissCount() {
+		return this.missCount;
+	}
+	
+	public final synchronized long getEvictionCount() {
+		return this.evictionCount;
+	}
+	
+	public final synchronized void resetCounts() {
+		this.hitCount = 0L;
+		this.missCount = 0L;
+		this.evictionCount = 0L;
+	}
+	
+	@Override
+	public final synchronized V get(final Object key) {
+		final V result = this.getEntries().get(new Key(key));
+		
+		if (result != null) {
+			++this.hitCount;
+		} else {
+			++this.missCount;
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public final synchronized boolean containsKey(final Object key) {
+		return this.getEntries().containsKey(new Key(key));
+	}
+	
+	@Override
+	public final synchronized V put(final Node<?> key, final V value) {
+		final V result = this.getEntries().put(new Key(key), value);
+		
+		this.evictExcess();
+		
+		return result;
+	}
+	
+	@Override
+	public final V computeIfAbsent(final Node<?> key, final Function<? super Node<?>, ? extends V> mappingFunction) {
+		final Computation<V> pending;
+		final Computation<V> computation;
+		final long generation;
+		
+		synchronized (this) {
+			final V result = this.get(key);
+			
+			if (result != null) {
+				return result;
+			}
+			
+			pending = this.getComputations().get(key);
+			computation = pending == null ? new Computation<>() : null;
+			generation = this.generation;
+			
+			if (computation != null) {
+				this.getComputations().put(key, computation);
+			}
+		}
+		
+		if (pending != null) {
+			// a reentrant call from the mapping function cannot wait for itself, so it computes a value that is not cached
+			return pending.getThread() == Thread.currentThread() ? mappingFunction.apply(key) : pending.await();
+		}
+		
+		try {
+			final V result = mappingFunction.apply(key);
+			
+			synchronized (this) {
+				this.getComputations().remove(key);
+				
+				// a value derived before a clear or a removal may be stale
+				if (result != null && generation == this.generation) {
+					this.put(key, result);
+				}
+			}
+			
+			computation.complete(result);
+			
+			return result;
+		} catch (final RuntimeException | Error exception) {
+			synchronized (this) {
+				this.getComputations().remove(key);
+			}
+			
+			computation.completeExceptionally(exception);
+			
+			throw exception;
+		}
+	}
+	
+	@Override
+	public final synchronized V remove(final Object key) {
+		++this.generation;
+		
+		return this.getEntries().remove(new Key(key));
+	}
+	
+	@Override
+	public final synchronized void clear() {
+		++this.generation;
+		
+		this.getEntries().clear();
+	}
+	
+	@Override
+	public final synchronized int size() {
+		return this.getEntries().size();
+	}
+	
+	@Override
+	public final synchronized Set<Map.Entry<Node<?>, V>> entrySet() {
+		final Map<Node<?>, V> result = new LinkedHashMap<>();
+		
+		this.getEntries().forEach((key, value) -> result.put(key.get(), value));
+		
+		return result.entrySet();
+	}
+	
+	@Override
+	public final synchronized String toString() {
+		return "{size: " + this.size() + ", capacity: " + this.getCapacity()
+			+ ", hits: " + this.getHitCount() + ", misses: " + this.getMissCount() + ", evictions: " + this.getEvictionCount() + "}";
+	}
+	
+	private final Map<Key, V> getEntries() {
+		if (this.entries == null) {
+			this.entries = new LinkedHashMap<>(16, 0.75F, true);
+		}
+		
+		return this.entries;
+	}
+	
+	private final Map<Node<?>, Computation<V>> getComputations() {
+		if (this.computations == null) {
+			this.computations = new IdentityHashMap<>();
+		}
+		
+		return this.computations;
+	}
+	
+	private final void evictExcess() {
+		final Map<Key, V> entries = this.getEntries();
+		
+		while (Math.max(1, this.getCapacity()) < entries.size()) {
+			final Map.Entry<Key, V> eldest = entries.entrySet().iterator().next();
+			
+			entries.remove(eldest.getKey());
+			this.evicted(eldest.getKey().get(), eldest.getValue());
+		}
+	}
+	
+	private final void evicted(final Node<?> node, final V value) {
+		if (value != null) {
+			++this.evictionCount;
+			
+			if (this.evictionListener != null) {
+				this.evictionListener.accept(node, value);
+			}
+		}
+	}
+	
+	private static final long serialVersionUID = -2403427470806185338L;
+	
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private static final class Key {
+		
+		private final Node<?> node;
+		
+		Key(final Object node) {
+			this.node = node instanceof Node ? (Node<?>) node : null;
+		}
+		
+		public final Node<?> get() {
+			return this.node;
+		}
+		
+		@Override
+		public final int hashCode() {
+			return System.identityHashCode(this.node);
+		}
+		
+		@Override
+		public final boolean equals(final Object object) {
+			return object instanceof Key && ((Key) object).get() == this.get();
+		}
+		
+	}
+	
+	/**
+	 * The value of a node being computed by {@link ScheduleCache#computeIfAbsent(Node, Function)}.
+	 * 
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private static final class Computation<V> extends CompletableFuture<V> {
+		
+		private final Thread thread = Thread.currentThread();
+		
+		public final Thread getThread() {
+			return this.thread;
+		}
+		
+		/**
+		 * @return The value, after waiting for it
+		 * @throws RuntimeException or Error thrown by the mapping function
+		 */
+		public final V await() {
+			try {
+				return this.join();
+			} catch (final CompletionException exception) {
+				final Throwable cause = exception.getCause();
+				
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				
+				throw exception;
+			}
+		}
+		
+	}
+	
+}
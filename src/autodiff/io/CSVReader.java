@@ -0,0 +1,444 @@
+package autodiff.io;
+
+import autodiff.nodes.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import multij.primitivelists.IntList;
+
+/**
+ * Parses numerical CSV files straight into float buffers, without intermediate records.
+ * <br>The file is memory-mapped one window of at most {@link #getWindowBytes()} bytes at a time,
+ * each window ending at a line boundary; a window is split at line boundaries into chunks that are parsed in parallel,
+ * so that memory stays bounded whatever the size of the file.
+ * <br>Empty lines are ignored, and non-numerical cells are replaced by their class index in their column,
+ * classes being numbered in order of first appearance in the file as in {@link CSVParser.FloatData}.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class CSVReader {
+	
+	private byte separator;
+	
+	private int parallelism;
+	
+	private int windowBytes;
+	
+	private int columnCount;
+	
+	private final Map<Integer, CSVParser.BiMap<String, Integer>> categories;
+	
+	public CSVReader() {
+		this.separator = ',';
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+		this.windowBytes = DEFAULT_WINDOW_BYTES;
+		this.columnCount = -1;
+		this.categories = new HashMap<>();
+	}
+	
+	public final char getSeparator() {
+		return (char) this.separator;
+	}
+	
+	/**
+	 * @param separator An ASCII character
+	 */
+	public final CSVReader setSeparator(final char separator) {
+		if (0x7F < separator) {
+			throw new IllegalArgumentException("Non-ASCII separator: " + separator);
+		}
+		
+		this.separator = (byte) separator;
+		
+		return this;
+	}
+	
+	public final int getParallelism() {
+		return this.parallelism;
+	}
+	
+	public final CSVReader setParallelism(final int parallelism) {
+		this.parallelism = parallelism;
+		
+		return this;
+	}
+	
+	public final int getWindowBytes() {
+		return this.windowBytes;
+	}
+	
+	/**
+	 * @param windowBytes Must exceed the length of the longest line
+	 */
+	public final CSVReader setWindowBytes(final int windowBytes) {
+		this.windowBytes = windowBytes;
+		
+		return this;
+	}
+	
+	/**
+	 * @return The number of cells in each line of the last file read, or -1
+	 */
+	public final int getColumnCount() {
+		return this.columnCount;
+	}
+	
+	/**
+	 * @return The classes of the non-numerical cells of the last file read, by column
+	 */
+	public final Map<Integer, CSVParser.BiMap<String, Integer>> getCategories() {
+		return this.categories;
+	}
+	
+	/**
+	 * @return <code>{ rows, columns }</code>, counted without parsing the cells
+	 */
+	public final int[] getShape(final File file) {
+		final long[] rows = { 0L };
+		
+		this.forEachWindow(file, null, (values, n) -> rows[0] += n);
+		
+		if (Integer.MAX_VALUE < rows[0]) {
+			throw new IllegalArgumentException("Too many rows: " + rows[0]);
+		}
+		
+		return new int[] { (int) rows[0], this.getColumnCount() };
+	}
+	
+	/**
+	 * Reads <code>file</code> into a new <code>rows × columns</code> node, whose storage is filled directly.
+	 */
+	public final Data read(final File file) {
+		final Data result = new Data().setShape(this.getShape(file));
+		
+		this.readInto(file, result.getFloatBuffer().duplicate());
+		
+		return result;
+	}
+	
+	/**
+	 * Puts the values of <code>file</code> row by row into <code>target</code>, from its position.
+	 * 
+	 * @return The number of rows
+	 */
+	public final int readInto(final File file, final FloatBuffer target) {
+		final long[] rows = { 0L };
+		
+		this.forEachWindow(file, ByteBuffer.allocateDirect(0), (values, n) -> {
+			target.put(values);
+			rows[0] += n;
+		});
+		
+		return (int) rows[0];
+	}
+	
+	/**
+	 * Parses <code>file</code> window by window, passing the values of each window to <code>processor</code>.
+	 * <br>The buffer passed to <code>processor</code> is reused for the next window.
+	 */
+	public final void forEach(final File file, final WindowProcessor processor) {
+		this.forEachWindow(file, ByteBuffer.allocateDirect(0), processor);
+	}
+	
+	/**
+	 * @param output <code>null</code> to count rows only, otherwise an initial buffer for the values
+	 */
+	private final void forEachWindow(final File file, final ByteBuffer output, final WindowProcessor processor) {
+		this.columnCount = -1;
+		this.categories.clear();
+		
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			ByteBuffer values = output;
+			long start = 0L;
+			
+			while (start < size) {
+				final MappedByteBuffer window = channel.map(MapMode.READ_ONLY, start, Math.min(this.getWindowBytes(), size - start));
+				int end = window.limit();
+				
+				if (start + end < size) {
+					while (0 < end && window.get(end - 1) != '\n') {
+						--end;
+					}
+					
+					if (end == 0) {
+						throw new IOException("Line longer than " + this.getWindowBytes() + " bytes at offset " + start);
+					}
+				}
+				
+				if (this.columnCount < 0) {
+					this.columnCount = this.countColumns(window, end);
+				}
+				
+				final int[] boundaries = this.split(window, end);
+				final int chunkCount = boundaries.length - 1;
+				final int[] rowOffsets = new int[chunkCount + 1];
+				
+				IntStream.range(0, chunkCount).parallel().forEach(
+						i -> rowOffsets[i + 1] = countRows(window, boundaries[i], boundaries[i + 1]));
+				
+				for (int i = 0; i < chunkCount; ++i) {
+					rowOffsets[i + 1] += rowOffsets[i];
+				}
+				
+				final int rows = rowOffsets[chunkCount];
+				
+				if (values == null) {
+					processor.process(null, rows);
+				} else {
+					final int n = rows * Math.max(0, this.columnCount);
+					
+					if (values.capacity() < Float.BYTES * n) {
+						values = ByteBuffer.allocateDirect(Float.BYTES * n).order(ByteOrder.nativeOrder());
+					}
+					
+					final FloatBuffer floats = values.asFloatBuffer();
+					final Chunk[] chunks = new Chunk[chunkCount];
+					
+					IntStream.range(0, chunkCount).parallel().forEach(i -> chunks[i] = this.new Chunk(window,
+							boundaries[i], boundaries[i + 1], floats, rowOffsets[i] * this.columnCount));
+					
+					// classes are numbered sequentially, in chunk order, as if the file had been parsed in one pass
+					for (final Chunk chunk : chunks) {
+						chunk.mergeCategories(floats);
+					}
+					
+					floats.limit(n);
+					processor.process(floats, rows);
+				}
+				
+				start += end;
+			}
+			
+			if (this.columnCount < 0) {
+				this.columnCount = 0;
+			}
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
+	private final int countColumns(final ByteBuffer window, final int end) {
+		for (int i = 0; i < end;) {
+			final int lineEnd = findLineEnd(window, i, end);
+			
+			if (trimLineEnd(window, i, lineEnd) != i) {
+				int result = 1;
+				
+				for (int j = i; j < lineEnd; ++j) {
+					if (window.get(j) == this.separator) {
+						++result;
+					}
+				}
+				
+				return result;
+			}
+			
+			i = lineEnd + 1;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * @return The offsets of the chunks of <code>[0 .. end)</code>, each chunk but the last ending after a newline
+	 */
+	private final int[] split(final ByteBuffer window, final int end) {
+		final int chunkCount = Math.max(1, Math.min(this.getParallelism(), end / MINIMUM_CHUNK_BYTES));
+		final IntList result = new IntList(chunkCount + 1);
+		
+		result.add(0);
+		
+		for (int i = 1; i < chunkCount; ++i) {
+			int boundary = Math.max(result.get(result.size() - 1), (int) ((long) end * i / chunkCount));
+			
+			while (boundary < end && (boundary == 0 || window.get(boundary - 1) != '\n')) {
+				++boundary;
+			}
+			
+			if (result.get(result.size() - 1) < boundary && boundary < end) {
+				result.add(boundary);
+			}
+		}
+		
+		result.add(end);
+		
+		return result.toArray();
+	}
+	
+	public static final int DEFAULT_WINDOW_BYTES = 1 << 26;
+	
+	public static final int MINIMUM_CHUNK_BYTES = 1 << 16;
+	
+	static final int countRows(final ByteBuffer window, final int begin, final int end) {
+		int result = 0;
+		
+		for (int i = begin; i < end;) {
+			final int lineEnd = findLineEnd(window, i, end);
+			
+			if (trimLineEnd(window, i, lineEnd) != i) {
+				++result;
+			}
+			
+			i = lineEnd + 1;
+		}
+		
+		return result;
+	}
+	
+	static final int findLineEnd(final ByteBuffer window, final int begin, final int end) {
+		int result = begin;
+		
+		while (result < end && window.get(result) != '\n') {
+			++result;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return The end of the line without its trailing carriage returns and spaces
+	 */
+	static final int trimLineEnd(final ByteBuffer window, final int begin, final int end) {
+		int result = end;
+		
+		while (begin < result && (window.get(result - 1) == '\r' || window.get(result - 1) == ' ')) {
+			--result;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static abstract interface WindowProcessor {
+		
+		/**
+		 * @param values <code>null</code> when only counting rows
+		 */
+		public abstract void process(FloatBuffer values, int rows) throws IOException;
+		
+	}
+	
+	/**
+	 * Parses lines into a region of the output, numbering the classes of non-numerical cells locally.
+	 * 
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private final class Chunk {
+		
+		private final Map<Integer, List<String>> localClasses;
+		
+		private final IntList categoricalCells;
+		
+		Chunk(final ByteBuffer window, final int begin, final int end, final FloatBuffer output, final int outputOffset) {
+			final int columns = CSVReader.this.getColumnCount();
+			final byte separator = CSVReader.this.separator;
+			final Map<Integer, Map<String, Integer>> localIndices = new HashMap<>();
+			byte[] bytes = new byte[256];
+			int k = outputOffset;
+			
+			this.localClasses = new LinkedHashMap<>();
+			this.categoricalCells = new IntList();
+			
+			for (int i = begin; i < end;) {
+				final int lineEnd = findLineEnd(window, i, end);
+				final int contentEnd = trimLineEnd(window, i, lineEnd);
+				
+				if (contentEnd != i) {
+					int column = 0;
+					
+					for (int cellBegin = i; cellBegin <= contentEnd; ++column) {
+						int cellEnd = cellBegin;
+						
+						while (cellEnd < contentEnd && window.get(cellEnd) != separator) {
+							++cellEnd;
+						}
+						
+						if (columns <= column) {
+							throw new IllegalArgumentException("Expected " + columns + " columns in line at " + i);
+						}
+						
+						final int length = cellEnd - cellBegin;
+						
+						if (bytes.length < length) {
+							bytes = new byte[2 * length];
+						}
+						
+						for (int j = 0; j < length; ++j) {
+							bytes[j] = window.get(cellBegin + j);
+						}
+						
+						final String cell = new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+						
+						try {
+							output.put(k, Float.parseFloat(cell));
+						} catch (final NumberFormatException exception) {
+							final Map<String, Integer> indices = localIndices.computeIfAbsent(column, __ -> new HashMap<>());
+							final List<String> classes = this.localClasses.computeIfAbsent(column, __ -> new ArrayList<>());
+							final int index = indices.computeIfAbsent(cell, __ -> {
+								classes.add(cell);
+								
+								return classes.size() - 1;
+							});
+							
+							output.put(k, index);
+							this.categoricalCells.add(k);
+							this.categoricalCells.add(column);
+						}
+						
+						++k;
+						cellBegin = cellEnd + 1;
+					}
+					
+					if (column != columns) {
+						throw new IllegalArgumentException("Expected " + columns + " columns but got " + column + " in line at " + i);
+					}
+				}
+				
+				i = lineEnd + 1;
+			}
+		}
+		
+		final void mergeCategories(final FloatBuffer output) {
+			final Map<Integer, int[]> globalIndices = new HashMap<>();
+			
+			this.localClasses.forEach((column, classes) -> {
+				final CSVParser.BiMap<String, Integer> category = CSVReader.this.getCategories().computeIfAbsent(
+						column, __ -> new CSVParser.BiMap<>());
+				final int[] indices = new int[classes.size()];
+				
+				for (int i = 0; i < indices.length; ++i) {
+					indices[i] = category.computeIfAbsent(classes.get(i), __ -> category.size());
+				}
+				
+				globalIndices.put(column, indices);
+			});
+			
+			for (int i = 0; i < this.categoricalCells.size(); i += 2) {
+				final int k = this.categoricalCells.get(i);
+				
+				output.put(k, globalIndices.get(this.categoricalCells.get(i + 1))[(int) output.get(k)]);
+			}
+		}
+		
+	}
+	
+}
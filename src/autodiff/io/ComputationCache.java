@@ -0,0 +1,288 @@
+package autodiff.io;
+
+import static multij.tools.Tools.debugError;
+import static multij.tools.Tools.readObject;
+import static multij.tools.Tools.writeObject;
+
+import autodiff.nodes.Computation;
+import autodiff.nodes.Node;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Persists what is derived from {@link Computation}s by theorem proving (bound shapes, Java and CL programs)
+ * in a local directory, so that later runs can skip the derivations.
+ * <br>Entries are content-addressed: the key is a digest of the kind of entry, the type name, definition and bindings
+ * of the computation (nodes being represented by their shapes), {@link #FORMAT} and {@link #getDerivationVersion()},
+ * a digest of the compiled classes that perform the derivations, so that rebuilt generators do not see stale entries.
+ * <br>The cache is disabled unless the system property {@value #DIRECTORY_PROPERTY} gives a directory
+ * (or {@link #setDirectory(File)} is called);
+ * it keeps at most {@link #getMaximumEntryCount()} entries, evicting the least recently used ones.
+ * <br>I/O errors are reported and otherwise ignored.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class ComputationCache {
+	
+	private ComputationCache() {
+		throw new IllegalInstantiationException();
+	}
+	
+	public static final String DIRECTORY_PROPERTY = "autodiff.computationCache";
+	
+	public static final int FORMAT = 1;
+	
+	public static final int DEFAULT_MAXIMUM_ENTRY_COUNT = 1 << 10;
+	
+	/**
+	 * Prefixes of the class files whose content determines the derivations.
+	 */
+	public static final List<String> DERIVATION_CLASS_PREFIXES = Arrays.asList(
+			"autodiff/reasoning/", "autodiff/nodes/Computation", "autodiff/io/ComputationCache");
+	
+	private static volatile File directory = getDefaultDirectory();
+	
+	private static volatile int maximumEntryCount = DEFAULT_MAXIMUM_ENTRY_COUNT;
+	
+	/**
+	 * @return The cache directory, or <code>null</code> if the cache is disabled
+	 */
+	public static final File getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * @param directory <code>null</code> to disable the cache
+	 */
+	public static final void setDirectory(final File directory) {
+		ComputationCache.directory = directory;
+	}
+	
+	public static final int getMaximumEntryCount() {
+		return maximumEntryCount;
+	}
+	
+	/**
+	 * @param maximumEntryCount <code>1</code> or more
+	 */
+	public static final void setMaximumEntryCount(final int maximumEntryCount) {
+		if (maximumEntryCount < 1) {
+			throw new IllegalArgumentException();
+		}
+		
+		ComputationCache.maximumEntryCount = maximumEntryCount;
+	}
+	
+	/**
+	 * @return The cached value for <code>kind</code> and <code>computation</code>,
+	 * or the result of <code>derivation</code>, which is then cached
+	 */
+	public static final <T extends Serializable> T get(final Computation computation, final String kind,
+			final Supplier<T> derivation) {
+		final File directory = getDirectory();
+		
+		if (directory == null || getDerivationVersion() == null) {
+			return derivation.get();
+		}
+		
+		final File file = new File(directory, kind + "-" + getKey(computation, kind) + ".jo");
+		
+		if (file.isFile()) {
+			try {
+				final T result = readObject(file.getPath());
+				
+				file.setLastModified(System.currentTimeMillis());
+				
+				return result;
+			} catch (final Exception exception) {
+				debugError(exception);
+			}
+		}
+		
+		final T result = derivation.get();
+		
+		try {
+			directory.mkdirs();
+			
+			final File tmp = File.createTempFile(kind, ".tmp", directory);
+			
+			try {
+				writeObject(result, tmp.getPath());
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				tmp.delete();
+			}
+			
+			evict(directory, getMaximumEntryCount());
+		} catch (final Exception exception) {
+			debugError(exception);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return A hexadecimal digest of the names and contents of the class files matching {@link #DERIVATION_CLASS_PREFIXES}
+	 * in the directory or jar containing this class, or <code>null</code> if they cannot be read
+	 */
+	public static final String getDerivationVersion() {
+		return DerivationVersion.VALUE;
+	}
+	
+	/**
+	 * Deletes the least recently used entries of <code>directory</code> beyond <code>maximumEntryCount</code>.
+	 */
+	private static final void evict(final File directory, final int maximumEntryCount) {
+		final File[] entries = directory.listFiles((__, name) -> name.endsWith(".jo"));
+		
+		if (entries == null || entries.length <= maximumEntryCount) {
+			return;
+		}
+		
+		Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+		
+		for (int i = 0; i < entries.length - maximumEntryCount; ++i) {
+			entries[i].delete();
+		}
+	}
+	
+	/**
+	 * @return A hexadecimal digest identifying <code>kind</code> and the content of <code>computation</code>
+	 */
+	public static final String getKey(final Computation computation, final String kind) {
+		final StringBuilder content = new StringBuilder();
+		
+		content.append(FORMAT).append('\n').append(getDerivationVersion()).append('\n');
+		content.append(kind).append('\n').append(computation.getTypeName()).append('\n');
+		content.append(computation.getDefinition()).append('\n');
+		
+		for (final Map.Entry<String, Object> binding : computation.getBindings().entrySet()) {
+			final Object value = binding.getValue();
+			
+			content.append(binding.getKey()).append('=');
+			
+			if (value instanceof Node) {
+				content.append("node").append(Arrays.toString(((Node<?>) value).getShape()));
+			} else if (value instanceof int[]) {
+				content.append(Arrays.toString((int[]) value));
+			} else {
+				content.append(value);
+			}
+			
+			content.append('\n');
+		}
+		
+		final MessageDigest digest = newDigest();
+		
+		digest.update(content.toString().getBytes(StandardCharsets.UTF_8));
+		
+		return toHexadecimal(digest.digest());
+	}
+	
+	private static final File getDefaultDirectory() {
+		final String path = System.getProperty(DIRECTORY_PROPERTY, "");
+		
+		return path.isEmpty() ? null : new File(path);
+	}
+	
+	private static final MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException exception) {
+			throw new RuntimeException(exception);
+		}
+	}
+	
+	private static final String toHexadecimal(final byte[] bytes) {
+		final StringBuilder result = new StringBuilder();
+		
+		for (final byte b : bytes) {
+			result.append(String.format("%02x", b & 0xFF));
+		}
+		
+		return result.toString();
+	}
+	
+	private static final boolean isDerivationClass(final String name) {
+		return name.endsWith(".class") && DERIVATION_CLASS_PREFIXES.stream().anyMatch(name::startsWith);
+	}
+	
+	/**
+	 * Computed on first use, since it reads the class files.
+	 * 
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private static final class DerivationVersion {
+		
+		static final String VALUE = compute();
+		
+		private static final String compute() {
+			try {
+				final Path source = Paths.get(ComputationCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+				final MessageDigest digest = newDigest();
+				
+				if (Files.isDirectory(source)) {
+					final List<Path> files;
+					
+					try (final Stream<Path> paths = Files.walk(source)) {
+						files = paths.filter(path -> isDerivationClass(getName(source, path))).sorted(
+								Comparator.comparing(path -> getName(source, path))).collect(Collectors.toList());
+					}
+					
+					for (final Path file : files) {
+						digest.update(getName(source, file).getBytes(StandardCharsets.UTF_8));
+						digest.update(Files.readAllBytes(file));
+					}
+				} else {
+					try (final JarFile jar = new JarFile(source.toFile())) {
+						final List<JarEntry> entries = jar.stream().filter(entry -> isDerivationClass(entry.getName()))
+								.sorted(Comparator.comparing(JarEntry::getName)).collect(Collectors.toList());
+						final byte[] buffer = new byte[1 << 16];
+						
+						for (final JarEntry entry : entries) {
+							digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+							
+							try (final InputStream input = jar.getInputStream(entry)) {
+								for (int n = input.read(buffer); 0 <= n; n = input.read(buffer)) {
+									digest.update(buffer, 0, n);
+								}
+							}
+						}
+					}
+				}
+				
+				return toHexadecimal(digest.digest());
+			} catch (final Exception exception) {
+				debugError(exception);
+				
+				return null;
+			}
+		}
+		
+		private static final String getName(final Path root, final Path path) {
+			return root.relativize(path).toString().replace(File.separatorChar, '/');
+		}
+		
+	}
+	
+}
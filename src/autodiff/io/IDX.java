@@ -1,9 +1,14 @@
 package autodiff.io;
 
+import autodiff.nodes.Data;
+
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -25,6 +30,8 @@ public final class IDX {
 	
 	public static final int MAGIC_IDX3 = 0x00000803;
 	
+	public static final int CHUNK_BYTES = 1 << 16;
+	
 	public static final List<Integer> readLabels(final String trainingLabelsFilePath) {
 		final List<Integer> result = new ArrayList<>();
 		
@@ -42,7 +49,7 @@ public final class IDX {
 	}
 	
 	public static final void readUByteGZ(final String filePath, final Consumer<double[]> itemProcessor) {
-		try (final DataInputStream input = new DataInputStream(new GZIPInputStream(new FileInputStream(filePath)))) {
+		try (final DataInputStream input = new DataInputStream(open(filePath))) {
 			final int magic = input.readInt();
 			final int items = input.readInt();
 			
@@ -67,10 +74,13 @@ public final class IDX {
 				final int columns = input.readInt();
 				final int m = rows * columns;
 				final double[] buffer = new double[m];
+				final byte[] bytes = new byte[m];
 				
 				for (int i = 0; i < items; ++i) {
+					input.readFully(bytes);
+					
 					for (int j = 0; j < m; ++j) {
-						buffer[j] = read1(input);
+						buffer[j] = bytes[j] & 0xFF;
 					}
 					
 					itemProcessor.accept(buffer);
@@ -87,7 +97,7 @@ public final class IDX {
 	}
 	
 	public static final void readUByteGZFAsFloats(final String filePath, final Consumer<float[]> itemProcessor) {
-		try (final DataInputStream input = new DataInputStream(new GZIPInputStream(new FileInputStream(filePath)))) {
+		try (final DataInputStream input = new DataInputStream(open(filePath))) {
 			final int magic = input.readInt();
 			final int items = input.readInt();
 			
@@ -112,10 +122,13 @@ public final class IDX {
 				final int columns = input.readInt();
 				final int m = rows * columns;
 				final float[] buffer = new float[m];
+				final byte[] bytes = new byte[m];
 				
 				for (int i = 0; i < items; ++i) {
+					input.readFully(bytes);
+					
 					for (int j = 0; j < m; ++j) {
-						buffer[j] = read1(input);
+						buffer[j] = bytes[j] & 0xFF;
 					}
 					
 					itemProcessor.accept(buffer);
@@ -131,6 +144,73 @@ public final class IDX {
 		}
 	}
 	
+	/**
+	 * Reads an unsigned byte IDX file directly into a new node with the shape of the file.
+	 */
+	public static final Data readData(final String filePath) {
+		try (final DataInputStream input = new DataInputStream(open(filePath))) {
+			final Data result = new Data().setShape(readShape(input));
+			
+			readUBytes(input, result.getLength(), result.getFloatBuffer().duplicate());
+			
+			return result;
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
+	/**
+	 * @return A buffered stream on <code>filePath</code>, decompressed if its name ends with ".gz"
+	 */
+	public static final InputStream open(final String filePath) throws IOException {
+		final InputStream result = new FileInputStream(filePath);
+		
+		return filePath.endsWith(".gz") ? new GZIPInputStream(result, CHUNK_BYTES) : new BufferedInputStream(result, CHUNK_BYTES);
+	}
+	
+	/**
+	 * Reads the header of an unsigned byte IDX file.
+	 * 
+	 * @return The dimensions
+	 */
+	public static final int[] readShape(final DataInputStream input) throws IOException {
+		final int magic = input.readInt();
+		
+		if ((magic >>> 8) != (MAGIC_IDX1 >>> 8)) {
+			throw new IOException("Unsupported IDX type: " + Integer.toHexString(magic));
+		}
+		
+		final int[] result = new int[magic & 0xFF];
+		
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = input.readInt();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Reads <code>n</code> unsigned bytes in chunks of {@link #CHUNK_BYTES}, and puts them into <code>target</code> as floats.
+	 */
+	public static final void readUBytes(final DataInputStream input, final long n, final FloatBuffer target) throws IOException {
+		final byte[] bytes = new byte[(int) Math.min(n, CHUNK_BYTES)];
+		final float[] values = new float[bytes.length];
+		long remaining = n;
+		
+		while (0L < remaining) {
+			final int m = (int) Math.min(remaining, bytes.length);
+			
+			input.readFully(bytes, 0, m);
+			
+			for (int i = 0; i < m; ++i) {
+				values[i] = bytes[i] & 0xFF;
+			}
+			
+			target.put(values, 0, m);
+			remaining -= m;
+		}
+	}
+	
 	public static final int read1(final DataInputStream input) throws IOException {
 		final int datum = input.read();
 		
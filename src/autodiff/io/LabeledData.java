@@ -1,9 +1,11 @@
 package autodiff.io;
 
+import static autodiff.nodes.NodesTools.checkLength;
 import static java.lang.Math.ceil;
 import static multij.tools.Tools.array;
 
 import java.io.Serializable;
+import java.nio.FloatBuffer;
 import java.util.Random;
 
 import autodiff.nodes.Data;
@@ -43,24 +45,27 @@ public final class LabeledData implements Serializable {
 		return this.getInputs().getLength() / this.getItemCount();
 	}
 	
+	/**
+	 * Draws the same permutation as swapping each item from the last to the second with a random previous one,
+	 * but moves each item only once.
+	 */
 	public final void shuffle(final Random random) {
-		final int n = this.getItemCount();
+		this.permute(randomPermutation(this.getItemCount(), random));
+	}
+	
+	/**
+	 * Moves item <code>permutation[i]</code> to <code>i</code>, for each <code>i</code>.
+	 */
+	public final void permute(final int[] permutation) {
+		checkLength(this.getItemCount(), permutation.length);
 		
-		for (int i = n; 1 < i; --i) {
-			this.swap(i - 1, random.nextInt(i));
-		}
+		permute(this.getInputs(), this.getInputLength(), permutation);
+		permute(this.getLabels(), 1, permutation);
 	}
 	
 	public final void swap(final int i, final int j) {
-		final int inputLength = this.getInputLength();
-		final int offsetI = i * inputLength;
-		final int offsetJ = j * inputLength;
-		
-		for (int k = 0; k < inputLength; ++k) {
-			swap(this.getInputs(), offsetI + k, offsetJ + k);
-		}
-		
-		swap(this.getLabels(), i, j);
+		swap(this.getInputs(), this.getInputLength(), i, j);
+		swap(this.getLabels(), 1, i, j);
 	}
 	
 	public final LabeledData[] split(final double ratio) {
@@ -85,10 +90,72 @@ public final class LabeledData implements Serializable {
 	
 	private static final long serialVersionUID = -3272274112365487159L;
 	
+	/**
+	 * @return The permutation obtained by swapping each index from the last to the second with a random previous one
+	 */
+	public static final int[] randomPermutation(final int n, final Random random) {
+		final int[] result = new int[n];
+		
+		for (int i = 0; i < n; ++i) {
+			result[i] = i;
+		}
+		
+		for (int i = n; 1 < i; --i) {
+			final int j = random.nextInt(i);
+			final int tmp = result[i - 1];
+			result[i - 1] = result[j];
+			result[j] = tmp;
+		}
+		
+		return result;
+	}
+	
 	public static final void swap(final Node<?> node, final int i, final int j) {
-		final float tmp = node.get(i);
-		node.set(i, node.get(j));
-		node.set(j, tmp);
+		swap(node, 1, i, j);
+	}
+	
+	/**
+	 * Swaps items <code>i</code> and <code>j</code>, each made of <code>itemLength</code> consecutive values.
+	 */
+	public static final void swap(final Node<?> node, final int itemLength, final int i, final int j) {
+		if (i != j) {
+			final FloatBuffer buffer = node.getFloatBuffer();
+			final float[] tmp = new float[itemLength];
+			
+			get(buffer, i * itemLength, tmp);
+			copy(buffer, j * itemLength, buffer, i * itemLength, itemLength);
+			put(tmp, buffer, j * itemLength);
+		}
+	}
+	
+	/**
+	 * Moves item <code>permutation[i]</code> to <code>i</code>, for each <code>i</code>,
+	 * following the cycles of <code>permutation</code> with a single item of temporary memory.
+	 */
+	public static final void permute(final Node<?> node, final int itemLength, final int[] permutation) {
+		final int n = permutation.length;
+		final FloatBuffer buffer = node.getFloatBuffer();
+		final float[] tmp = new float[itemLength];
+		final boolean[] done = new boolean[n];
+		
+		for (int start = 0; start < n; ++start) {
+			if (done[start] || permutation[start] == start) {
+				continue;
+			}
+			
+			get(buffer, start * itemLength, tmp);
+			
+			int i = start;
+			
+			while (permutation[i] != start) {
+				copy(buffer, permutation[i] * itemLength, buffer, i * itemLength, itemLength);
+				done[i] = true;
+				i = permutation[i];
+			}
+			
+			put(tmp, buffer, i * itemLength);
+			done[i] = true;
+		}
 	}
 	
 	public static final Node<?> slice(final Node<?> node, final int itemLength, final int begin, final int end) {
@@ -96,19 +163,48 @@ public final class LabeledData implements Serializable {
 		resultShape[0] = end - begin;
 		final Node<?> result = new Data().setShape(resultShape);
 		
-		for (int i = begin; i < end; ++i) {
-			for (int j = 0; j < itemLength; ++j) {
-				result.set(j + itemLength * (i - begin), node.get(j + itemLength * i));
-			}
-		}
+		copy(node, begin * itemLength, end * itemLength, result, 0);
 		
 		return result;
 	}
 	
 	public static final void copy(final Node<?> source, final int begin, final int end, final Node<?> target, final int targetBegin) {
-		for (int i = begin; i < end; ++i) {
-			target.set(targetBegin + i - begin, source.get(i));
+		if (end <= begin) {
+			return;
 		}
+		
+		source.getStorage().synchronizeHost();
+		
+		copy(source.getStorage().getRawFloatBuffer(), begin, target.getFloatBuffer(), targetBegin, end - begin);
+	}
+	
+	/**
+	 * Copies <code>length</code> values in bulk, without changing the positions and limits of the buffers.
+	 */
+	public static final void copy(final FloatBuffer source, final int sourceOffset,
+			final FloatBuffer target, final int targetOffset, final int length) {
+		final FloatBuffer from = source.duplicate();
+		final FloatBuffer to = target.duplicate();
+		
+		from.limit(sourceOffset + length);
+		from.position(sourceOffset);
+		to.limit(targetOffset + length);
+		to.position(targetOffset);
+		to.put(from);
+	}
+	
+	private static final void get(final FloatBuffer source, final int offset, final float[] result) {
+		final FloatBuffer from = source.duplicate();
+		
+		from.position(offset);
+		from.get(result);
+	}
+	
+	private static final void put(final float[] values, final FloatBuffer target, final int offset) {
+		final FloatBuffer to = target.duplicate();
+		
+		to.position(offset);
+		to.put(values);
 	}
 	
 }
@@ -0,0 +1,322 @@
+package autodiff.io;
+
+import static autodiff.nodes.NodesTools.product;
+
+import autodiff.nodes.Data;
+import autodiff.nodes.Node;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Stores a tensor in a file that can be memory-mapped directly as the buffer of a {@link Data} node.
+ * <br>The file starts with a little-endian header: {@link #MAGIC}, {@link #VERSION}, the data type
+ * ({@link #FLOAT32}, the only one supported), the rank and the dimensions;
+ * it is padded to {@link #ALIGNMENT} bytes, and followed by the little-endian values.
+ * <br>Files are written to a temporary file that is then moved, so that a partial file is never read.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class TensorFile {
+	
+	private TensorFile() {
+		throw new IllegalInstantiationException();
+	}
+	
+	public static final String EXTENSION = ".tensor";
+	
+	/**
+	 * "ADTF" in ASCII.
+	 */
+	public static final int MAGIC = 0x46544441;
+	
+	public static final int VERSION = 1;
+	
+	public static final int FLOAT32 = 1;
+	
+	public static final int ALIGNMENT = 64;
+	
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	/**
+	 * Values are copied through a direct buffer of this size when converting or writing.
+	 */
+	public static final int CHUNK_BYTES = 1 << 16;
+	
+	/**
+	 * Maps <code>file</code> copy-on-write, so that the returned node costs no heap
+	 * and modifying it does not modify the file; if the file is read-only, so is the node.
+	 */
+	public static final Data map(final File file) {
+		final boolean writable = file.canWrite();
+		
+		try (final FileChannel channel = writable ? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final int[] shape = readShape(channel);
+			final long dataOffset = getDataOffset(shape.length);
+			final long bytes = (long) Float.BYTES * product(shape);
+			
+			if (channel.size() < dataOffset + bytes) {
+				throw new IOException("Truncated tensor file: " + file);
+			}
+			
+			if (Integer.MAX_VALUE < bytes) {
+				throw new IOException("Tensor too large to map: " + file);
+			}
+			
+			final Data result = new Data().setShape(shape);
+			
+			result.getStorage().setByteBuffer(channel.map(writable ? MapMode.PRIVATE : MapMode.READ_ONLY, dataOffset, bytes).order(ORDER));
+			
+			return result;
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
+	public static final int[] readShape(final File file) {
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return readShape(channel);
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
+	public static final void write(final Node<?> node, final File file) {
+		node.getStorage().synchronizeHost();
+		
+		final FloatBuffer values = node.getStorage().getRawFloatBuffer().duplicate();
+		
+		values.position(0);
+		
+		write(node.getShape(), values, file);
+	}
+	
+	/**
+	 * @param values Written from their position to their limit
+	 */
+	public static final void write(final int[] shape, final FloatBuffer values, final File file) {
+		if (values.remaining() != product(shape)) {
+			throw new IllegalArgumentException("Expected " + product(shape) + " values but got " + values.remaining());
+		}
+		
+		writeAtomically(file, channel -> {
+			writeHeader(channel, shape);
+			writeValues(channel, values.duplicate(), ByteBuffer.allocateDirect(CHUNK_BYTES).order(ORDER));
+		});
+	}
+	
+	/**
+	 * Converts an unsigned byte IDX file (eg from MNIST), gzipped if its name ends with ".gz",
+	 * streaming its values to <code>file</code> as floats; the shape is the one of the IDX file.
+	 */
+	public static final void convertIDX(final String idxFilePath, final File file) {
+		try (final DataInputStream input = new DataInputStream(IDX.open(idxFilePath))) {
+			final int[] shape = IDX.readShape(input);
+			
+			writeAtomically(file, channel -> {
+				writeHeader(channel, shape);
+				
+				final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ORDER);
+				final FloatBuffer floatChunk = chunk.asFloatBuffer();
+				long remaining = product(shape);
+				
+				while (0L < remaining) {
+					final int n = (int) Math.min(remaining, floatChunk.capacity());
+					
+					floatChunk.clear();
+					IDX.readUBytes(input, n, floatChunk);
+					chunk.clear();
+					chunk.limit(Float.BYTES * n);
+					writeFully(channel, chunk);
+					remaining -= n;
+				}
+			});
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
+	/**
+	 * Converts CSV records to a <code>records × columns</code> tensor,
+	 * non-numerical cells being replaced by their class index as in {@link CSVParser.FloatData}.
+	 */
+	public static final CSVParser.FloatData convertCSV(final InputStream input, final String separator, final File file) {
+		final CSVParser.FloatData result = CSVParser.readCSV(input, separator, new CSVParser.FloatData());
+		final List<float[]> records = result.getRecords();
+		final int columns = records.isEmpty() ? 0 : records.get(0).length;
+		final FloatBuffer values = FloatBuffer.allocate(records.size() * columns);
+		
+		for (final float[] record : records) {
+			if (record.length != columns) {
+				throw new IllegalArgumentException("Expected " + columns + " columns but got " + record.length);
+			}
+			
+			values.put(record);
+		}
+		
+		values.flip();
+		
+		write(new int[] { records.size(), columns }, values, file);
+		
+		return result;
+	}
+	
+	/**
+	 * Converts a CSV file to a <code>rows × columns</code> tensor with <code>reader</code>,
+	 * streaming its values to <code>file</code> so that the CSV file can be larger than the memory.
+	 */
+	public static final void convertCSV(final File csvFile, final CSVReader reader, final File file) {
+		writeAtomically(file, channel -> {
+			final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ORDER);
+			final long[] rows = { 0L };
+			
+			channel.position(getDataOffset(2));
+			
+			reader.forEach(csvFile, (values, n) -> {
+				writeValues(channel, values, chunk);
+				rows[0] += n;
+			});
+			
+			if (Integer.MAX_VALUE < rows[0]) {
+				throw new IOException("Too many rows: " + rows[0]);
+			}
+			
+			channel.position(0L);
+			writeHeader(channel, new int[] { (int) rows[0], reader.getColumnCount() });
+		});
+	}
+	
+	public static final long getDataOffset(final int rank) {
+		return (Integer.BYTES * (4L + rank) + ALIGNMENT - 1L) / ALIGNMENT * ALIGNMENT;
+	}
+	
+	private static final int[] readShape(final FileChannel channel) throws IOException {
+		final ByteBuffer prefix = ByteBuffer.allocate(4 * Integer.BYTES).order(ORDER);
+		
+		readFully(channel, prefix, 0L);
+		
+		if (prefix.getInt(0) != MAGIC) {
+			throw new IOException("Not a tensor file");
+		}
+		
+		if (prefix.getInt(4) != VERSION) {
+			throw new IOException("Unsupported tensor file version: " + prefix.getInt(4));
+		}
+		
+		if (prefix.getInt(8) != FLOAT32) {
+			throw new IOException("Unsupported data type: " + prefix.getInt(8));
+		}
+		
+		final int rank = prefix.getInt(12);
+		final ByteBuffer dimensions = ByteBuffer.allocate(Integer.BYTES * rank).order(ORDER);
+		
+		readFully(channel, dimensions, prefix.capacity());
+		
+		final int[] result = new int[rank];
+		
+		dimensions.asIntBuffer().get(result);
+		
+		return result;
+	}
+	
+	private static final void writeHeader(final FileChannel channel, final int[] shape) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate((int) getDataOffset(shape.length)).order(ORDER);
+		
+		header.putInt(MAGIC).putInt(VERSION).putInt(FLOAT32).putInt(shape.length);
+		
+		for (final int dimension : shape) {
+			header.putInt(dimension);
+		}
+		
+		header.clear();
+		
+		writeFully(channel, header);
+	}
+	
+	private static final void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of tensor file");
+			}
+		}
+		
+		buffer.flip();
+	}
+	
+	/**
+	 * Writes the remaining values of <code>source</code> through <code>chunk</code>, consuming <code>source</code>.
+	 */
+	private static final void writeValues(final FileChannel channel, final FloatBuffer source, final ByteBuffer chunk) throws IOException {
+		chunk.clear();
+		
+		final FloatBuffer floatChunk = chunk.asFloatBuffer();
+		
+		while (source.hasRemaining()) {
+			final FloatBuffer part = source.duplicate();
+			final int n = Math.min(part.remaining(), floatChunk.capacity());
+			
+			part.limit(part.position() + n);
+			floatChunk.clear();
+			floatChunk.put(part);
+			source.position(source.position() + n);
+			chunk.clear();
+			chunk.limit(Float.BYTES * n);
+			
+			writeFully(channel, chunk);
+		}
+	}
+	
+	private static final void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+	
+	private static final void writeAtomically(final File file, final ChannelWriter writer) {
+		try {
+			final File directory = file.getAbsoluteFile().getParentFile();
+			
+			directory.mkdirs();
+			
+			final File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+			
+			try {
+				try (final FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+					writer.write(channel);
+				}
+				
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				tmp.delete();
+			}
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private static abstract interface ChannelWriter {
+		
+		public abstract void write(FileChannel channel) throws IOException;
+		
+	}
+	
+}
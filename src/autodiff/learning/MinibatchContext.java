@@ -1,12 +1,29 @@
 package autodiff.learning;
 
 import static java.lang.Math.min;
+import static multij.tools.Tools.unchecked;
 
 import java.io.Serializable;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
 
 import autodiff.io.LabeledData;
+import autodiff.nodes.Data;
+import autodiff.nodes.Node;
 
 /**
+ * Copies consecutive ranges of the source data into the minibatch data, and runs a command after each copy.
+ * <br>Minibatches can also be gathered in a random order ({@link #setShuffler(Random)}),
+ * prepared (eg augmented or normalized, see {@link #setPreparation(Consumer)}),
+ * and prefetched by a producer thread while the command runs ({@link #setPrefetchedMinibatches(int)}).
+ * <br>When prefetching, minibatches are prepared in preallocated buffers that are swapped into the minibatch nodes
+ * with {@link autodiff.nodes.Storage#setByteBuffer(java.nio.ByteBuffer)} instead of being copied,
+ * unless swapping is disabled ({@link #setSwapping(boolean)}), eg for processors that keep a device copy per host buffer.
+ * <br>In all cases, the minibatch nodes receive the same values as without prefetching.
+ * 
  * @author codistmonk (creation 2016-07-16)
  */
 public final class MinibatchContext implements Serializable {
@@ -15,6 +32,18 @@ public final class MinibatchContext implements Serializable {
 	
 	private final LabeledData minibatchData;
 	
+	private int prefetchedMinibatches;
+	
+	private boolean swapping = true;
+	
+	private Random shuffler;
+	
+	private transient Consumer<LabeledData> preparation;
+	
+	private transient LabeledData[] buffers;
+	
+	private transient LabeledData image;
+	
 	public MinibatchContext(final LabeledData sourceData, final LabeledData minibatchData) {
 		this.sourceData = sourceData;
 		this.minibatchData = minibatchData;
@@ -28,16 +57,245 @@ public final class MinibatchContext implements Serializable {
 		return this.minibatchData;
 	}
 	
+	public final int getPrefetchedMinibatches() {
+		return this.prefetchedMinibatches;
+	}
+	
+	/**
+	 * @param prefetchedMinibatches 0 to prepare each minibatch on the calling thread,
+	 * 1 for double buffering, 2 for triple buffering...
+	 */
+	public final MinibatchContext setPrefetchedMinibatches(final int prefetchedMinibatches) {
+		this.prefetchedMinibatches = prefetchedMinibatches;
+		
+		return this;
+	}
+	
+	public final boolean isSwapping() {
+		return this.swapping;
+	}
+	
+	public final MinibatchContext setSwapping(final boolean swapping) {
+		this.swapping = swapping;
+		
+		return this;
+	}
+	
+	public final Random getShuffler() {
+		return this.shuffler;
+	}
+	
+	/**
+	 * @param shuffler If not <code>null</code>, draws a new order of the source items on each pass
+	 */
+	public final MinibatchContext setShuffler(final Random shuffler) {
+		this.shuffler = shuffler;
+		
+		return this;
+	}
+	
+	public final Consumer<LabeledData> getPreparation() {
+		return this.preparation;
+	}
+	
+	/**
+	 * @param preparation Applied to each minibatch before the command runs, on the producer thread when prefetching
+	 */
+	public final MinibatchContext setPreparation(final Consumer<LabeledData> preparation) {
+		this.preparation = preparation;
+		
+		return this;
+	}
+	
 	public final void forEachMinibatch(final Runnable command) {
 		final int m = this.getSourceData().getItemCount();
 		final int n = this.getMinibatchData().getItemCount();
 		
-		for (int i = 0; i < m; i += n) {
-			this.getSourceData().copy(i, min(i + n, m - i), this.getMinibatchData(), 0);
-			command.run();
+		if (this.getShuffler() == null && this.getPreparation() == null && this.getPrefetchedMinibatches() <= 0) {
+			for (int i = 0; i < m; i += n) {
+				this.getSourceData().copy(i, min(i + n, m - i), this.getMinibatchData(), 0);
+				command.run();
+			}
+			
+			return;
+		}
+		
+		final int[] order = this.getShuffler() == null ? null : LabeledData.randomPermutation(m, this.getShuffler());
+		
+		// the image receives the same copies as the minibatch data without preparation, so that leftover items match
+		if (this.image == null) {
+			this.image = newLabeledDataLike(this.getMinibatchData());
+		}
+		
+		copyAll(this.getMinibatchData(), this.image);
+		
+		if (this.getPrefetchedMinibatches() <= 0) {
+			for (int i = 0; i < m; i += n) {
+				this.gather(order, i, min(i + n, m - i));
+				copyAll(this.image, this.getMinibatchData());
+				
+				if (this.getPreparation() != null) {
+					this.getPreparation().accept(this.getMinibatchData());
+				}
+				
+				command.run();
+			}
+		} else {
+			this.prefetch(order, command);
+		}
+	}
+	
+	private final void prefetch(final int[] order, final Runnable command) {
+		final int m = this.getSourceData().getItemCount();
+		final int n = this.getMinibatchData().getItemCount();
+		final int bufferCount = this.getPrefetchedMinibatches() + 1;
+		
+		if (this.buffers == null || this.buffers.length != bufferCount) {
+			this.buffers = new LabeledData[bufferCount];
+			
+			for (int i = 0; i < bufferCount; ++i) {
+				this.buffers[i] = newLabeledDataLike(this.getMinibatchData());
+			}
+		}
+		
+		final BlockingQueue<LabeledData> free = new ArrayBlockingQueue<>(bufferCount);
+		final BlockingQueue<Object> ready = new ArrayBlockingQueue<>(bufferCount + 1);
+		final Object end = new Object();
+		LabeledData installed = null;
+		
+		for (final LabeledData buffer : this.buffers) {
+			if (this.isSwapping() && isInstalled(buffer, this.getMinibatchData())) {
+				installed = buffer;
+			} else {
+				free.add(buffer);
+			}
+		}
+		
+		final Thread producer = new Thread(() -> {
+			try {
+				for (int i = 0; i < m; i += n) {
+					this.gather(order, i, min(i + n, m - i));
+					
+					final LabeledData buffer = free.take();
+					
+					copyAll(this.image, buffer);
+					
+					if (this.getPreparation() != null) {
+						this.getPreparation().accept(buffer);
+					}
+					
+					ready.put(buffer);
+				}
+				
+				ready.put(end);
+			} catch (final InterruptedException exception) {
+				// the consumer stopped
+			} catch (final Throwable exception) {
+				ready.offer(exception);
+			}
+		}, "minibatch-producer");
+		
+		producer.setDaemon(true);
+		producer.start();
+		
+		try {
+			while (true) {
+				final Object item = ready.take();
+				
+				if (item == end) {
+					break;
+				}
+				
+				if (item instanceof Error) {
+					throw (Error) item;
+				}
+				
+				if (item instanceof Throwable) {
+					throw unchecked((Throwable) item);
+				}
+				
+				final LabeledData buffer = (LabeledData) item;
+				
+				if (this.isSwapping()) {
+					install(buffer, this.getMinibatchData());
+					
+					if (installed != null) {
+						free.add(installed);
+					}
+					
+					installed = buffer;
+				} else {
+					copyAll(buffer, this.getMinibatchData());
+					free.add(buffer);
+				}
+				
+				command.run();
+			}
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			
+			throw unchecked(exception);
+		} finally {
+			producer.interrupt();
+			
+			try {
+				producer.join();
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Copies the source items <code>[begin .. end)</code>, in shuffled order if <code>order</code> is not <code>null</code>,
+	 * to the first items of the image.
+	 */
+	private final void gather(final int[] order, final int begin, final int end) {
+		if (order == null) {
+			this.getSourceData().copy(begin, end, this.image, 0);
+			
+			return;
+		}
+		
+		final int inputLength = this.getSourceData().getInputLength();
+		final FloatBuffer sourceInputs = getHostBuffer(this.getSourceData().getInputs());
+		final FloatBuffer sourceLabels = getHostBuffer(this.getSourceData().getLabels());
+		final FloatBuffer imageInputs = this.image.getInputs().getFloatBuffer();
+		final FloatBuffer imageLabels = this.image.getLabels().getFloatBuffer();
+		
+		for (int i = begin; i < end; ++i) {
+			LabeledData.copy(sourceInputs, order[i] * inputLength, imageInputs, (i - begin) * inputLength, inputLength);
+			LabeledData.copy(sourceLabels, order[i], imageLabels, i - begin, 1);
 		}
 	}
 	
 	private static final long serialVersionUID = -4327393127426597114L;
 	
-}
\ No newline at end of file
+	static final LabeledData newLabeledDataLike(final LabeledData data) {
+		return new LabeledData(new Data().setShape(data.getInputs().getShape()), new Data().setShape(data.getLabels().getShape()));
+	}
+	
+	static final void copyAll(final LabeledData source, final LabeledData target) {
+		LabeledData.copy(source.getInputs(), 0, source.getInputs().getLength(), target.getInputs(), 0);
+		LabeledData.copy(source.getLabels(), 0, source.getLabels().getLength(), target.getLabels(), 0);
+	}
+	
+	static final boolean isInstalled(final LabeledData buffer, final LabeledData target) {
+		return target.getInputs().getStorage().getByteBuffer() == buffer.getInputs().getStorage().getByteBuffer();
+	}
+	
+	/**
+	 * Makes the nodes of <code>target</code> use the memory of the nodes of <code>buffer</code>.
+	 */
+	static final void install(final LabeledData buffer, final LabeledData target) {
+		target.getInputs().getStorage().setByteBuffer(buffer.getInputs().getStorage().getByteBuffer());
+		target.getLabels().getStorage().setByteBuffer(buffer.getLabels().getStorage().getByteBuffer());
+	}
+	
+	private static final FloatBuffer getHostBuffer(final Node<?> node) {
+		node.getStorage().synchronizeHost();
+		
+		return node.getStorage().getRawFloatBuffer();
+	}
+	
+}
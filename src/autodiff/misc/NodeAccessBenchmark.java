@@ -0,0 +1,144 @@
+package autodiff.misc;
+
+import static autodiff.nodes.NodesTools.$;
+
+import autodiff.computing.DefaultProcessor;
+import autodiff.computing.Functions;
+import autodiff.nodes.Data;
+import autodiff.nodes.Node;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Times the per-element cost of the accesses made in the inner loops of {@link DefaultProcessor}:
+ * through {@link Node#get(int)} and {@link Node#add(int, float)}, which synchronize the storage on each call,
+ * compared with absolute accesses to a buffer fetched once;
+ * {@link Node#getLengths(int[])} with a new array (previously used by {@link Node#getLength()} and matrix multiplications)
+ * compared with the cached length and {@link Node#getLength(int, int)};
+ * and a stream-collected argument list (previously built by {@link Data#getArguments()}) compared with the cached one.
+ * <br>It then times interpreted mappings (see {@link DefaultProcessor#setCompilingFunctions(boolean)}).
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class NodeAccessBenchmark {
+	
+	private NodeAccessBenchmark() {
+		throw new IllegalInstantiationException();
+	}
+	
+	public static final int N = 1 << 20;
+	
+	public static final int REPETITIONS = 10;
+	
+	/**
+	 * Receives the results of the timed loops, so that they cannot be optimized away.
+	 */
+	public static volatile int sink;
+	
+	/**
+	 * @param commandLineArguments
+	 * <br>Unused
+	 */
+	public static final void main(final String... commandLineArguments) {
+		final Node<?> x = new Data().setShape(N / 1024, 1024);
+		final Node<?> y = new Data().setShape(N / 1024, 1024);
+		final Data w = new Data().setShape(x.getShape());
+		
+		// w has one contributor besides itself
+		$(x, "+", y).setStorage(w);
+		
+		time("get/add", N, () -> {
+			for (int i = 0; i < N; ++i) {
+				y.add(i, x.get(i));
+			}
+			
+			return 0;
+		});
+		
+		time("buffers", N, () -> {
+			final FloatBuffer source = x.getFloatBuffer();
+			final FloatBuffer target = y.getFloatBuffer();
+			
+			for (int i = 0; i < N; ++i) {
+				target.put(i, target.get(i) + source.get(i));
+			}
+			
+			return 0;
+		});
+		
+		time("getLengths(new int[...])", N, () -> {
+			int result = 0;
+			
+			for (int i = 0; i < N; ++i) {
+				result += x.getLengths(new int[1])[0] + x.getLengths(new int[2])[1];
+			}
+			
+			return result;
+		});
+		
+		time("getLength()", N, () -> {
+			int result = 0;
+			
+			for (int i = 0; i < N; ++i) {
+				result += x.getLength() + x.getLength(2, 1);
+			}
+			
+			return result;
+		});
+		
+		final int n = N / 64;
+		
+		time("collected arguments", n, () -> {
+			int result = 0;
+			
+			for (int i = 0; i < n; ++i) {
+				final List<Node<?>> arguments = w.getStorage().getContributors().stream()
+						.filter(c -> !(c instanceof Data)).collect(Collectors.toList());
+				
+				result += arguments.size();
+			}
+			
+			return result;
+		});
+		
+		time("getArguments()", n, () -> {
+			int result = 0;
+			
+			for (int i = 0; i < n; ++i) {
+				result += w.getArguments().size();
+			}
+			
+			return result;
+		});
+		
+		final DefaultProcessor processor = new DefaultProcessor().setCompilingFunctions(false).setParallel(false);
+		final Node<?> m = $(Functions.SIGMOID, x);
+		
+		processor.fullForward(m);
+		
+		time("interpreted mapping", N, () -> {
+			processor.fullForward(m);
+			
+			return 0;
+		});
+	}
+	
+	private static final void time(final String name, final int n, final IntSupplier run) {
+		long best = Long.MAX_VALUE;
+		
+		for (int i = 0; i < REPETITIONS; ++i) {
+			final long start = System.nanoTime();
+			
+			sink += run.getAsInt();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		
+		System.out.println(name + ": " + String.format("%.2f", (double) best / n) + " ns per element");
+	}
+	
+}
@@ -0,0 +1,129 @@
+package autodiff.misc;
+
+import autodiff.computing.Functions;
+import autodiff.computing.NodeProcessor.ForwardCollector;
+import autodiff.nodes.CustomNode;
+import autodiff.nodes.Data;
+import autodiff.nodes.Mapping;
+import autodiff.nodes.Node;
+import autodiff.nodes.NodeVisitor;
+import autodiff.nodes.Zipping;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.function.Supplier;
+
+import multij.tools.IllegalInstantiationException;
+
+/**
+ * Times {@link ForwardCollector} on synthetic graphs, and compares it with the previous collector,
+ * that moved each node to the end of its result whenever it was reached again.
+ * <br>In a ladder, each level reads the previous one twice, so the previous collector
+ * visits <code>O(2^depth)</code> nodes and is only timed on short ladders.
+ * <br>In a fan, <code>width</code> nodes read the same input and are summed one after the other.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class ScheduleBenchmark {
+	
+	private ScheduleBenchmark() {
+		throw new IllegalInstantiationException();
+	}
+	
+	public static final int REPETITIONS = 5;
+	
+	/**
+	 * @param commandLineArguments
+	 * <br>Unused
+	 */
+	public static final void main(final String... commandLineArguments) {
+		for (final int depth : new int[] { 10, 15, 20 }) {
+			final Node<?> node = ladder(depth);
+			
+			time("ladder " + depth + " (reinserting)", () -> node.accept(new ReinsertingCollector()));
+			time("ladder " + depth, () -> node.accept(new ForwardCollector(true)));
+		}
+		
+		for (final int depth : new int[] { 1_000, 10_000, 100_000 }) {
+			final Node<?> node = ladder(depth);
+			
+			time("ladder " + depth, () -> node.accept(new ForwardCollector(true)));
+		}
+		
+		for (final int width : new int[] { 100, 1_000, 10_000 }) {
+			final Node<?> node = fan(width);
+			
+			if (width <= 1_000) {
+				time("fan " + width + " (reinserting)", () -> node.accept(new ReinsertingCollector()));
+			}
+			
+			time("fan " + width, () -> node.accept(new ForwardCollector(true)));
+		}
+	}
+	
+	public static final Node<?> ladder(final int depth) {
+		Node<?> result = new Data().setShape(1);
+		
+		for (int i = 0; i < depth; ++i) {
+			final Mapping mapping = new Mapping().setFunctionName(Functions.SIGMOID).setArgument(result).autoShape();
+			
+			result = new Zipping().setFunctionName("+").setLeft(result).setRight(mapping).autoShape();
+		}
+		
+		return result;
+	}
+	
+	public static final Node<?> fan(final int width) {
+		final Node<?> input = new Data().setShape(1);
+		Node<?> result = input;
+		
+		for (int i = 0; i < width; ++i) {
+			final Mapping mapping = new Mapping().setFunctionName(Functions.SIGMOID).setArgument(input).autoShape();
+			
+			result = new Zipping().setFunctionName("+").setLeft(result).setRight(mapping).autoShape();
+		}
+		
+		return result;
+	}
+	
+	private static final void time(final String name, final Supplier<Collection<Node<?>>> collection) {
+		long best = Long.MAX_VALUE;
+		int size = 0;
+		
+		for (int i = 0; i < REPETITIONS; ++i) {
+			final long start = System.nanoTime();
+			
+			size = collection.get().size();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		
+		System.out.println(name + ": " + size + " nodes in " + best / 1_000L + " us");
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private static final class ReinsertingCollector implements NodeVisitor<Collection<Node<?>>> {
+		
+		private final Collection<Node<?>> result = new LinkedHashSet<>();
+		
+		@Override
+		public final Collection<Node<?>> visit(final Node<?> node) {
+			this.result.remove(node);
+			this.result.add(node);
+			
+			node.getArguments().forEach(a -> a.accept(this));
+			
+			return this.result;
+		}
+		
+		@Override
+		public final Collection<Node<?>> visit(final CustomNode<?> node) {
+			return node.unfold().accept(this);
+		}
+		
+		private static final long serialVersionUID = -4550325061361113815L;
+		
+	}
+	
+}
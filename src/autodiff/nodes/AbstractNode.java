@@ -53,6 +53,16 @@ public abstract class AbstractNode<N extends AbstractNode<?>> implements Node<N>
 		return (N) this;
 	}
 	
+	@Override
+	public final int getLength() {
+		return this.getValues().getLength();
+	}
+	
+	@Override
+	public final int[] getShapeStrides() {
+		return this.getValues().getShapeStrides();
+	}
+	
 	@Override
 	public final Storage getStorage() {
 		return this.getValues().getStorage();
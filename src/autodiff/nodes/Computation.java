@@ -12,6 +12,7 @@ import static autodiff.reasoning.tactics.Auto.*;
 import static autodiff.reasoning.tactics.Stack.*;
 import static multij.rules.Variable.matchOrFail;
 
+import autodiff.io.ComputationCache;
 import autodiff.reasoning.deductions.Basics;
 import autodiff.reasoning.io.Simple;
 import autodiff.reasoning.proofs.Deduction;
@@ -105,10 +106,9 @@ public final class Computation extends AbstractNode<Computation> {
 	
 	@Override
 	public final Computation autoShape() {
-		final Deduction deduction = this.getBoundForm();
-		final Object proposition = deduction.getProposition(deduction.getPropositionName(-1));
-		
-		{
+		return this.setShape(ComputationCache.get(this, "shape", () -> {
+			final Deduction deduction = this.getBoundForm();
+			final Object proposition = deduction.getProposition(deduction.getPropositionName(-1));
 			final Variable vX = v("X");
 			final Variable vi = v("i");
 			final Variable vs = v("s");
@@ -116,8 +116,8 @@ public final class Computation extends AbstractNode<Computation> {
 			
 			matchOrFail(p(sequence(",", $(p(vX), "_", $(vi, "<", vn)), vs)), right(proposition));
 			
-			return this.setShape(toInts(flattenSequence(",", vs.get())));
-		}
+			return toInts(flattenSequence(",", vs.get()));
+		}));
 	}
 	
 	public final Deduction getBoundForm() {
@@ -0,0 +1,228 @@
+package autodiff.nodes;
+
+import static autodiff.nodes.NodesTools.checkLength;
+
+import autodiff.nodes.NodesTools.GridSampling;
+import autodiff.nodes.NodesTools.PatchSampling;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Direct convolutions (see {@link NodesTools#convolutions(Node, GridSampling, Node)}).
+ * <br>The patch shape of the sampling is the shape of the kernels <code>(outputChannels, inputChannels, kernelHeight, kernelWidth)</code>,
+ * inputs have shape <code>(inputCount, inputChannels, inputHeight, inputWidth)</code>
+ * and outputs have shape <code>(inputCount, outputChannels, outputHeight, outputWidth)</code>.
+ * <br>The operations computing the diffs of the inputs and of the kernels are also represented by this class,
+ * so that back-propagation never materializes patches.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class Convolution extends BinaryNode<Convolution> {
+	
+	private final PatchSampling sampling;
+	
+	private Operation operation;
+	
+	public Convolution(final PatchSampling sampling) {
+		this.sampling = sampling;
+		this.operation = Operation.CONVOLUTION;
+	}
+	
+	public final PatchSampling getSampling() {
+		return this.sampling;
+	}
+	
+	public final Operation getOperation() {
+		return this.operation;
+	}
+	
+	public final Convolution setOperation(final Operation operation) {
+		this.operation = operation;
+		
+		return this;
+	}
+	
+	public final GridSampling getGrid() {
+		return this.getSampling().getSampling();
+	}
+	
+	public final int getInputCount() {
+		return this.getGrid().getInputCount();
+	}
+	
+	public final int getInputChannels() {
+		return this.getGrid().getInputChannels();
+	}
+	
+	public final int getInputHeight() {
+		return this.getGrid().getInputHeight();
+	}
+	
+	public final int getInputWidth() {
+		return this.getGrid().getInputWidth();
+	}
+	
+	public final int getOutputChannels() {
+		return this.getSampling().getPatchShape()[0];
+	}
+	
+	public final int getOutputHeight() {
+		return this.getGrid().getOutputHeight();
+	}
+	
+	public final int getOutputWidth() {
+		return this.getGrid().getOutputWidth();
+	}
+	
+	public final int getKernelHeight() {
+		return this.getSampling().getPatchHeight();
+	}
+	
+	public final int getKernelWidth() {
+		return this.getSampling().getPatchWidth();
+	}
+	
+	/**
+	 * @return <code>inputChannels * kernelHeight * kernelWidth</code>
+	 */
+	public final int getKernelSize() {
+		return this.getSampling().getPatchSize();
+	}
+	
+	/**
+	 * @return The vertical position of the first element of the first patch
+	 */
+	public final int getPatchTop() {
+		return this.getGrid().getOffsets()[GridSampling.TOP_OFFSET] - (this.getKernelHeight() - 1) / 2;
+	}
+	
+	/**
+	 * @return The horizontal position of the first element of the first patch
+	 */
+	public final int getPatchLeft() {
+		return this.getGrid().getOffsets()[GridSampling.LEFT_OFFSET] - (this.getKernelWidth() - 1) / 2;
+	}
+	
+	public final int getVerticalStride() {
+		return this.getGrid().getStrides()[GridSampling.VERTICAL_STRIDE];
+	}
+	
+	public final int getHorizontalStride() {
+		return this.getGrid().getStrides()[GridSampling.HORIZONTAL_STRIDE];
+	}
+	
+	@Override
+	public final <V> V accept(final NodeVisitor<V> visitor) {
+		return visitor.visit(this);
+	}
+	
+	@Override
+	public final Convolution autoShape() {
+		switch (this.getOperation()) {
+		case CONVOLUTION:
+			final int[] inputsShape = this.getLeft().getShape();
+			final int[] kernelsShape = this.getRight().getShape();
+			
+			checkLength(4, inputsShape.length);
+			checkLength(4, kernelsShape.length);
+			checkLength(inputsShape[1], kernelsShape[1]);
+			
+			return this.setShape(this.getInputCount(), this.getOutputChannels(), this.getOutputHeight(), this.getOutputWidth());
+		case INPUTS_DIFFS:
+			return this.setShape(this.getGrid().getInputsShape().clone());
+		case KERNELS_DIFFS:
+			return this.setShape(this.getSampling().getPatchShape().clone());
+		}
+		
+		throw new IllegalStateException();
+	}
+	
+	/**
+	 * Writes the patches of input <code>n</code> into <code>columns</code>,
+	 * as a row-major <code>kernelSize x (outputHeight * outputWidth)</code> matrix
+	 * (elements outside the input are <code>0</code>).
+	 */
+	public final void im2col(final FloatBuffer inputs, final int n, final float[] columns) {
+		this.forEachPatchElement(n, (inputIndex, columnIndex) -> columns[columnIndex] = inputIndex < 0 ? 0F : inputs.get(inputIndex));
+	}
+	
+	/**
+	 * Adds each element of <code>columns</code> (see {@link #im2col(FloatBuffer, int, float[])})
+	 * to the element of input <code>n</code> it was taken from.
+	 */
+	public final void col2im(final float[] columns, final int n, final FloatBuffer inputs) {
+		this.forEachPatchElement(n, (inputIndex, columnIndex) -> {
+			if (0 <= inputIndex) {
+				inputs.put(inputIndex, inputs.get(inputIndex) + columns[columnIndex]);
+			}
+		});
+	}
+	
+	private final void forEachPatchElement(final int n, final IndexPairProcessor process) {
+		final int inputChannels = this.getInputChannels();
+		final int inputHeight = this.getInputHeight();
+		final int inputWidth = this.getInputWidth();
+		final int kernelHeight = this.getKernelHeight();
+		final int kernelWidth = this.getKernelWidth();
+		final int outputHeight = this.getOutputHeight();
+		final int outputWidth = this.getOutputWidth();
+		final int outputSize = outputHeight * outputWidth;
+		final int top = this.getPatchTop();
+		final int left = this.getPatchLeft();
+		final int verticalStride = this.getVerticalStride();
+		final int horizontalStride = this.getHorizontalStride();
+		
+		for (int c = 0, k = 0; c < inputChannels; ++c) {
+			final int channelIndex = (n * inputChannels + c) * inputHeight;
+			
+			for (int i = 0; i < kernelHeight; ++i) {
+				for (int j = 0; j < kernelWidth; ++j, ++k) {
+					for (int oy = 0, o = k * outputSize; oy < outputHeight; ++oy) {
+						final int y = top + oy * verticalStride + i;
+						
+						for (int ox = 0; ox < outputWidth; ++ox, ++o) {
+							final int x = left + ox * horizontalStride + j;
+							
+							process.process(0 <= y && y < inputHeight && 0 <= x && x < inputWidth ?
+									(channelIndex + y) * inputWidth + x : -1, o);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	private static final long serialVersionUID = -1806402574282463165L;
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static enum Operation {
+		
+		/**
+		 * Left: inputs, right: kernels.
+		 */
+		CONVOLUTION,
+		
+		/**
+		 * Left: diffs of the outputs, right: kernels.
+		 */
+		INPUTS_DIFFS,
+		
+		/**
+		 * Left: inputs, right: diffs of the outputs.
+		 */
+		KERNELS_DIFFS;
+		
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private static abstract interface IndexPairProcessor {
+		
+		public abstract void process(int inputIndex, int columnIndex);
+		
+	}
+	
+}
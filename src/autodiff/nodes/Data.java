@@ -3,13 +3,15 @@ package autodiff.nodes;
 import static autodiff.nodes.NodesTools.checkLength;
 import static autodiff.nodes.NodesTools.newId;
 import static autodiff.nodes.NodesTools.product;
+import static java.util.Collections.unmodifiableList;
 import static multij.tools.Tools.cast;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * @author codistmonk (creation 2016-07-11)
@@ -22,12 +24,25 @@ public final class Data implements Node<Data> {
 	
 	private int[] shape;
 	
+	private transient int length;
+	
+	private transient int[] shapeStrides;
+	
 	private Node<?> diffs;
 	
+	private transient List<Node<?>> arguments;
+	
+	private transient Storage argumentsStorage;
+	
+	private transient int argumentsContributorCount;
+	
 	{
 		this.id = newId();
 	}
 	
+	/**
+	 * @return The shape, which must not be modified
+	 */
 	@Override
 	public final int[] getShape() {
 		return this.shape;
@@ -35,13 +50,14 @@ public final class Data implements Node<Data> {
 	
 	@Override
 	public final Data setShape(final int... shape) {
-		if (this.getShape() == null) {
-			this.shape = shape;
-		} else {
+		if (this.getShape() != null) {
 			checkLength(this.getLength(), product(shape));
-			this.shape = shape;
 		}
 		
+		this.shape = shape.clone();
+		this.length = product(shape);
+		this.shapeStrides = null;
+		
 		if (this.getStorage() == null) {
 			this.setStorage(new Storage(this.getLength()));
 		}
@@ -53,6 +69,23 @@ public final class Data implements Node<Data> {
 		return this;
 	}
 	
+	/**
+	 * @return The cached product of the shape, or 0 if the shape is not set yet
+	 */
+	@Override
+	public final int getLength() {
+		return this.length;
+	}
+	
+	@Override
+	public final int[] getShapeStrides() {
+		if (this.shapeStrides == null) {
+			this.shapeStrides = Node.super.getShapeStrides();
+		}
+		
+		return this.shapeStrides;
+	}
+	
 	@Override
 	public final Storage getStorage() {
 		return this.storage;
@@ -91,21 +124,40 @@ public final class Data implements Node<Data> {
 		return this.id;
 	}
 	
+	/**
+	 * @return The contributors of the storage, except data and unfolded custom nodes; the result must not be modified
+	 */
 	@Override
 	public final List<Node<?>> getArguments() {
-		return this.getStorage().getContributors().stream().filter(n -> {
-			if (n instanceof Data) {
-				return false;
-			}
+		final Storage storage = this.getStorage();
+		final Collection<Node<?>> contributors = storage.getContributors();
+		
+		// contributors are only ever added, so the arguments only need to be collected again when their number changes,
+		// or when custom nodes (which may be unfolded since) contribute
+		if (this.arguments == null || this.argumentsStorage != storage || this.argumentsContributorCount != contributors.size()) {
+			final List<Node<?>> arguments = new ArrayList<>();
+			boolean custom = false;
 			
-			final CustomNode<?> customNode = cast(CustomNode.class, n);
+			for (final Node<?> n : contributors) {
+				final CustomNode<?> customNode = cast(CustomNode.class, n);
+				
+				custom |= customNode != null;
+				
+				if (!(n instanceof Data) && (customNode == null || !customNode.isUnfolded())) {
+					arguments.add(n);
+				}
+			}
 			
-			if (customNode != null && customNode.isUnfolded()) {
-				return false;
+			if (custom) {
+				return arguments;
 			}
 			
-			return true;
-		}).collect(Collectors.toList());
+			this.arguments = unmodifiableList(arguments);
+			this.argumentsStorage = storage;
+			this.argumentsContributorCount = contributors.size();
+		}
+		
+		return this.arguments;
 	}
 	
 	@Override
@@ -160,6 +212,7 @@ public final class Data implements Node<Data> {
 	private final void readObject(final ObjectInputStream in) throws ClassNotFoundException, IOException {
 		in.defaultReadObject();
 		this.id = newId();
+		this.length = this.shape == null ? 0 : product(this.shape);
 	}
 	
 	private static final long serialVersionUID = -8666641173896611664L;
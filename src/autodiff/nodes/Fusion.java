@@ -0,0 +1,211 @@
+package autodiff.nodes;
+
+import static autodiff.nodes.NodesTools.newId;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Chain of elementwise nodes ({@link Mapping} and broadcasting {@link Zipping}) evaluated in a single pass
+ * (see <code>NodeProcessor.fuse(List)</code>).
+ * <br>The steps are in evaluation order and the last one (the exit) provides the storage of the fusion;
+ * the other steps only have one consumer, which is a later step.
+ * <br>The values of an intermediate step are only written if it is materialized,
+ * that is if its consumer has diffs (back-propagation will read them);
+ * otherwise, its storage is never touched (and thus never allocated).
+ * <br>A fusion is only a scheduling unit: its storage is that of its exit, and it has no diffs.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class Fusion implements Node<Fusion> {
+	
+	private long id;
+	
+	private final List<Node<?>> steps;
+	
+	private final List<Node<?>> arguments;
+	
+	private final int[][] operands;
+	
+	private final boolean[] materialized;
+	
+	public Fusion(final List<Node<?>> steps) {
+		final int n = steps.size();
+		this.id = newId();
+		this.steps = steps;
+		this.arguments = new ArrayList<>();
+		this.operands = new int[n][];
+		this.materialized = new boolean[n];
+		
+		for (int i = 0; i < n; ++i) {
+			final List<Node<?>> stepArguments = steps.get(i).getArguments();
+			final int m = stepArguments.size();
+			
+			this.operands[i] = new int[m];
+			
+			for (int j = 0; j < m; ++j) {
+				final Node<?> argument = stepArguments.get(j);
+				final int stepIndex = indexOf(steps.subList(0, i), argument);
+				
+				if (0 <= stepIndex) {
+					this.operands[i][j] = stepIndex;
+				} else {
+					int argumentIndex = indexOf(this.arguments, argument);
+					
+					if (argumentIndex < 0) {
+						argumentIndex = this.arguments.size();
+						this.arguments.add(argument);
+					}
+					
+					this.operands[i][j] = -1 - argumentIndex;
+				}
+			}
+		}
+		
+		for (int i = 0; i < n; ++i) {
+			this.materialized[i] = this.isNeeded(i);
+		}
+	}
+	
+	public final List<Node<?>> getSteps() {
+		return this.steps;
+	}
+	
+	public final Node<?> getExit() {
+		return this.getSteps().get(this.getSteps().size() - 1);
+	}
+	
+	/**
+	 * @return For each step, the sources of its arguments:
+	 * <code>k</code> designates step <code>k</code> and <code>-1 - k</code> designates argument <code>k</code> of this fusion
+	 */
+	public final int[][] getOperands() {
+		return this.operands;
+	}
+	
+	public final boolean isMaterialized(final int stepIndex) {
+		return this.materialized[stepIndex];
+	}
+	
+	/**
+	 * @return The indices of the intermediate steps whose values are written
+	 */
+	public final int[] getMaterializedIntermediates() {
+		return IntStream.range(0, this.getSteps().size() - 1).filter(this::isMaterialized).toArray();
+	}
+	
+	/**
+	 * @return <code>true</code> if step <code>stepIndex</code> is the exit or if a step consuming it has diffs
+	 */
+	public final boolean isNeeded(final int stepIndex) {
+		final int n = this.getSteps().size();
+		
+		if (stepIndex == n - 1) {
+			return true;
+		}
+		
+		for (int i = stepIndex + 1; i < n; ++i) {
+			for (final int operand : this.operands[i]) {
+				if (operand == stepIndex && this.getSteps().get(i).hasDiffs()) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return The indices of the steps that are needed but were not materialized when this fusion was created
+	 */
+	public final int[] getStaleSteps() {
+		return IntStream.range(0, this.getSteps().size()).filter(i -> !this.isMaterialized(i) && this.isNeeded(i)).toArray();
+	}
+	
+	@Override
+	public final long getId() {
+		return this.id;
+	}
+	
+	@Override
+	public final int[] getShape() {
+		return this.getExit().getShape();
+	}
+	
+	@Override
+	public final List<Node<?>> getArguments() {
+		return Collections.unmodifiableList(this.arguments);
+	}
+	
+	@Override
+	public final Storage getStorage() {
+		return this.getExit().getStorage();
+	}
+	
+	/**
+	 * Makes the exit contribute to the storage of <code>node</code>, since the storage of a fusion is that of its exit.
+	 */
+	@Override
+	public final Fusion setStorage(final Node<?> node) {
+		this.getExit().setStorage(node);
+		
+		return this;
+	}
+	
+	@Override
+	public final void setupDiffs(final boolean setupDiffs) {
+		// NOP
+	}
+	
+	@Override
+	public final Node<?> getDiffs() {
+		return null;
+	}
+	
+	@Override
+	public final <V> V accept(final NodeVisitor<V> visitor) {
+		return visitor.visit(this);
+	}
+	
+	private final void readObject(final ObjectInputStream in) throws ClassNotFoundException, IOException {
+		in.defaultReadObject();
+		this.id = newId();
+	}
+	
+	private static final long serialVersionUID = 6171498745383389113L;
+	
+	/**
+	 * @return The index of <code>node</code> in <code>nodes</code> by identity, or <code>-1</code>
+	 */
+	public static final int indexOf(final List<Node<?>> nodes, final Node<?> node) {
+		final int n = nodes.size();
+		
+		for (int i = 0; i < n; ++i) {
+			if (nodes.get(i) == node) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * @return The function name of an elementwise node, or <code>null</code>
+	 */
+	public static final String getFunctionName(final Node<?> node) {
+		if (node instanceof Mapping) {
+			return ((Mapping) node).getFunctionName();
+		}
+		
+		if (node instanceof Zipping) {
+			return ((Zipping) node).getFunctionName();
+		}
+		
+		return null;
+	}
+	
+}
@@ -0,0 +1,123 @@
+package autodiff.nodes;
+
+import java.util.Arrays;
+
+/**
+ * Indexed gathering (see {@link NodesTools#selection(Node, Node)}).
+ * <br>The vectors are seen as <code>m</code> rows made of <code>indicesCount</code> chunks of <code>vectorCount</code> elements,
+ * and the indices as <code>indicesCount</code> rows of <code>indicesStride</code> elements;
+ * element <code>(r, j)</code> of the result is element <code>indices[j]</code> of chunk <code>j / indicesStride</code> of row <code>r</code>,
+ * or <code>0</code> if that index does not designate an element of row <code>r</code> (eg {@link NodesTools#NaI}).
+ * <br>A transposed gathering scatters and adds its argument back into the vectors instead
+ * (it is used to back-propagate through gatherings); no diffs are propagated to the indices.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class Gathering extends AbstractNode<Gathering> {
+	
+	private boolean transposed;
+	
+	public Gathering() {
+		super(Arrays.asList(new Node[2]));
+	}
+	
+	/**
+	 * @return The vectors, or the values to scatter if transposed
+	 */
+	public final Node<?> getArgument() {
+		return this.getArguments().get(0);
+	}
+	
+	public final Gathering setArgument(final Node<?> argument) {
+		this.getArguments().set(0, argument);
+		
+		return this;
+	}
+	
+	public final Node<?> getIndices() {
+		return this.getArguments().get(1);
+	}
+	
+	public final Gathering setIndices(final Node<?> indices) {
+		this.getArguments().set(1, indices);
+		
+		return this;
+	}
+	
+	public final boolean isTransposed() {
+		return this.transposed;
+	}
+	
+	public final Gathering setTransposed(final boolean transposed) {
+		this.transposed = transposed;
+		
+		return this;
+	}
+	
+	public final Node<?> getVectorsSide() {
+		return this.isTransposed() ? this : this.getArgument();
+	}
+	
+	public final int getVectorCount() {
+		return this.getVectorsSide().getLength(2, 1);
+	}
+	
+	public final int getIndicesCount() {
+		return this.getIndices().getLength(2, 0);
+	}
+	
+	public final int getIndicesStride() {
+		return this.getIndices().getLength(2, 1);
+	}
+	
+	public final int getVectorsStride() {
+		return this.getVectorCount() * this.getIndicesCount();
+	}
+	
+	public final int getRowCount() {
+		return this.getVectorsSide().getLength() / this.getVectorsStride();
+	}
+	
+	/**
+	 * @return An array containing, for each index, the offset of the designated element inside a row of vectors,
+	 * or <code>-1</code> if there is none
+	 */
+	public final int[] getOffsets() {
+		final Node<?> indices = this.getIndices();
+		final int n = indices.getLength();
+		final int[] result = new int[n];
+		final int vectorCount = this.getVectorCount();
+		final int indicesStride = this.getIndicesStride();
+		final int vectorsStride = this.getVectorsStride();
+		
+		for (int j = 0; j < n; ++j) {
+			result[j] = offset(indices.get(j), j / indicesStride, vectorCount, vectorsStride);
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public final <V> V accept(final NodeVisitor<V> visitor) {
+		return visitor.visit(this);
+	}
+	
+	@Override
+	public final Gathering autoShape() {
+		if (this.isTransposed()) {
+			throw new IllegalStateException("Shape of scattering must be set explicitly");
+		}
+		
+		return this.setShape(this.getRowCount(), this.getIndices().getLength());
+	}
+	
+	private static final long serialVersionUID = 2983473426931436312L;
+	
+	public static final int offset(final float index, final int chunk, final int vectorCount, final int vectorsStride) {
+		final float shifted = index + vectorCount * chunk;
+		final int result = (int) shifted;
+		
+		return result == shifted && 0 <= result && result < vectorsStride ? result : -1;
+	}
+	
+}
@@ -60,6 +60,10 @@ public abstract interface Node<N extends Node<?>> extends Serializable {
 	
 	public abstract N setStorage(final Node<?> node);
 	
+	/**
+	 * Synchronizes the host values and counts as a modification (see {@link Storage#getFloatBuffer()}),
+	 * so loops should fetch the buffer once and then use absolute accesses rather than {@link #get(int)} and {@link #set(int, float)}.
+	 */
 	public default FloatBuffer getFloatBuffer() {
 		return this.getStorage() == null ? null : this.getStorage().getFloatBuffer();
 	}
@@ -102,8 +106,50 @@ public abstract interface Node<N extends Node<?>> extends Serializable {
 		return result;
 	}
 	
+	/**
+	 * @return The product of the shape; {@link Data} caches it, so that it can be called in loops
+	 */
 	public default int getLength() {
-		return this.getLengths(new int[1])[0];
+		return product(this.getShape());
+	}
+	
+	/**
+	 * Same as <code>getLengths(new int[dimensions])[dimension]</code>, without allocating.
+	 */
+	public default int getLength(final int dimensions, final int dimension) {
+		final int[] shape = this.getShape();
+		final int naturalDimensions = shape.length;
+		
+		if (dimensions == naturalDimensions) {
+			return shape[dimension];
+		}
+		
+		if (naturalDimensions <= dimension) {
+			return 1;
+		}
+		
+		return dimension + 1 < dimensions ? shape[dimension] : subproduct(shape, dimension);
+	}
+	
+	public default int getRank() {
+		return this.getShape().length;
+	}
+	
+	/**
+	 * @return The offset between consecutive elements along each dimension (row-major, so the last stride is 1);
+	 * {@link Data} caches them, and the result must not be modified
+	 */
+	public default int[] getShapeStrides() {
+		final int[] shape = this.getShape();
+		final int[] result = new int[shape.length];
+		int stride = 1;
+		
+		for (int i = shape.length - 1; 0 <= i; --i) {
+			result[i] = stride;
+			stride *= shape[i];
+		}
+		
+		return result;
 	}
 	
 	public default float get() {
@@ -117,7 +163,7 @@ public abstract interface Node<N extends Node<?>> extends Serializable {
 	}
 	
 	public default float get(final int index) {
-		return this.getFloatBuffer().get(index);
+		return this.getStorage().get(index);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -135,7 +181,7 @@ public abstract interface Node<N extends Node<?>> extends Serializable {
 	
 	@SuppressWarnings("unchecked")
 	public default N set(final int index, final float value) {
-		this.getFloatBuffer().put(index, value);
+		this.getStorage().set(index, value);
 		
 		return (N) this;
 	}
@@ -47,4 +47,24 @@ public abstract interface NodeVisitor<V> extends Serializable {
 		return this.visit((BinaryNode<?>) node);
 	}
 	
+	public default V visit(final Reduction node) {
+		return this.visit((AbstractNode<?>) node);
+	}
+	
+	public default V visit(final Gathering node) {
+		return this.visit((AbstractNode<?>) node);
+	}
+	
+	public default V visit(final Convolution node) {
+		return this.visit((BinaryNode<?>) node);
+	}
+	
+	public default V visit(final Pooling node) {
+		return this.visit((AbstractNode<?>) node);
+	}
+	
+	public default V visit(final Fusion node) {
+		return this.visit((Node<?>) node);
+	}
+	
 }
@@ -49,9 +49,9 @@ public final class NodesTools {
 	
 	public static final Node<?> lowerTriangularOnes(final int n) {
 		if (true) {
-			return Computation.lowerTriangularOnes()
+			return structure(Computation.lowerTriangularOnes()
 					.set("n", n)
-					.autoShape();
+					.autoShape(), StructuredMatrix.lowerTriangularOnes(n));
 		}
 		
 		return new LowerTriangularOnes(n).autoShape();
@@ -73,7 +73,7 @@ public final class NodesTools {
 	}
 	
 	public static final Node<?> maxPooling(final Node<?> inputs, final PatchSampling sampling) {
-		return new MaxPooling(sampling).setInputs(inputs).autoShape();
+		return new Pooling(sampling).setInputs(inputs).autoShape();
 	}
 	
 	public static final Node<?> convolutions(final Node<?> inputs, final int[] offsets, final int[] strides, final Node<?> kernel) {
@@ -83,7 +83,8 @@ public final class NodesTools {
 	}
 	
 	public static final Node<?> convolutions(final Node<?> inputs, final GridSampling sampling, final Node<?> kernel) {
-		return new Convolutions(sampling).setInputs(inputs).setKernels(kernel).autoShape();
+		return new Convolution(new PatchSampling(sampling).setPatchShape(kernel.getShape()))
+				.setLeft(inputs).setRight(kernel).autoShape();
 	}
 	
 	public static final Node<?> patches(final Node<?> inputs, final int[] offsets, final int[] strides, final int[] patchShape) {
@@ -97,7 +98,7 @@ public final class NodesTools {
 	}
 	
 	public static final Node<?> selection(final Node<?> vectors, final Node<?> indices) {
-		return new Selection().setVectors(vectors).setIndices(indices).autoShape();
+		return new Gathering().setArgument(vectors).setIndices(indices).autoShape();
 	}
 	
 	public static final Node<?> repeatAndIncrease(final int delta, final int n, final int stride) {
@@ -114,10 +115,10 @@ public final class NodesTools {
 	
 	public static final Node<?> innerReplicator(final int stride, final int replications) {
 		if (true) {
-			return Computation.innerReplicator()
+			return structure(Computation.innerReplicator()
 					.set("stride", stride)
 					.set("n", replications)
-					.autoShape();
+					.autoShape(), StructuredMatrix.innerReplicator(stride, replications));
 		}
 		
 		return new InnerReplicator(stride, replications).autoShape();
@@ -125,10 +126,10 @@ public final class NodesTools {
 	
 	public static final Node<?> outerReplicator(final int stride, final int replications) {
 		if (true) {
-			return Computation.outerReplicator()
+			return structure(Computation.outerReplicator()
 					.set("stride", stride)
 					.set("n", replications)
-					.autoShape();
+					.autoShape(), StructuredMatrix.outerReplicator(stride, replications));
 		}
 		
 		return new OuterReplicator(stride, replications).autoShape();
@@ -143,7 +144,7 @@ public final class NodesTools {
 	}
 	
 	public static final Node<?> sum(final Node<?> argument, final int... strides) {
-		return new Sum(strides).setArgument(argument).autoShape();
+		return new Reduction().setStrides(strides).setArgument(argument).autoShape();
 	}
 	
 	public static final Node<?> merge(final int dimensionIndex, final Node<?>... arguments) {
@@ -188,12 +189,37 @@ public final class NodesTools {
 	
 	public static final Node<?> ones(final int... shape) {
 		if (true) {
-			return Computation.ones().set("shape", shape).autoShape();
+			final Node<?> result = Computation.ones().set("shape", shape).autoShape();
+			final int[] lengths = result.getLengths(new int[2]);
+			
+			return structure(result, StructuredMatrix.ones(lengths[0], lengths[1]));
 		}
 		
 		return new Ones(shape).autoShape();
 	}
 	
+	/**
+	 * @return A new constant node holding the values of <code>matrix</code>
+	 */
+	public static final Node<?> structured(final StructuredMatrix matrix) {
+		final Node<?> result = new Data().setShape(matrix.getRows(), matrix.getColumns());
+		
+		matrix.copyTo(result.getFloatBuffer());
+		result.getStorage().setConstant(true);
+		
+		return structure(result, matrix);
+	}
+	
+	/**
+	 * Declares that the values of <code>node</code> are those of <code>matrix</code>
+	 * (see {@link Storage#setStructure(StructuredMatrix)}).
+	 */
+	public static final <N extends Node<?>> N structure(final N node, final StructuredMatrix matrix) {
+		node.getStorage().setStructure(matrix);
+		
+		return node;
+	}
+	
 	public static final void checkLength(final int expectedLength, final int actualLength) {
 		check(expectedLength == actualLength, () -> "Expected length: " + expectedLength + ", actual: " + actualLength);
 	}
@@ -559,45 +585,7 @@ public final class NodesTools {
 		
 		@Override
 		protected final Node<?> doUnfold() {
-			final Node<?> argument = this.getArgument();
-			
-			if (this.strides.length == 0) {
-				final int n = argument.getLength();
-				final Node<?> mul = $(shape(argument, 1, n), ones(n, 1));
-				
-				mul.setStorage(this);
-				
-				return shape(mul, 1);
-			}
-			
-			final int[] resultShape = this.getShape();
-			final int m = argument.getLength();
-			final int n = product(resultShape);
-			final Node<?> right = new Data().setShape(m, n);
-			final int[] argumentShape = argument.getLengths(new int[this.strides.length]);
-			final int[] outerBounds = bounds(resultShape);
-			final int[] innerBounds = bounds(this.strides);
-			
-			for (final int[] i : cartesian(outerBounds)) {
-				for (int j = 0; j < i.length; ++j) {
-					innerBounds[2 * j + 0] = i[j] * this.strides[j];
-					innerBounds[2 * j + 1] = i[j] * this.strides[j] + this.strides[j] - 1;
-				}
-				
-				final int outputIndex = indexFromCartesian(resultShape, i);
-				
-				for (final int[] j : cartesian(innerBounds)) {
-					final int k = indexFromCartesian(argumentShape, j);
-					
-					right.set(outputIndex + n * k, 1F);
-				}
-			}
-			
-			final Node<?> mul = $(shape(argument, 1, m), right);
-			
-			mul.setStorage(this);
-			
-			return shape(mul, resultShape);
+			return new Reduction().setStrides(this.strides).setArgument(this.getArgument()).setStorage(this).setShape(this.getShape());
 		}
 		
 		private static final long serialVersionUID = -7076790199639726703L;
@@ -845,26 +833,7 @@ public final class NodesTools {
 		
 		@Override
 		protected final Node<?> doUnfold() {
-			final Node<?> vectors = this.getArguments().get(0);
-			final Node<?> indices = this.getArguments().get(1);
-			final int[] vectorsShape = vectors.getLengths(new int[2]);
-			final int[] indicesShape = indices.getLengths(new int[2]);
-			final int vectorCount = vectorsShape[1];
-			final int indicesCount = indicesShape[0];
-			final int indicesStride = indicesShape[1];
-			final int vectorsStride = vectorCount * indicesCount;
-			final Node<?> shiftData = repeatAndIncrease(vectorCount, indicesCount, indicesStride);
-			final Node<?> shift = $(indices, "+", shiftData);
-			final Node<?> replicationMatrix = innerReplicator(indicesStride, vectorsStride);
-			final Node<?> replicatedIndices = $(shape(shift, indices.getLength() / indicesStride, indicesStride), replicationMatrix);
-			final Node<?> range = range(vectorsStride);
-			final Node<?> mask = $(KRONECKER, replicatedIndices, range);
-			final Node<?> mul = $(shape(vectors, vectors.getLength() / vectorsStride, vectorsStride),
-					shape(mask, mask.getLength() / vectorsStride, vectorsStride), T);
-			
-			mul.setStorage(this);
-			
-			return shape(mul, this.getShape());
+			return new Gathering().setArgument(this.getVectors()).setIndices(this.getIndices()).setStorage(this).setShape(this.getShape());
 		}
 		
 		private static final long serialVersionUID = 7244337174139272122L;
@@ -1076,19 +1045,10 @@ public final class NodesTools {
 		
 		@Override
 		protected final Node<?> doUnfold() {
-			final Node<?> inputs = this.getInputs();
 			final Node<?> kernels = this.getKernels();
-			final Node<?> patches = patches(inputs, new PatchSampling(this.sampling).setPatchShape(kernels.getShape()));
-			final int[] kernelsShape = kernels.getLengths(new int[2]);
-			final int kernelLength = kernelsShape[kernelsShape.length - 1];
-			
-			final Node<?> mul = $(
-					shape(kernels, kernels.getLength() / kernelLength, kernelLength), 
-					shape(patches, patches.getLength() / kernelLength, kernelLength), T);
 			
-			mul.setStorage(this);
-			
-			return shape(mul, this.getShape());
+			return new Convolution(new PatchSampling(this.sampling).setPatchShape(kernels.getShape()))
+					.setLeft(this.getInputs()).setRight(kernels).setStorage(this).setShape(this.getShape());
 		}
 		
 		private static final long serialVersionUID = -9102153974630246500L;
@@ -1126,14 +1086,9 @@ public final class NodesTools {
 		
 		@Override
 		protected final Node<?> doUnfold() {
-			final Node<?> patches = patches(this.getInputs(), this.sampling);
-			final int[] patchesShape = patches.getShape();
-			final Node<?> percentile = percentile(shape(
-					patches, patchesShape[0] * patchesShape[1], patchesShape[2] * patchesShape[3]), $(1F));
-			
-			percentile.setStorage(this);
+			final Pooling result = new Pooling(this.sampling).setInputs(this.getInputs()).autoShape();
 			
-			return shape(percentile, this.getShape());
+			return result.setStorage(this);
 		}
 		
 		private static final long serialVersionUID = -24236175911223991L;
@@ -0,0 +1,146 @@
+package autodiff.nodes;
+
+import static autodiff.nodes.NodesTools.NaI;
+
+import autodiff.nodes.NodesTools.GridSampling;
+import autodiff.nodes.NodesTools.PatchSampling;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Max pooling (see {@link NodesTools#maxPooling(Node, PatchSampling)}).
+ * <br>Elements of a window that fall outside the input count as <code>0</code>, as with {@link NodesTools#patches(Node, PatchSampling)}.
+ * <br>Along with the maxima, the forward pass stores in {@link #getIndices()} the index of each maximum
+ * inside its input (or {@link NodesTools#NaI} if it is outside), with shape <code>(inputCount, outputSize)</code>,
+ * so that diffs can be back-propagated by a transposed {@link Gathering}.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class Pooling extends AbstractNode<Pooling> {
+	
+	private final PatchSampling sampling;
+	
+	private final Data indices;
+	
+	public Pooling(final PatchSampling sampling) {
+		super(Arrays.asList(new Node[1]));
+		this.sampling = sampling;
+		
+		final GridSampling grid = this.getGrid();
+		
+		this.indices = new Data().setShape(grid.getInputCount(), grid.getInputChannels() * grid.getOutputHeight() * grid.getOutputWidth());
+	}
+	
+	public final Node<?> getInputs() {
+		return this.getArguments().get(0);
+	}
+	
+	public final Pooling setInputs(final Node<?> inputs) {
+		this.getArguments().set(0, inputs);
+		
+		return this;
+	}
+	
+	public final PatchSampling getSampling() {
+		return this.sampling;
+	}
+	
+	public final GridSampling getGrid() {
+		return this.getSampling().getSampling();
+	}
+	
+	public final Data getIndices() {
+		return this.indices;
+	}
+	
+	/**
+	 * @return The vertical position of the first element of the first window
+	 */
+	public final int getPatchTop() {
+		return this.getGrid().getOffsets()[GridSampling.TOP_OFFSET] - (this.getSampling().getPatchHeight() - 1) / 2;
+	}
+	
+	/**
+	 * @return The horizontal position of the first element of the first window
+	 */
+	public final int getPatchLeft() {
+		return this.getGrid().getOffsets()[GridSampling.LEFT_OFFSET] - (this.getSampling().getPatchWidth() - 1) / 2;
+	}
+	
+	@Override
+	public final <V> V accept(final NodeVisitor<V> visitor) {
+		return visitor.visit(this);
+	}
+	
+	@Override
+	public final Pooling autoShape() {
+		final GridSampling grid = this.getGrid();
+		final int inputCount = grid.getInputCount();
+		final int channels = grid.getInputChannels();
+		final int outputHeight = grid.getOutputHeight();
+		final int outputWidth = grid.getOutputWidth();
+		
+		return this.setShape(inputCount, channels, outputHeight, outputWidth);
+	}
+	
+	/**
+	 * Adds the maxima of <code>inputs</code> to <code>outputs</code> and writes their indices into <code>indices</code>.
+	 */
+	public final void forward(final FloatBuffer inputs, final FloatBuffer outputs, final FloatBuffer indices) {
+		final GridSampling grid = this.getGrid();
+		final int inputCount = grid.getInputCount();
+		final int channels = grid.getInputChannels();
+		final int inputHeight = grid.getInputHeight();
+		final int inputWidth = grid.getInputWidth();
+		final int inputSize = grid.getInputSize();
+		final int outputHeight = grid.getOutputHeight();
+		final int outputWidth = grid.getOutputWidth();
+		final int patchHeight = this.getSampling().getPatchHeight();
+		final int patchWidth = this.getSampling().getPatchWidth();
+		final int top = this.getPatchTop();
+		final int left = this.getPatchLeft();
+		final int verticalStride = grid.getStrides()[GridSampling.VERTICAL_STRIDE];
+		final int horizontalStride = grid.getStrides()[GridSampling.HORIZONTAL_STRIDE];
+		
+		for (int n = 0, o = 0; n < inputCount; ++n) {
+			for (int c = 0; c < channels; ++c) {
+				final int channelOffset = c * inputHeight * inputWidth;
+				
+				for (int oy = 0; oy < outputHeight; ++oy) {
+					for (int ox = 0; ox < outputWidth; ++ox, ++o) {
+						float max = Float.NEGATIVE_INFINITY;
+						float argmax = NaI;
+						
+						for (int i = 0; i < patchHeight; ++i) {
+							final int y = top + oy * verticalStride + i;
+							
+							for (int j = 0; j < patchWidth; ++j) {
+								final int x = left + ox * horizontalStride + j;
+								
+								if (0 <= y && y < inputHeight && 0 <= x && x < inputWidth) {
+									final int index = channelOffset + y * inputWidth + x;
+									final float value = inputs.get(n * inputSize + index);
+									
+									if (max < value) {
+										max = value;
+										argmax = index;
+									}
+								} else if (max < 0F) {
+									max = 0F;
+									argmax = NaI;
+								}
+							}
+						}
+						
+						outputs.put(o, outputs.get(o) + max);
+						indices.put(o, argmax);
+					}
+				}
+			}
+		}
+	}
+	
+	private static final long serialVersionUID = 4386917458004127853L;
+	
+}
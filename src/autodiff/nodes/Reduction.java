@@ -0,0 +1,173 @@
+package autodiff.nodes;
+
+import static autodiff.nodes.NodesTools.product;
+
+import java.util.Arrays;
+
+/**
+ * Strided sum: each element of the result is the sum of a block of <code>strides</code> elements of the argument,
+ * the argument being seen as an array of <code>argument.getLengths(new int[strides.length])</code> elements;
+ * without strides, the whole argument is summed.
+ * <br>A transposed reduction broadcasts each element of its argument over a block instead
+ * (it is used to back-propagate through reductions).
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class Reduction extends AbstractNode<Reduction> {
+	
+	private int[] strides;
+	
+	private boolean transposed;
+	
+	public Reduction() {
+		super(Arrays.asList((Node<?>) null));
+		this.strides = new int[0];
+	}
+	
+	public final Reduction setArgument(final Node<?> argument) {
+		this.getArguments().set(0, argument);
+		
+		return this;
+	}
+	
+	public final Node<?> getArgument() {
+		return this.getArguments().get(0);
+	}
+	
+	public final int[] getStrides() {
+		return this.strides;
+	}
+	
+	public final Reduction setStrides(final int... strides) {
+		this.strides = strides;
+		
+		return this;
+	}
+	
+	public final boolean isTransposed() {
+		return this.transposed;
+	}
+	
+	public final Reduction setTransposed(final boolean transposed) {
+		this.transposed = transposed;
+		
+		return this;
+	}
+	
+	/**
+	 * @return The lengths of the non-reduced side (the argument, or this node if transposed)
+	 * using <code>max(1, strides.length)</code> dimensions
+	 */
+	public final int[] getFullLengths() {
+		final Node<?> full = this.isTransposed() ? this : this.getArgument();
+		
+		return full.getLengths(new int[Math.max(1, this.getStrides().length)]);
+	}
+	
+	/**
+	 * @return The strides using <code>max(1, strides.length)</code> dimensions
+	 * (a complete reduction uses a single block covering everything)
+	 */
+	public final int[] getBlockLengths() {
+		if (this.getStrides().length == 0) {
+			return this.getFullLengths();
+		}
+		
+		return this.getStrides();
+	}
+	
+	@Override
+	public final <V> V accept(final NodeVisitor<V> visitor) {
+		return visitor.visit(this);
+	}
+	
+	@Override
+	public final Reduction autoShape() {
+		final int[] strides = this.getStrides();
+		final int d = strides.length;
+		
+		if (this.isTransposed()) {
+			if (d == 0) {
+				throw new IllegalStateException("Shape of complete broadcast must be set explicitly");
+			}
+			
+			final int[] resultShape = this.getArgument().getLengths(new int[d]);
+			
+			for (int i = 0; i < d; ++i) {
+				resultShape[i] *= strides[i];
+			}
+			
+			return this.setShape(resultShape);
+		}
+		
+		if (d == 0) {
+			return this.setShape(1);
+		}
+		
+		final int[] resultShape = this.getArgument().getLengths(new int[d]);
+		
+		for (int i = 0; i < d; ++i) {
+			if (resultShape[i] % strides[i] != 0) {
+				throw new IllegalArgumentException(resultShape[i] + " not divisible by " + strides[i]);
+			}
+			
+			resultShape[i] /= strides[i];
+		}
+		
+		return this.setShape(resultShape);
+	}
+	
+	/**
+	 * Calls <code>process</code> for each element of the full side, in storage order,
+	 * along with the index of the corresponding element of the reduced side.
+	 * <br>Runs in <code>O(full length)</code> without allocating per element.
+	 */
+	public final void forEachIndex(final IndexPairProcessor process) {
+		final int[] full = this.getFullLengths();
+		final int[] blocks = this.getBlockLengths();
+		final int d = full.length;
+		final int[] weights = new int[d];
+		final int[] indices = new int[d];
+		final int[] remainders = new int[d];
+		final int[] quotients = new int[d];
+		final int n = product(full);
+		
+		for (int i = d - 1, w = 1; 0 <= i; --i) {
+			weights[i] = w;
+			w *= full[i] / blocks[i];
+		}
+		
+		for (int k = 0, o = 0; k < n; ++k) {
+			process.process(k, o);
+			
+			for (int i = d - 1; 0 <= i; --i) {
+				if (++indices[i] < full[i]) {
+					if (++remainders[i] == blocks[i]) {
+						remainders[i] = 0;
+						++quotients[i];
+						o += weights[i];
+					}
+					
+					break;
+				}
+				
+				o -= quotients[i] * weights[i];
+				indices[i] = 0;
+				remainders[i] = 0;
+				quotients[i] = 0;
+			}
+		}
+	}
+	
+	private static final long serialVersionUID = -3357005406463826137L;
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static abstract interface IndexPairProcessor {
+		
+		public abstract void process(int fullIndex, int reducedIndex);
+		
+	}
+	
+}
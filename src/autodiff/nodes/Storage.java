@@ -7,12 +7,21 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
+ * The buffer is allocated lazily, on first access, so that storages that are never read nor written
+ * (eg intermediates of a {@link Fusion}) cost no memory.
+ * <br>Processors that keep copies of the values elsewhere (eg on an OpenCL device) use the version,
+ * which counts the host accesses that may have modified the values, to know when their copy is stale,
+ * and {@link #setHostSynchronizer(Runnable)} to defer copying their results back until the host needs them.
+ * <br>The memory comes from the allocator that was the default when the storage was created (see {@link StorageArena}).
+ * <br>Storages of constant matrices may also describe their values with a {@link StructuredMatrix}.
+ * <br>The version and write count are updated atomically, since parallel processors may access a storage from several threads.
+ * 
  * @author codistmonk (creation 2016-08-03)
  */
 public final class Storage implements Serializable {
@@ -25,13 +34,26 @@ public final class Storage implements Serializable {
 	
 	private transient int byteOffset;
 	
-	private transient FloatBuffer floatBuffer;
+	private transient volatile FloatBuffer floatBuffer;
+	
+	private transient volatile long version;
+	
+	private transient volatile long writeCount;
+	
+	private boolean constant;
+	
+	private transient volatile Runnable hostSynchronizer;
+	
+	private transient StorageAllocator allocator;
+	
+	private transient StorageAllocator owner;
+	
+	private StructuredMatrix structure;
 	
 	public Storage(final int length) {
 		this.length = length;
 		this.contributors = new LinkedHashSet<>();
-		
-		this.allocate();
+		this.allocator = getDefaultAllocator();
 	}
 	
 	public final int getLength() {
@@ -42,23 +64,155 @@ public final class Storage implements Serializable {
 		return this.contributors;
 	}
 	
+	public final boolean isAllocated() {
+		return this.floatBuffer != null;
+	}
+	
+	public final StorageAllocator getAllocator() {
+		return this.allocator;
+	}
+	
+	/**
+	 * Takes effect on the next allocation, ie on first access or after {@link #release()}.
+	 */
+	public final Storage setAllocator(final StorageAllocator allocator) {
+		this.allocator = allocator;
+		
+		return this;
+	}
+	
+	/**
+	 * @return A description of the values as a matrix that processors may use instead of the values
+	 * (eg to multiply by a sparse constant in fewer operations), or <code>null</code>
+	 */
+	public final StructuredMatrix getStructure() {
+		return this.structure;
+	}
+	
+	/**
+	 * Declares that the values are those of <code>structure</code> whenever they are read,
+	 * whichever node writes them (typically a constant computation).
+	 */
+	public final Storage setStructure(final StructuredMatrix structure) {
+		if (structure != null) {
+			checkLength(this.getLength(), structure.getRows() * structure.getColumns());
+		}
+		
+		this.structure = structure;
+		
+		return this;
+	}
+	
 	public final ByteBuffer getByteBuffer() {
+		this.getFloatBuffer();
+		
 		return this.byteBuffer;
 	}
 	
 	public final int getByteOffset() {
+		this.getFloatBuffer();
+		
 		return this.byteOffset;
 	}
 	
+	/**
+	 * Synchronizes the host values, and counts as a modification since callers may write into the buffer.
+	 */
 	public final FloatBuffer getFloatBuffer() {
+		this.synchronizeHost();
+		VERSION.incrementAndGet(this);
+		
+		return this.getRawFloatBuffer();
+	}
+	
+	/**
+	 * @return The buffer, without synchronizing it nor counting a modification
+	 */
+	public final FloatBuffer getRawFloatBuffer() {
+		if (this.floatBuffer == null) {
+			this.allocate();
+		}
+		
 		return this.floatBuffer;
 	}
 	
+	/**
+	 * @return A number that changes after each host access that may have modified the values
+	 */
+	public final long getVersion() {
+		return this.version;
+	}
+	
+	/**
+	 * @return A number that changes after each explicit write of the values
+	 * (through {@link #set(float...)}, {@link #set(int, float)}, {@link #setByteBuffer(ByteBuffer)} or {@link #release()}),
+	 * unlike the version, which also changes after buffer accesses
+	 */
+	public final long getWriteCount() {
+		return this.writeCount;
+	}
+	
+	public final boolean isConstant() {
+		return this.constant;
+	}
+	
+	/**
+	 * Declares that the values only change through explicit writes (see {@link #getWriteCount()}),
+	 * so that processors may compute what depends on them once (see {@link autodiff.computing.ConstantFolding}).
+	 */
+	public final Storage setConstant(final boolean constant) {
+		this.constant = constant;
+		
+		return this;
+	}
+	
+	/**
+	 * Declares that the host values are stale (or must not be modified yet) until <code>hostSynchronizer</code> has run.
+	 * <br>It will run at most once, on the next host access (or {@link #synchronizeHost()}), unless it is replaced before.
+	 * 
+	 * @param hostSynchronizer <code>null</code> to declare that the host values are up to date
+	 */
+	public final void setHostSynchronizer(final Runnable hostSynchronizer) {
+		this.hostSynchronizer = hostSynchronizer;
+	}
+	
+	public final Runnable getHostSynchronizer() {
+		return this.hostSynchronizer;
+	}
+	
+	public final boolean isHostSynchronized() {
+		return this.hostSynchronizer == null;
+	}
+	
+	public final void synchronizeHost() {
+		if (this.hostSynchronizer != null) {
+			synchronized (this) {
+				final Runnable hostSynchronizer = this.hostSynchronizer;
+				
+				if (hostSynchronizer != null) {
+					hostSynchronizer.run();
+					this.hostSynchronizer = null;
+				}
+			}
+		}
+	}
+	
+	public final float get(final int index) {
+		this.synchronizeHost();
+		
+		return this.getRawFloatBuffer().get(index);
+	}
+	
 	public final float[] get(final float[] result) {
 		checkLength(this.getLength(), result.length);
 		
-		this.getFloatBuffer().position(0);
-		this.getFloatBuffer().get(result);
+		this.synchronizeHost();
+		
+		// a duplicate keeps concurrent bulk accesses from sharing a position
+		final FloatBuffer buffer = this.getRawFloatBuffer().duplicate();
+		
+		buffer.position(0);
+		buffer.get(result);
 		
 		return result;
 	}
@@ -66,20 +220,76 @@ public final class Storage implements Serializable {
 	public final Storage set(final float... values) {
 		checkLength(this.getLength(), values.length);
 		
-		this.getFloatBuffer().position(0);
-		this.getFloatBuffer().put(values);
+		this.synchronizeHost();
+		VERSION.incrementAndGet(this);
+		WRITE_COUNT.incrementAndGet(this);
+		
+		final FloatBuffer buffer = this.getRawFloatBuffer().duplicate();
+		
+		buffer.position(0);
+		buffer.put(values);
 		
 		return this;
 	}
 	
-	private final void allocate() {
-		this.setByteBuffer(ByteBuffer.allocateDirect(Float.BYTES * this.getLength()).order(ByteOrder.nativeOrder()));
+	public final Storage set(final int index, final float value) {
+		this.synchronizeHost();
+		VERSION.incrementAndGet(this);
+		WRITE_COUNT.incrementAndGet(this);
+		
+		this.getRawFloatBuffer().put(index, value);
+		
+		return this;
 	}
 	
-	private final void setByteBuffer(final ByteBuffer byteBuffer) {
+	/**
+	 * Gives the memory back to the allocator that provided it; the values are lost,
+	 * and the next access allocates new memory.
+	 * <br>Processors must not use this storage anymore (see {@link autodiff.computing.NodeProcessor#reset()}).
+	 */
+	public final synchronized void release() {
+		this.hostSynchronizer = null;
+		
+		if (this.owner != null) {
+			this.owner.release(this.byteBuffer);
+			this.owner = null;
+		}
+		
+		this.byteBuffer = null;
+		this.byteOffset = 0;
+		this.floatBuffer = null;
+		VERSION.incrementAndGet(this);
+		WRITE_COUNT.incrementAndGet(this);
+	}
+	
+	private final synchronized void allocate() {
+		if (this.floatBuffer == null) {
+			final StorageAllocator allocator = this.getAllocator();
+			
+			this.useByteBuffer(allocator.allocate(this));
+			this.owner = allocator;
+		}
+	}
+	
+	/**
+	 * Makes this storage use the memory of <code>byteBuffer</code> from its position on, without copying the values
+	 * (eg to place several storages in one arena, see {@link autodiff.computing.MemoryPlan}).
+	 */
+	public final synchronized void setByteBuffer(final ByteBuffer byteBuffer) {
+		this.release();
+		this.useByteBuffer(byteBuffer);
+		VERSION.incrementAndGet(this);
+		WRITE_COUNT.incrementAndGet(this);
+	}
+	
+	private final void useByteBuffer(final ByteBuffer byteBuffer) {
+		final ByteBuffer view = byteBuffer.duplicate().order(byteBuffer.order());
+		
+		view.limit(view.position() + Float.BYTES * this.getLength());
+		
 		this.byteBuffer = byteBuffer;
 		this.byteOffset = byteBuffer.position();
-		this.floatBuffer = byteBuffer.asFloatBuffer();
+		this.floatBuffer = view.asFloatBuffer();
 	}
 	
 	private final void writeObject(final ObjectOutputStream out) throws IOException {
@@ -90,11 +300,27 @@ public final class Storage implements Serializable {
 	private final void readObject(final ObjectInputStream in) throws ClassNotFoundException, IOException {
 		in.defaultReadObject();
 		
-		this.allocate();
-		
+		this.allocator = getDefaultAllocator();
 		this.set((float[]) in.readObject());
 	}
 	
 	private static final long serialVersionUID = -5827485133691923306L;
 	
+	private static final AtomicLongFieldUpdater<Storage> VERSION = AtomicLongFieldUpdater.newUpdater(Storage.class, "version");
+	
+	private static final AtomicLongFieldUpdater<Storage> WRITE_COUNT = AtomicLongFieldUpdater.newUpdater(Storage.class, "writeCount");
+	
+	private static volatile StorageAllocator defaultAllocator = StorageAllocator.DIRECT;
+	
+	public static final StorageAllocator getDefaultAllocator() {
+		return defaultAllocator;
+	}
+	
+	/**
+	 * Sets the allocator of the storages created from now on, eg while building a graph.
+	 */
+	public static final void setDefaultAllocator(final StorageAllocator allocator) {
+		defaultAllocator = allocator;
+	}
+	
 }
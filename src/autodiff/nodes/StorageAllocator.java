@@ -0,0 +1,43 @@
+package autodiff.nodes;
+
+import static multij.tools.Tools.ignore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Provides the memory of {@link Storage}s when they are first accessed, and takes it back on {@link Storage#release()}.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public abstract interface StorageAllocator {
+	
+	/**
+	 * @return A native-order buffer whose <code>Float.BYTES * storage.getLength()</code> bytes from its position on
+	 * are reserved for <code>storage</code> until they are released
+	 */
+	public abstract ByteBuffer allocate(Storage storage);
+	
+	/**
+	 * @param buffer A buffer returned by {@link #allocate(Storage)} and not released yet
+	 */
+	public abstract void release(ByteBuffer buffer);
+	
+	/**
+	 * Allocates each storage separately, leaving the memory to the garbage collector.
+	 */
+	public static final StorageAllocator DIRECT = new StorageAllocator() {
+		
+		@Override
+		public final ByteBuffer allocate(final Storage storage) {
+			return ByteBuffer.allocateDirect(Float.BYTES * storage.getLength()).order(ByteOrder.nativeOrder());
+		}
+		
+		@Override
+		public final void release(final ByteBuffer buffer) {
+			ignore(buffer);
+		}
+		
+	};
+	
+}
@@ -0,0 +1,300 @@
+package autodiff.nodes;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves storages from large direct segments allocated once, in blocks whose sizes are powers of two
+ * (at least {@link #MINIMUM_BLOCK_BYTES}, so that blocks are aligned on cache lines within a segment);
+ * released blocks are pooled by size and reused, and requests larger than a segment get their own buffer.
+ * <br>{@link #close()} releases the storages still using the arena and frees its memory without waiting for
+ * the garbage collector, so that the graphs built while the arena was the default allocator are released at once:
+ * <pre>
+ * try (final StorageArena arena = new StorageArena()) {
+ *     Storage.setDefaultAllocator(arena);
+ *     // build and run graphs
+ * } finally {
+ *     Storage.setDefaultAllocator(StorageAllocator.DIRECT);
+ * }
+ * </pre>
+ * Buffers obtained from the storages (eg by processors) must not be used after the storages are released.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class StorageArena implements StorageAllocator, AutoCloseable {
+	
+	private final int segmentBytes;
+	
+	private final List<ByteBuffer> segments;
+	
+	private int segmentTop;
+	
+	private final Map<Integer, ArrayDeque<ByteBuffer>> freeBlocks;
+	
+	private final Map<ByteBuffer, Block> blocks;
+	
+	private long reservedBytes;
+	
+	private long allocatedBytes;
+	
+	private long peakAllocatedBytes;
+	
+	private boolean closed;
+	
+	public StorageArena() {
+		this(DEFAULT_SEGMENT_BYTES);
+	}
+	
+	/**
+	 * @param segmentBytes A power of two, at least {@link #MINIMUM_BLOCK_BYTES}
+	 */
+	public StorageArena(final int segmentBytes) {
+		if (segmentBytes < MINIMUM_BLOCK_BYTES || Integer.bitCount(segmentBytes) != 1) {
+			throw new IllegalArgumentException("Invalid segment size: " + segmentBytes);
+		}
+		
+		this.segmentBytes = segmentBytes;
+		this.segments = new ArrayList<>();
+		this.freeBlocks = new HashMap<>();
+		this.blocks = new IdentityHashMap<>();
+	}
+	
+	public final int getSegmentBytes() {
+		return this.segmentBytes;
+	}
+	
+	@Override
+	public final synchronized ByteBuffer allocate(final Storage storage) {
+		if (this.closed) {
+			throw new IllegalStateException("Arena closed");
+		}
+		
+		final int bytes = Float.BYTES * storage.getLength();
+		final boolean large = this.getSegmentBytes() < bytes;
+		final int blockBytes = large ? bytes : getBlockBytes(bytes);
+		final ByteBuffer result;
+		
+		if (large) {
+			result = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+			this.reservedBytes += bytes;
+		} else {
+			final ArrayDeque<ByteBuffer> free = this.freeBlocks.get(blockBytes);
+			
+			result = free != null && !free.isEmpty() ? free.pop() : this.cut(blockBytes);
+		}
+		
+		this.blocks.put(result, new Block(storage, bytes, blockBytes));
+		this.allocatedBytes += bytes;
+		this.peakAllocatedBytes = Math.max(this.peakAllocatedBytes, this.allocatedBytes);
+		
+		return result;
+	}
+	
+	@Override
+	public final synchronized void release(final ByteBuffer buffer) {
+		final Block block = this.blocks.remove(buffer);
+		
+		if (block == null) {
+			throw new IllegalArgumentException("Buffer not allocated by this arena");
+		}
+		
+		this.allocatedBytes -= block.getBytes();
+		
+		if (this.getSegmentBytes() < block.getBlockBytes()) {
+			this.reservedBytes -= block.getBytes();
+			free(buffer);
+		} else {
+			// a fresh view, so that the released one cannot be mistaken for the next allocation of this block
+			this.pool(buffer.duplicate().order(buffer.order()), block.getBlockBytes());
+		}
+	}
+	
+	/**
+	 * @return The storages currently using this arena
+	 */
+	public final synchronized Collection<Storage> getStorages() {
+		final Collection<Storage> result = new ArrayList<>(this.blocks.size());
+		
+		this.blocks.values().forEach(block -> result.add(block.getStorage()));
+		
+		return result;
+	}
+	
+	/**
+	 * @return The memory held by the segments and the large buffers
+	 */
+	public final synchronized long getReservedBytes() {
+		return this.reservedBytes;
+	}
+	
+	/**
+	 * @return The memory requested by the storages currently using this arena
+	 */
+	public final synchronized long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+	
+	public final synchronized long getPeakAllocatedBytes() {
+		return this.peakAllocatedBytes;
+	}
+	
+	/**
+	 * @return The reserved memory that neither holds values nor is left at the end of the last segment,
+	 * ie the pooled blocks and the rounding of requests to block sizes
+	 */
+	public final synchronized long getFragmentedBytes() {
+		final long untouched = this.segments.isEmpty() ? 0L : this.getSegmentBytes() - this.segmentTop;
+		
+		return this.reservedBytes - this.allocatedBytes - untouched;
+	}
+	
+	public final synchronized boolean isClosed() {
+		return this.closed;
+	}
+	
+	/**
+	 * Releases the storages still using this arena, and frees the segments; the arena cannot allocate anymore.
+	 */
+	@Override
+	public final void close() {
+		for (final Storage storage : this.getStorages()) {
+			storage.release();
+		}
+		
+		synchronized (this) {
+			this.closed = true;
+			this.segments.forEach(StorageArena::free);
+			this.segments.clear();
+			this.freeBlocks.clear();
+			this.reservedBytes = 0L;
+		}
+	}
+	
+	@Override
+	public final synchronized String toString() {
+		return "StorageArena[allocated: " + this.getAllocatedBytes() + " bytes, peak: " + this.getPeakAllocatedBytes()
+				+ " bytes, fragmented: " + this.getFragmentedBytes() + " bytes, reserved: " + this.getReservedBytes() + " bytes]";
+	}
+	
+	private final ByteBuffer cut(final int blockBytes) {
+		if (this.segments.isEmpty() || this.getSegmentBytes() - this.segmentTop < blockBytes) {
+			final ByteBuffer segment = ByteBuffer.allocateDirect(this.getSegmentBytes()).order(ByteOrder.nativeOrder());
+			
+			// the rest of the previous segment is split into the largest blocks that fit
+			if (!this.segments.isEmpty()) {
+				final ByteBuffer previous = this.segments.get(this.segments.size() - 1);
+				
+				while (MINIMUM_BLOCK_BYTES <= this.getSegmentBytes() - this.segmentTop) {
+					final int rest = Integer.highestOneBit(this.getSegmentBytes() - this.segmentTop);
+					
+					this.pool(this.view(previous, rest), rest);
+				}
+			}
+			
+			this.segments.add(segment);
+			this.segmentTop = 0;
+			this.reservedBytes += this.getSegmentBytes();
+		}
+		
+		return this.view(this.segments.get(this.segments.size() - 1), blockBytes);
+	}
+	
+	private final ByteBuffer view(final ByteBuffer segment, final int blockBytes) {
+		final ByteBuffer result = segment.duplicate().order(segment.order());
+		
+		result.position(this.segmentTop);
+		result.limit(this.segmentTop + blockBytes);
+		this.segmentTop += blockBytes;
+		
+		return result;
+	}
+	
+	private final void pool(final ByteBuffer block, final int blockBytes) {
+		this.freeBlocks.computeIfAbsent(blockBytes, __ -> new ArrayDeque<>()).push(block);
+	}
+	
+	public static final int DEFAULT_SEGMENT_BYTES = 1 << 24;
+	
+	public static final int MINIMUM_BLOCK_BYTES = 64;
+	
+	/**
+	 * @return The size of the blocks serving requests of <code>bytes</code> bytes
+	 */
+	public static final int getBlockBytes(final int bytes) {
+		return bytes <= MINIMUM_BLOCK_BYTES ? MINIMUM_BLOCK_BYTES : Integer.highestOneBit(bytes - 1) << 1;
+	}
+	
+	/**
+	 * Frees the memory of a direct buffer if the runtime allows it, otherwise leaves it to the garbage collector.
+	 */
+	static final void free(final ByteBuffer buffer) {
+		try {
+			// Java 9+
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			
+			theUnsafe.setAccessible(true);
+			
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+			
+			return;
+		} catch (final Exception exception) {
+			// try Java 8
+		}
+		
+		try {
+			final Method cleanerGetter = buffer.getClass().getMethod("cleaner");
+			
+			cleanerGetter.setAccessible(true);
+			
+			final Object cleaner = cleanerGetter.invoke(buffer);
+			
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (final Exception exception) {
+			// leave it to the garbage collector
+		}
+	}
+	
+	/**
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	private static final class Block {
+		
+		private final Storage storage;
+		
+		private final int bytes;
+		
+		private final int blockBytes;
+		
+		Block(final Storage storage, final int bytes, final int blockBytes) {
+			this.storage = storage;
+			this.bytes = bytes;
+			this.blockBytes = blockBytes;
+		}
+		
+		final Storage getStorage() {
+			return this.storage;
+		}
+		
+		final int getBytes() {
+			return this.bytes;
+		}
+		
+		final int getBlockBytes() {
+			return this.blockBytes;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,617 @@
+package autodiff.nodes;
+
+import autodiff.computing.GEMM;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Describes the values of a constant matrix whose entries are mostly zeros or follow a pattern
+ * (replicators, permutations, one-hot rows, all-ones, triangular ones),
+ * so that products with it cost a number of operations proportional to its entries rather than to its size.
+ * <br>A structure is attached to the storage holding the dense values (see {@link Storage#setStructure(StructuredMatrix)}),
+ * which remain available to the nodes that are not matrix multiplications.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public abstract class StructuredMatrix implements Serializable {
+	
+	private final int rows;
+	
+	private final int columns;
+	
+	protected StructuredMatrix(final int rows, final int columns) {
+		this.rows = rows;
+		this.columns = columns;
+	}
+	
+	public final int getRows() {
+		return this.rows;
+	}
+	
+	public final int getColumns() {
+		return this.columns;
+	}
+	
+	public abstract float get(int row, int column);
+	
+	public abstract StructuredMatrix transpose();
+	
+	/**
+	 * @return A structure for the same row-major values viewed as a <code>rows x columns</code> matrix,
+	 * or <code>null</code> if there is none
+	 */
+	public StructuredMatrix reshape(final int rows, final int columns) {
+		return rows == this.getRows() && columns == this.getColumns() ? this : null;
+	}
+	
+	/**
+	 * Writes the dense row-major values into <code>result</code>, starting at index 0.
+	 */
+	public final FloatBuffer copyTo(final FloatBuffer result) {
+		for (int i = 0, k = 0; i < this.getRows(); ++i) {
+			for (int j = 0; j < this.getColumns(); ++j, ++k) {
+				result.put(k, this.get(i, j));
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Computes <code>result += this op(right)</code>,
+	 * where <code>op(right)</code> is <code>this.getColumns() x columns</code>, all matrices being stored row-major.
+	 */
+	public final void multiply(final FloatBuffer right, final boolean transposeRight, final FloatBuffer result, final int columns) {
+		final int n = this.getRows() * columns;
+		
+		if (n == 0 || this.getColumns() == 0) {
+			return;
+		}
+		
+		final float[] b = GEMM.pack(right, transposeRight, this.getColumns(), columns);
+		final float[] c = new float[n];
+		
+		GEMM.get(result, 0, c, 0, n);
+		this.multiply(b, c, columns);
+		GEMM.put(c, 0, result, 0, n);
+	}
+	
+	/**
+	 * Computes <code>result += op(left) this</code>,
+	 * where <code>op(left)</code> is <code>rows x this.getRows()</code>, all matrices being stored row-major.
+	 */
+	public final void premultiply(final FloatBuffer left, final boolean transposeLeft, final FloatBuffer result, final int rows) {
+		final int n = rows * this.getColumns();
+		
+		if (n == 0 || this.getRows() == 0) {
+			return;
+		}
+		
+		final float[] a = GEMM.pack(left, transposeLeft, rows, this.getRows());
+		final float[] c = new float[n];
+		
+		GEMM.get(result, 0, c, 0, n);
+		this.premultiply(a, c, rows);
+		GEMM.put(c, 0, result, 0, n);
+	}
+	
+	@Override
+	public final String toString() {
+		return this.getClass().getSimpleName() + "[" + this.getRows() + "x" + this.getColumns() + "]";
+	}
+	
+	/**
+	 * Computes <code>c += this b</code>, where <code>b</code> is <code>this.getColumns() x columns</code>.
+	 */
+	protected abstract void multiply(float[] b, float[] c, int columns);
+	
+	/**
+	 * Computes <code>c += a this</code>, where <code>a</code> is <code>rows x this.getRows()</code>.
+	 */
+	protected abstract void premultiply(float[] a, float[] c, int rows);
+	
+	private static final long serialVersionUID = 4497806364960787449L;
+	
+	/**
+	 * @return The structure of the storage of <code>node</code> viewed with the lengths of <code>node</code>,
+	 * or <code>null</code> if there is none
+	 */
+	public static final StructuredMatrix of(final Node<?> node) {
+		final Storage storage = node.getStorage();
+		final StructuredMatrix structure = storage == null ? null : storage.getStructure();
+		
+		if (structure == null) {
+			return null;
+		}
+		
+		return structure.reshape(node.getLength(2, 0), node.getLength(2, 1));
+	}
+	
+	/**
+	 * @return <code>op(of(node))</code>, or <code>null</code>
+	 */
+	public static final StructuredMatrix of(final Node<?> node, final boolean transpose) {
+		final StructuredMatrix result = of(node);
+		
+		return result == null || !transpose ? result : result.transpose();
+	}
+	
+	/**
+	 * @param values <code>null</code> if all the entries are ones
+	 */
+	public static final Sparse sparse(final int rows, final int columns,
+			final int[] rowIndices, final int[] columnIndices, final float[] values) {
+		final int n = rowIndices.length;
+		final int[] rowStarts = new int[rows + 1];
+		final int[] sortedColumnIndices = new int[n];
+		final float[] sortedValues = values == null ? null : new float[n];
+		
+		for (final int row : rowIndices) {
+			++rowStarts[row + 1];
+		}
+		
+		for (int i = 0; i < rows; ++i) {
+			rowStarts[i + 1] += rowStarts[i];
+		}
+		
+		final int[] ends = Arrays.copyOf(rowStarts, rows);
+		
+		for (int k = 0; k < n; ++k) {
+			final int l = ends[rowIndices[k]]++;
+			
+			sortedColumnIndices[l] = columnIndices[k];
+			
+			if (values != null) {
+				sortedValues[l] = values[k];
+			}
+		}
+		
+		return new Sparse(rows, columns, rowStarts, sortedColumnIndices, sortedValues);
+	}
+	
+	/**
+	 * @return The nonzero entries of the row-major <code>rows x columns</code> matrix in <code>values</code>
+	 */
+	public static final Sparse sparse(final FloatBuffer values, final int rows, final int columns) {
+		final int[] rowStarts = new int[rows + 1];
+		final int[] columnIndices = new int[countNonzeros(values, rows * columns)];
+		final float[] sparseValues = new float[columnIndices.length];
+		boolean ones = true;
+		
+		for (int i = 0, k = 0, l = 0; i < rows; ++i) {
+			for (int j = 0; j < columns; ++j, ++k) {
+				final float value = values.get(k);
+				
+				if (value != 0F) {
+					columnIndices[l] = j;
+					sparseValues[l] = value;
+					ones &= value == 1F;
+					++l;
+				}
+			}
+			
+			rowStarts[i + 1] = l;
+		}
+		
+		return new Sparse(rows, columns, rowStarts, columnIndices, ones ? null : sparseValues);
+	}
+	
+	/**
+	 * @return The <code>stride x (stride * replications)</code> matrix that repeats each column
+	 * of its left operand <code>replications</code> times in place (see {@link NodesTools#innerReplicator(int, int)})
+	 */
+	public static final Sparse innerReplicator(final int stride, final int replications) {
+		final int[] rowStarts = new int[stride + 1];
+		final int[] columnIndices = new int[stride * replications];
+		
+		for (int i = 0; i < stride; ++i) {
+			rowStarts[i + 1] = (i + 1) * replications;
+			
+			for (int j = 0; j < replications; ++j) {
+				columnIndices[i * replications + j] = i * replications + j;
+			}
+		}
+		
+		return new Sparse(stride, stride * replications, rowStarts, columnIndices, null);
+	}
+	
+	/**
+	 * @return The <code>stride x (stride * replications)</code> matrix that repeats the rows
+	 * of its left operand <code>replications</code> times (see {@link NodesTools#outerReplicator(int, int)})
+	 */
+	public static final Sparse outerReplicator(final int stride, final int replications) {
+		final int[] rowStarts = new int[stride + 1];
+		final int[] columnIndices = new int[stride * replications];
+		
+		for (int i = 0; i < stride; ++i) {
+			rowStarts[i + 1] = (i + 1) * replications;
+			
+			for (int j = 0; j < replications; ++j) {
+				columnIndices[i * replications + j] = i + stride * j;
+			}
+		}
+		
+		return new Sparse(stride, stride * replications, rowStarts, columnIndices, null);
+	}
+	
+	/**
+	 * @return The matrix whose row <code>i</code> has a one at column <code>columns[i]</code>
+	 */
+	public static final Sparse permutation(final int... columns) {
+		return oneHot(columns.length, columns);
+	}
+	
+	/**
+	 * @param indices The column of the one in each row, negative for rows of zeros
+	 * @return The <code>indices.length x columns</code> matrix whose rows are one-hot vectors
+	 */
+	public static final Sparse oneHot(final int columns, final int... indices) {
+		final int rows = indices.length;
+		final int[] rowStarts = new int[rows + 1];
+		final int[] columnIndices = new int[(int) Arrays.stream(indices).filter(index -> 0 <= index).count()];
+		
+		for (int i = 0, l = 0; i < rows; ++i) {
+			if (0 <= indices[i]) {
+				if (columns <= indices[i]) {
+					throw new IndexOutOfBoundsException(indices[i] + " >= " + columns);
+				}
+				
+				columnIndices[l++] = indices[i];
+			}
+			
+			rowStarts[i + 1] = l;
+		}
+		
+		return new Sparse(rows, columns, rowStarts, columnIndices, null);
+	}
+	
+	public static final Ones ones(final int rows, final int columns) {
+		return new Ones(rows, columns);
+	}
+	
+	/**
+	 * @return The <code>n x n</code> matrix with ones strictly below its diagonal (see {@link NodesTools#lowerTriangularOnes(int)})
+	 */
+	public static final TriangularOnes lowerTriangularOnes(final int n) {
+		return new TriangularOnes(n, true);
+	}
+	
+	/**
+	 * Runs <code>rowComputation</code> for each row in <code>[0 .. rows - 1]</code>,
+	 * in parallel if <code>work</code> (the number of multiply-adds) is large enough.
+	 */
+	static final void forEachRow(final int rows, final long work, final IntConsumer rowComputation) {
+		if (work < GEMM.PARALLEL_THRESHOLD) {
+			for (int i = 0; i < rows; ++i) {
+				rowComputation.accept(i);
+			}
+		} else {
+			IntStream.range(0, rows).parallel().forEach(rowComputation);
+		}
+	}
+	
+	private static final int countNonzeros(final FloatBuffer values, final int n) {
+		int result = 0;
+		
+		for (int i = 0; i < n; ++i) {
+			if (values.get(i) != 0F) {
+				++result;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Compressed sparse rows; the column indices of a row are not necessarily sorted,
+	 * and repeated entries add up.
+	 *
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static final class Sparse extends StructuredMatrix {
+		
+		private final int[] rowStarts;
+		
+		private final int[] columnIndices;
+		
+		private final float[] values;
+		
+		private transient Sparse transposed;
+		
+		private transient IntBuffer rowStartBuffer;
+		
+		private transient IntBuffer columnIndexBuffer;
+		
+		private transient FloatBuffer valueBuffer;
+		
+		/**
+		 * @param rowStarts The start of each row in <code>columnIndices</code>, followed by the entry count
+		 * @param values <code>null</code> if all the entries are ones
+		 */
+		public Sparse(final int rows, final int columns, final int[] rowStarts, final int[] columnIndices, final float[] values) {
+			super(rows, columns);
+			this.rowStarts = rowStarts;
+			this.columnIndices = columnIndices;
+			this.values = values;
+			
+			NodesTools.checkLength(rows + 1, rowStarts.length);
+			NodesTools.checkLength(rowStarts[rows], columnIndices.length);
+			
+			if (values != null) {
+				NodesTools.checkLength(columnIndices.length, values.length);
+			}
+		}
+		
+		public final int getEntryCount() {
+			return this.columnIndices.length;
+		}
+		
+		public final int getRowStart(final int row) {
+			return this.rowStarts[row];
+		}
+		
+		public final int getColumnIndex(final int entry) {
+			return this.columnIndices[entry];
+		}
+		
+		public final float getValue(final int entry) {
+			return this.values == null ? 1F : this.values[entry];
+		}
+		
+		@Override
+		public final float get(final int row, final int column) {
+			float result = 0F;
+			
+			for (int k = this.rowStarts[row]; k < this.rowStarts[row + 1]; ++k) {
+				if (this.columnIndices[k] == column) {
+					result += this.getValue(k);
+				}
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public final synchronized Sparse transpose() {
+			if (this.transposed == null) {
+				final int n = this.getEntryCount();
+				final int[] rowIndices = new int[n];
+				
+				for (int i = 0; i < this.getRows(); ++i) {
+					Arrays.fill(rowIndices, this.rowStarts[i], this.rowStarts[i + 1], i);
+				}
+				
+				this.transposed = sparse(this.getColumns(), this.getRows(), this.columnIndices, rowIndices, this.values);
+				this.transposed.transposed = this;
+			}
+			
+			return this.transposed;
+		}
+		
+		/**
+		 * @return A direct buffer containing the row starts, eg for an OpenCL kernel
+		 */
+		public final synchronized IntBuffer getRowStartBuffer() {
+			if (this.rowStartBuffer == null) {
+				this.rowStartBuffer = newIntBuffer(this.rowStarts);
+			}
+			
+			return this.rowStartBuffer;
+		}
+		
+		/**
+		 * @return A direct buffer containing the column indices (at least one element, even if there are no entries)
+		 */
+		public final synchronized IntBuffer getColumnIndexBuffer() {
+			if (this.columnIndexBuffer == null) {
+				this.columnIndexBuffer = newIntBuffer(this.columnIndices);
+			}
+			
+			return this.columnIndexBuffer;
+		}
+		
+		/**
+		 * @return A direct buffer containing the values, ones included (at least one element, even if there are no entries)
+		 */
+		public final synchronized FloatBuffer getValueBuffer() {
+			if (this.valueBuffer == null) {
+				final int n = this.getEntryCount();
+				
+				this.valueBuffer = ByteBuffer.allocateDirect(Float.BYTES * Math.max(1, n)).order(ByteOrder.nativeOrder()).asFloatBuffer();
+				
+				for (int k = 0; k < n; ++k) {
+					this.valueBuffer.put(k, this.getValue(k));
+				}
+			}
+			
+			return this.valueBuffer;
+		}
+		
+		@Override
+		protected final void multiply(final float[] b, final float[] c, final int columns) {
+			forEachRow(this.getRows(), (long) this.getEntryCount() * columns, i -> {
+				final int rowOffset = i * columns;
+				
+				for (int k = this.rowStarts[i]; k < this.rowStarts[i + 1]; ++k) {
+					final float value = this.getValue(k);
+					final int offset = this.columnIndices[k] * columns;
+					
+					for (int j = 0; j < columns; ++j) {
+						c[rowOffset + j] += value * b[offset + j];
+					}
+				}
+			});
+		}
+		
+		@Override
+		protected final void premultiply(final float[] a, final float[] c, final int rows) {
+			final int stride = this.getRows();
+			final int columns = this.getColumns();
+			
+			forEachRow(rows, (long) this.getEntryCount() * rows, r -> {
+				final int rowOffset = r * columns;
+				
+				for (int p = 0; p < stride; ++p) {
+					final float x = a[r * stride + p];
+					
+					if (x != 0F) {
+						for (int k = this.rowStarts[p]; k < this.rowStarts[p + 1]; ++k) {
+							c[rowOffset + this.columnIndices[k]] += x * this.getValue(k);
+						}
+					}
+				}
+			});
+		}
+		
+		private static final long serialVersionUID = -1617402867335848017L;
+		
+		private static final IntBuffer newIntBuffer(final int[] values) {
+			final IntBuffer result = ByteBuffer.allocateDirect(Integer.BYTES * Math.max(1, values.length))
+					.order(ByteOrder.nativeOrder()).asIntBuffer();
+			
+			result.put(values);
+			result.clear();
+			
+			return result;
+		}
+		
+	}
+	
+	/**
+	 * All the entries are ones: products reduce to sums of rows or columns.
+	 *
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static final class Ones extends StructuredMatrix {
+		
+		public Ones(final int rows, final int columns) {
+			super(rows, columns);
+		}
+		
+		@Override
+		public final float get(final int row, final int column) {
+			return 1F;
+		}
+		
+		@Override
+		public final Ones transpose() {
+			return new Ones(this.getColumns(), this.getRows());
+		}
+		
+		@Override
+		public final Ones reshape(final int rows, final int columns) {
+			return (long) rows * columns == (long) this.getRows() * this.getColumns() ? new Ones(rows, columns) : null;
+		}
+		
+		@Override
+		protected final void multiply(final float[] b, final float[] c, final int columns) {
+			final float[] sums = new float[columns];
+			
+			for (int p = 0; p < this.getColumns(); ++p) {
+				for (int j = 0; j < columns; ++j) {
+					sums[j] += b[p * columns + j];
+				}
+			}
+			
+			for (int i = 0; i < this.getRows(); ++i) {
+				for (int j = 0; j < columns; ++j) {
+					c[i * columns + j] += sums[j];
+				}
+			}
+		}
+		
+		@Override
+		protected final void premultiply(final float[] a, final float[] c, final int rows) {
+			final int stride = this.getRows();
+			final int columns = this.getColumns();
+			
+			for (int r = 0; r < rows; ++r) {
+				float sum = 0F;
+				
+				for (int p = 0; p < stride; ++p) {
+					sum += a[r * stride + p];
+				}
+				
+				for (int j = 0; j < columns; ++j) {
+					c[r * columns + j] += sum;
+				}
+			}
+		}
+		
+		private static final long serialVersionUID = -7919418063466101850L;
+		
+	}
+	
+	/**
+	 * Ones strictly below (or above) the diagonal of a square matrix: products reduce to prefix (or suffix) sums.
+	 *
+	 * @author codistmonk (creation 2026-10-18)
+	 */
+	public static final class TriangularOnes extends StructuredMatrix {
+		
+		private final boolean lower;
+		
+		public TriangularOnes(final int n, final boolean lower) {
+			super(n, n);
+			this.lower = lower;
+		}
+		
+		public final boolean isLower() {
+			return this.lower;
+		}
+		
+		@Override
+		public final float get(final int row, final int column) {
+			return (this.isLower() ? column < row : row < column) ? 1F : 0F;
+		}
+		
+		@Override
+		public final TriangularOnes transpose() {
+			return new TriangularOnes(this.getRows(), !this.isLower());
+		}
+		
+		@Override
+		protected final void multiply(final float[] b, final float[] c, final int columns) {
+			// row i of the result accumulates the rows of b before i (lower) or after i (upper)
+			final int n = this.getRows();
+			final float[] sums = new float[columns];
+			
+			for (int k = 0; k < n; ++k) {
+				final int i = this.isLower() ? k : n - 1 - k;
+				
+				for (int j = 0; j < columns; ++j) {
+					c[i * columns + j] += sums[j];
+					sums[j] += b[i * columns + j];
+				}
+			}
+		}
+		
+		@Override
+		protected final void premultiply(final float[] a, final float[] c, final int rows) {
+			// column j of the result accumulates the columns of a after j (lower) or before j (upper)
+			final int n = this.getRows();
+			
+			for (int r = 0; r < rows; ++r) {
+				float sum = 0F;
+				
+				for (int k = 0; k < n; ++k) {
+					final int j = this.isLower() ? n - 1 - k : k;
+					
+					c[r * n + j] += sum;
+					sum += a[r * n + j];
+				}
+			}
+		}
+		
+		private static final long serialVersionUID = -2263453262567711613L;
+		
+	}
+	
+}
@@ -1,6 +1,22 @@
 package autodiff.computing.test;
 
+import static autodiff.computing.Functions.SIGMOID;
+import static autodiff.nodes.NodesTools.$;
+import static autodiff.nodes.NodesTools.T;
+import static org.junit.Assert.*;
+
+import autodiff.cl.CLContext;
+import autodiff.computing.CLMatrixMultiplications.Tiling;
 import autodiff.computing.CLProcessor;
+import autodiff.computing.DefaultProcessor;
+import autodiff.nodes.Data;
+import autodiff.nodes.Node;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
 
 /**
  * @author codistmonk (creation 2016-07-11)
@@ -12,4 +28,146 @@ public final class CLProcessorTest extends ProcessorTest {
 		return CLProcessor.INSTANCE;
 	}
 	
+	@Test
+	public final void testTiledMatrixMultiplication1() {
+		final CLProcessor processor = new CLProcessor(CLProcessor.INSTANCE.getContext());
+		final Random random = new Random(0L);
+		
+		for (final Tiling tiling : new Tiling[] { new Tiling(2, 1), new Tiling(4, 2), new Tiling(4, 4) }) {
+			processor.setMatrixMultiplicationTiling(tiling);
+			
+			for (int i = 0; i < 4; ++i) {
+				final boolean transposeLeft = (i & 1) != 0;
+				final boolean transposeRight = (i & 2) != 0;
+				final Node<?> a = new Data().setShape(transposeLeft ? 7 : 5, transposeLeft ? 5 : 7);
+				final Node<?> b = new Data().setShape(transposeRight ? 3 : 7, transposeRight ? 7 : 3);
+				
+				for (int j = 0; j < a.getLength(); ++j) {
+					a.set(j, random.nextFloat() - 0.5F);
+				}
+				
+				for (int j = 0; j < b.getLength(); ++j) {
+					b.set(j, random.nextFloat() - 0.5F);
+				}
+				
+				final Object[] operands = transposeLeft ? (transposeRight ? new Object[] { a, T, b, T } : new Object[] { a, T, b })
+						: (transposeRight ? new Object[] { a, b, T } : new Object[] { a, b });
+				final Node<?> expected = $(operands);
+				final Node<?> actual = $(operands);
+				
+				DefaultProcessor.INSTANCE.fullForward(expected);
+				processor.fullForward(actual);
+				
+				assertArrayEquals(tiling + " " + i, expected.get(new float[expected.getLength()]),
+						actual.get(new float[actual.getLength()]), 1E-6F);
+			}
+		}
+		
+		processor.reset();
+	}
+	
+	@Test
+	public final void testQueues1() {
+		final CLProcessor processor = new CLProcessor(CLProcessor.INSTANCE.getContext()).setQueueCount(2).setProfiling(true);
+		final Node<?>[] expected = newDiamond(new Random(0L));
+		final Node<?>[] actual = newDiamond(new Random(0L));
+		
+		try {
+			DefaultProcessor.INSTANCE.fullForward(expected[2]);
+			DefaultProcessor.INSTANCE.fullBackwardDiff(expected[2]);
+			
+			// the second run waits for the events of the first one
+			for (int i = 0; i < 2; ++i) {
+				processor.fullForward(actual[2]);
+				processor.fullBackwardDiff(actual[2]);
+			}
+			
+			assertArrayEquals(expected[2].get(new float[8]), actual[2].get(new float[8]), 1E-5F);
+			assertArrayEquals(expected[0].getDiffs().get(new float[12]), actual[0].getDiffs().get(new float[12]), 1E-5F);
+			assertArrayEquals(expected[1].getDiffs().get(new float[6]), actual[1].getDiffs().get(new float[6]), 1E-5F);
+			assertTrue(processor.getDeviceTimes().containsKey("MatrixMultiplication"));
+			assertTrue(processor.getDeviceTimes().containsKey("write"));
+		} finally {
+			processor.reset();
+		}
+	}
+	
+	@Test
+	public final void testKernelSharing1() throws Exception {
+		final CLContext context = new CLContext(CLProcessor.INSTANCE.getContext().getDevice());
+		final CLProcessor[] processors = { new CLProcessor(context), new CLProcessor(context) };
+		final Node<?>[] xs = { new Data().setShape(3).set(-1F, 0F, 1F), new Data().setShape(3).set(1F, 2F, 3F) };
+		final Node<?>[] ys = { $($(SIGMOID, xs[0]), "+", xs[0]), $($(SIGMOID, xs[1]), "+", xs[1]) };
+		
+		try {
+			processors[0].fullForward(ys[0]);
+			
+			final int kernelCount = context.getCachedKernelCount();
+			
+			// structurally identical nodes share their kernels, even across processors
+			processors[1].fullForward(ys[1]);
+			
+			assertEquals(kernelCount, context.getCachedKernelCount());
+			assertArrayEquals(expected(xs[0]), ys[0].get(new float[3]), 1E-6F);
+			assertArrayEquals(expected(xs[1]), ys[1].get(new float[3]), 1E-6F);
+			
+			// resetting a processor leaves the shared kernels to the other ones
+			processors[0].reset();
+			
+			assertEquals(kernelCount, context.getCachedKernelCount());
+			
+			// the processors set the arguments of the same kernels concurrently
+			final CompletableFuture<?>[] runs = new CompletableFuture<?>[2];
+			
+			for (int i = 0; i < 2; ++i) {
+				final int k = i;
+				
+				runs[k] = CompletableFuture.runAsync(() -> {
+					for (int j = 0; j < 100; ++j) {
+						xs[k].set(j, k, -j);
+						processors[k].fullForward(ys[k]);
+						
+						assertArrayEquals(expected(xs[k]), ys[k].get(new float[3]), 1E-6F);
+					}
+				});
+			}
+			
+			CompletableFuture.allOf(runs).get(1L, TimeUnit.MINUTES);
+			
+			assertEquals(kernelCount, context.getCachedKernelCount());
+		} finally {
+			for (final CLProcessor processor : processors) {
+				processor.reset();
+			}
+			
+			context.releasePrograms();
+		}
+	}
+	
+	/**
+	 * @return <code>{ x, w, y }</code> where the two branches of <code>y</code> both read <code>x w</code>,
+	 * and <code>x</code> and <code>w</code> have diffs
+	 */
+	private static final Node<?>[] newDiamond(final Random random) {
+		final Node<?> x = newRandomData(random, 4, 3);
+		final Node<?> w = newRandomData(random, 3, 2);
+		final Node<?> h = $(x, w);
+		final Node<?> y = $($(SIGMOID, h), "+", $(h, "*", h));
+		
+		x.setupDiffs(true);
+		w.setupDiffs(true);
+		
+		return new Node<?>[] { x, w, y };
+	}
+	
+	private static final float[] expected(final Node<?> x) {
+		final float[] result = x.get(new float[x.getLength()]);
+		
+		for (int i = 0; i < result.length; ++i) {
+			result[i] += 1.0 / (1.0 + Math.exp(-result[i]));
+		}
+		
+		return result;
+	}
+	
 }
@@ -1,6 +1,42 @@
 package autodiff.computing.test;
 
+import static autodiff.computing.Functions.*;
+import static autodiff.nodes.NodesTools.$;
+import static org.junit.Assert.*;
+
+import autodiff.computing.CompiledComputations;
+import autodiff.computing.CompiledFunctions;
+import autodiff.computing.CompiledFunctions.CompiledFunction;
 import autodiff.computing.DefaultProcessor;
+import autodiff.computing.DefaultProcessor.Context;
+import autodiff.computing.DefaultProcessor.FloatSupplier;
+import autodiff.computing.Functions;
+import autodiff.computing.MemoryPlan;
+import autodiff.computing.NodeProcessor.ForwardCollector;
+import autodiff.computing.ParallelScheduler;
+import autodiff.computing.RuntimeCompiler;
+import autodiff.computing.ScheduleCache;
+import autodiff.io.ComputationCache;
+import autodiff.nodes.Computation;
+import autodiff.nodes.Data;
+import autodiff.nodes.Fusion;
+import autodiff.nodes.Node;
+import autodiff.nodes.NodesTools;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assume;
+import org.junit.Test;
 
 /**
  * @author codistmonk (creation 2016-07-11)
@@ -12,4 +48,411 @@ public final class DefaultProcessorTest extends ProcessorTest {
 		return DefaultProcessor.INSTANCE;
 	}
 	
+	@Test
+	public final void testCompiledFunctions1() {
+		Assume.assumeTrue(RuntimeCompiler.isAvailable());
+		
+		final float[] values = { Float.NEGATIVE_INFINITY, -2F, -0.5F, 0F, 0.5F, 1F, 3F, Float.NaN };
+		
+		for (final String functionName : new String[] { ID, ABS, "-", SQUARED, SIGMOID, BUMP, STEP0, STEP1, SQRT, EXP, LN, COS, ROUND }) {
+			final List<Object> definition = Functions.getDefinition(functionName, 1);
+			final CompiledFunction compiled = CompiledFunctions.compile(definition);
+			final Context context = new Context();
+			final FloatSupplier interpreted = context.newSupplier(definition);
+			
+			assertNotNull(functionName, compiled);
+			
+			for (final float x : values) {
+				context.getInputs().get(0).set(x);
+				
+				assertEquals(functionName + "(" + x + ")", interpreted.get(), compiled.apply(x, 0F), 0F);
+			}
+		}
+		
+		for (final String functionName : new String[] { "+", "-", "*", "/", SQMINUS, KRONECKER }) {
+			final List<Object> definition = Functions.getDefinition(functionName, 2);
+			final CompiledFunction compiled = CompiledFunctions.compile(definition);
+			final Context context = new Context();
+			final FloatSupplier interpreted = context.newSupplier(definition);
+			
+			assertNotNull(functionName, compiled);
+			
+			for (final float x : values) {
+				for (final float y : values) {
+					context.getInputs().get(0).set(x);
+					context.getInputs().get(1).set(y);
+					
+					assertEquals(x + functionName + y, interpreted.get(), compiled.apply(x, y), 0F);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public final void testCompiledComputations1() {
+		Assume.assumeTrue(RuntimeCompiler.isAvailable());
+		
+		final DefaultProcessor processor = new DefaultProcessor().setCheckingComputations(true);
+		final Computation node = Computation.repeatAndIncrease();
+		
+		node.set("n", 3);
+		node.set("stride", 2);
+		node.set("delta", 5);
+		
+		node.autoShape();
+		
+		processor.fullForward(node);
+		
+		assertNotNull(CompiledComputations.compile(processor.getComputationCodes().get(node)));
+		assertArrayEquals(new float[] { 0F, 0F, 5F, 5F, 10F, 10F }, node.get(new float[node.getLength()]), 0F);
+	}
+	
+	@Test
+	public final void testParallelForward1() {
+		final int n = 3 * DefaultProcessor.ELEMENTWISE_CHUNK_LENGTH + 5;
+		final Random random = new Random();
+		final float[][] results = new float[2][];
+		
+		for (final boolean parallel : new boolean[] { false, true }) {
+			final Node<?> x = new Data().setShape(n);
+			
+			random.setSeed(0L);
+			
+			for (int i = 0; i < x.getLength(); ++i) {
+				x.set(i, random.nextFloat() - 0.5F);
+			}
+			
+			// independent branches reading x, whose diffs accumulate the contributions of all of them
+			final Node<?> y = $($(x, "*", x), "+", $(SIGMOID, x));
+			final Node<?> z = $($(y, "*", y), "+", $(x, "*", y));
+			final DefaultProcessor processor = new DefaultProcessor().setParallel(parallel);
+			
+			processor.fullForward(z);
+			
+			x.setupDiffs(true);
+			
+			processor.fullBackwardDiff(z);
+			
+			results[parallel ? 1 : 0] = x.getDiffs().get(new float[n]);
+		}
+		
+		assertArrayEquals(results[0], results[1], 0F);
+	}
+	
+	@Test
+	public final void testFusion2() {
+		final int n = DefaultProcessor.ELEMENTWISE_CHUNK_LENGTH + DefaultProcessor.FUSION_BLOCK_LENGTH + 7;
+		final float[][] expected = new float[2][];
+		
+		for (final boolean compiling : new boolean[] { true, false }) {
+			for (final boolean fusing : new boolean[] { false, true }) {
+				final Random random = new Random(0L);
+				final Node<?> x = new Data().setShape(n);
+				final Node<?> b = new Data().setShape(3).set(1F, -2F, 3F);
+				final Node<?> c = new Data().setShape(1).set(0.5F);
+				
+				for (int i = 0; i < x.getLength(); ++i) {
+					x.set(i, random.nextFloat() - 0.5F);
+				}
+				
+				// broadcast arguments, and a block boundary in the middle of their periods
+				final Node<?> xb = $(x, "*", b);
+				final Node<?> y = $(SIGMOID, $($(xb, "+", c), SQUARED));
+				final DefaultProcessor processor = new DefaultProcessor().setFusing(fusing).setCompilingFunctions(compiling);
+				
+				processor.fullForward(y);
+				
+				assertEquals(fusing, processor.collectForward(y).stream().anyMatch(Fusion.class::isInstance));
+				assertEquals(fusing, !xb.getStorage().isAllocated());
+				
+				x.setupDiffs(true);
+				
+				processor.fullBackwardDiff(y);
+				
+				final float[] values = y.get(new float[n]);
+				final float[] diffs = x.getDiffs().get(new float[n]);
+				
+				if (expected[0] == null) {
+					expected[0] = values;
+					expected[1] = diffs;
+				} else {
+					assertArrayEquals(expected[0], values, 0F);
+					assertArrayEquals(expected[1], diffs, 0F);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public final void testParallelScheduler1() {
+		final Node<?> x = new Data().setShape(2);
+		final Node<?> a = $(x, "+", x);
+		final Node<?> b = $(x, "*", x);
+		final Node<?> c = $(a, "+", b);
+		final Node<?> d = $(SIGMOID, x).setStorage(a);
+		
+		assertArrayEquals(new int[][] { {}, {}, {}, { 1, 2 }, { 1, 3 } },
+				ParallelScheduler.getDependencies(Arrays.asList(x, a, b, c, d)));
+	}
+	
+	@Test
+	public final void testMemoryPlan1() {
+		final int n = 1000;
+		
+		for (final boolean parallel : new boolean[] { false, true }) {
+			final Random random = new Random(0L);
+			final Node<?> x = new Data().setShape(n);
+			
+			for (int i = 0; i < x.getLength(); ++i) {
+				x.set(i, random.nextFloat() - 0.5F);
+			}
+			
+			Node<?> y = x;
+			
+			for (int i = 0; i < 4; ++i) {
+				y = $(SIGMOID, $(y, "*", y));
+			}
+			
+			final Node<?> z = $(y, "+", x);
+			final DefaultProcessor processor = new DefaultProcessor().setParallel(parallel);
+			
+			x.setupDiffs(true);
+			
+			processor.fullForward(z);
+			processor.fullBackwardDiff(z);
+			
+			final float[] expectedValues = z.get(new float[n]);
+			final float[] expectedDiffs = x.getDiffs().get(new float[n]);
+			final MemoryPlan plan = MemoryPlan.forGraph(processor, z, x).apply();
+			
+			assertTrue(plan.toString(), plan.getArenaBytes() < plan.getUnplannedBytes());
+			assertTrue(plan.toString(), plan.getPeakLiveBytes() <= plan.getArenaBytes());
+			
+			processor.setMemoryPlan(plan);
+			
+			for (int i = 0; i < 2; ++i) {
+				processor.fullForward(z);
+				processor.fullBackwardDiff(z);
+				
+				assertArrayEquals(expectedValues, z.get(new float[n]), 0F);
+				assertArrayEquals(expectedDiffs, x.getDiffs().get(new float[n]), 0F);
+			}
+		}
+	}
+	
+	@Test
+	public final void testConstantFolding1() {
+		final DefaultProcessor processor = new DefaultProcessor();
+		final Node<?> x = new Data().setShape(3).set(1F, 2F, 3F);
+		final Node<?> k = new Data().setShape(3).set(1F, 1F, 1F);
+		final Node<?> r = NodesTools.range(3);
+		final Node<?> kr = $(k, "+", r);
+		final Node<?> y = $(x, "*", kr);
+		
+		k.getStorage().setConstant(true);
+		
+		processor.fullForward(y);
+		
+		assertArrayEquals(new float[] { 1F, 4F, 9F }, y.get(new float[3]), 0F);
+		assertEquals(Arrays.asList(r, kr), processor.getConstantFoldings().get(y).getNodes());
+		assertFalse(processor.collectForward(y).contains(r));
+		assertFalse(processor.collectForward(y).contains(kr));
+		assertTrue(processor.collectForward(y).contains(y));
+		
+		x.set(0, 5F);
+		processor.fullForward(y);
+		
+		assertArrayEquals(new float[] { 5F, 4F, 9F }, y.get(new float[3]), 0F);
+		assertFalse(processor.getConstantFoldings().get(y).isStale());
+		
+		k.set(2, 2F);
+		
+		assertTrue(processor.getConstantFoldings().get(y).isStale());
+		
+		processor.fullForward(y);
+		
+		assertArrayEquals(new float[] { 5F, 4F, 12F }, y.get(new float[3]), 0F);
+		assertArrayEquals(new float[] { 1F, 2F, 4F }, kr.get(new float[3]), 0F);
+	}
+	
+	@Test
+	public final void testForwardCollector1() {
+		final DefaultProcessor processor = new DefaultProcessor();
+		final Node<?> x = new Data().setShape(1).set(0.5F);
+		Node<?> y = x;
+		float expected = 0.5F;
+		
+		// each level reads the previous one twice, which used to take exponential time
+		for (int i = 0; i < 64; ++i) {
+			y = $(y, "+", $(SIGMOID, y));
+			expected += (float) (1.0 / (1.0 + Math.exp(-expected)));
+		}
+		
+		final List<Node<?>> nodes = new ArrayList<>(y.accept(new ForwardCollector(true)));
+		
+		assertEquals(2 * 64 + 1, nodes.size());
+		
+		Collections.reverse(nodes);
+		
+		for (int i = 0; i < nodes.size(); ++i) {
+			for (final Node<?> argument : nodes.get(i).getArguments()) {
+				assertTrue(nodes.indexOf(argument) < i);
+			}
+		}
+		
+		processor.fullForward(y);
+		
+		assertEquals(expected, y.get(0), 1E-3F);
+	}
+	
+	@Test
+	public final void testScheduleCache1() {
+		final DefaultProcessor processor = new DefaultProcessor().setCacheCapacity(2);
+		final Node<?> x = new Data().setShape(3).set(1F, 2F, 3F);
+		final Node<?> y1 = $(x, "*", $(NodesTools.range(3), "+", 1F));
+		final Node<?> y2 = $(x, "+", x);
+		final Node<?> y3 = $(SIGMOID, x);
+		
+		processor.fullForward(y1);
+		processor.fullForward(y1);
+		processor.fullForward(y2);
+		
+		assertEquals(1L, processor.getForwards().getHitCount());
+		assertEquals(2L, processor.getForwards().getMissCount());
+		assertTrue(processor.getConstantFoldings().containsKey(y1));
+		
+		processor.fullForward(y3);
+		
+		assertEquals(1L, processor.getForwards().getEvictionCount());
+		assertFalse(processor.getForwards().containsKey(y1));
+		assertFalse(processor.getConstantFoldings().containsKey(y1));
+		
+		processor.evict(y2);
+		
+		assertEquals(Arrays.asList(y3), new ArrayList<>(processor.getForwards().keySet()));
+		
+		processor.fullForward(y1);
+		
+		assertArrayEquals(new float[] { 1F, 4F, 9F }, y1.get(new float[3]), 0F);
+		assertTrue(processor.getConstantFoldings().containsKey(y1));
+	}
+	
+	@Test
+	public final void testScheduleCache2() throws Exception {
+		final ScheduleCache<String> cache = new ScheduleCache<>();
+		final Node<?> x = new Data().setShape(1);
+		final Node<?> y = new Data().setShape(1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger computations = new AtomicInteger();
+		final CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> cache.computeIfAbsent(x, __ -> {
+			computations.incrementAndGet();
+			started.countDown();
+			
+			try {
+				release.await();
+			} catch (final InterruptedException exception) {
+				throw new RuntimeException(exception);
+			}
+			
+			return "x";
+		}));
+		
+		assertTrue(started.await(10L, TimeUnit.SECONDS));
+		
+		// another node is not blocked by the computation of x
+		assertEquals("y", cache.computeIfAbsent(y, __ -> "y"));
+		
+		final CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> cache.computeIfAbsent(x, __ -> {
+			computations.incrementAndGet();
+			
+			return "x'";
+		}));
+		
+		release.countDown();
+		
+		assertEquals("x", slow.get(10L, TimeUnit.SECONDS));
+		assertEquals("x", waiting.get(10L, TimeUnit.SECONDS));
+		assertEquals(1, computations.get());
+		assertEquals("x", cache.get(x));
+	}
+	
+	@Test
+	public final void testComputationCache1() throws Exception {
+		final File oldDirectory = ComputationCache.getDirectory();
+		final File directory = Files.createTempDirectory("computations").toFile();
+		
+		ComputationCache.setDirectory(directory);
+		
+		try {
+			{
+				final Computation node = Computation.range().set("n", 3).autoShape();
+				
+				new DefaultProcessor().fullForward(node);
+				
+				assertArrayEquals(new float[] { 0F, 1F, 2F }, node.get(new float[node.getLength()]), 0F);
+				assertEquals(2, directory.list().length);
+			}
+			
+			{
+				final Computation node = Computation.range().set("n", 3);
+				
+				final int[] shape = ComputationCache.get(node, "shape", () -> {
+					throw new AssertionError("Cache miss");
+				});
+				
+				assertArrayEquals(new int[] { 3 }, shape);
+				
+				new DefaultProcessor().fullForward(node.autoShape());
+				
+				assertArrayEquals(new float[] { 0F, 1F, 2F }, node.get(new float[node.getLength()]), 0F);
+				assertEquals(2, directory.list().length);
+			}
+			
+			{
+				final Computation node = Computation.range().set("n", 4).autoShape();
+				
+				assertArrayEquals(new int[] { 4 }, node.getShape());
+				assertEquals(3, directory.list().length);
+			}
+		} finally {
+			ComputationCache.setDirectory(oldDirectory);
+			
+			for (final File file : directory.listFiles()) {
+				file.delete();
+			}
+			
+			directory.delete();
+		}
+	}
+	
+	@Test
+	public final void testComputationCache2() throws Exception {
+		final File oldDirectory = ComputationCache.getDirectory();
+		final File directory = Files.createTempDirectory("computations").toFile();
+		
+		assertNotNull(ComputationCache.getDerivationVersion());
+		
+		ComputationCache.setDirectory(directory);
+		ComputationCache.setMaximumEntryCount(2);
+		
+		try {
+			for (int n = 1; n <= 4; ++n) {
+				final Computation node = Computation.range().set("n", n).autoShape();
+				
+				assertArrayEquals(new int[] { n }, node.getShape());
+				assertEquals(Math.min(n, 2), directory.list().length);
+			}
+		} finally {
+			ComputationCache.setDirectory(oldDirectory);
+			ComputationCache.setMaximumEntryCount(ComputationCache.DEFAULT_MAXIMUM_ENTRY_COUNT);
+			
+			for (final File file : directory.listFiles()) {
+				file.delete();
+			}
+			
+			directory.delete();
+		}
+	}
+	
 }
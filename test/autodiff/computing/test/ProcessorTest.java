@@ -13,12 +13,19 @@ import static org.junit.Assert.*;
 
 import autodiff.computing.NodeProcessor;
 import autodiff.nodes.Computation;
+import autodiff.nodes.Convolution;
 import autodiff.nodes.Data;
 import autodiff.nodes.Mapping;
 import autodiff.nodes.Node;
 import autodiff.nodes.NodesTools;
+import autodiff.nodes.NodesTools.GridSampling;
+import autodiff.nodes.NodesTools.PatchSampling;
+import autodiff.nodes.Pooling;
+import autodiff.nodes.StructuredMatrix;
 import autodiff.ui.JGraphXTools;
 
+import java.util.Random;
+
 import multij.swing.SwingTools;
 import multij.tools.Tools;
 
@@ -475,6 +482,33 @@ public abstract class ProcessorTest {
 		}, x.getDiffs().get(new float[x.getLength()]), 0F);
 	}
 	
+	@Test
+	public final void testSelection5() {
+		final Node<?> x = new Data().setShape(2, 3).set(
+				1F, 2F, 3F,
+				4F, 5F, 6F);
+		final Node<?> i = new Data().setShape(1, 4).set(2F, 2F, NaI, 0F);
+		final Node<?> xi = selection(x, i);
+		
+		assertArrayEquals(new int[] { 2, 4 }, xi.getShape());
+		
+		this.getProcessor().fullForward(xi);
+		
+		assertArrayEquals(new float[] {
+				3F, 3F, 0F, 1F,
+				6F, 6F, 0F, 4F
+		}, xi.get(new float[xi.getLength()]), 0F);
+		
+		x.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(xi);
+		
+		assertArrayEquals(new float[] {
+				1F, 0F, 2F,
+				1F, 0F, 2F
+		}, x.getDiffs().get(new float[x.getLength()]), 0F);
+	}
+	
 	@Test
 	public final void testMatrixMultiplication1() {
 		final Node<?> a = new Data().setShape(1, 2).set(
@@ -614,6 +648,117 @@ public abstract class ProcessorTest {
 		}, b.getDiffs().get(new float[b.getLength()]), 0F);
 	}
 	
+	@Test
+	public final void testMatrixMultiplication5() {
+		final int rows = 67;
+		final int stride = 301;
+		final int columns = 45;
+		final Random random = new Random(0L);
+		final Node<?> a = new Data().setShape(stride, rows);
+		final Node<?> b = new Data().setShape(columns, stride);
+		
+		for (int i = 0; i < a.getLength(); ++i) {
+			a.set(i, random.nextFloat() - 0.5F);
+		}
+		
+		for (int i = 0; i < b.getLength(); ++i) {
+			b.set(i, random.nextFloat() - 0.5F);
+		}
+		
+		final Node<?> c = $(a, T, b, T);
+		
+		assertArrayEquals(new int[] { rows, columns }, c.getShape());
+		
+		this.getProcessor().fullForward(c);
+		
+		final float[] expected = new float[rows * columns];
+		
+		for (int r = 0; r < rows; ++r) {
+			for (int j = 0; j < columns; ++j) {
+				double value = 0.0;
+				
+				for (int k = 0; k < stride; ++k) {
+					value += a.get(r + k * rows) * b.get(k + j * stride);
+				}
+				
+				expected[j + r * columns] = (float) value;
+			}
+		}
+		
+		assertArrayEquals(expected, c.get(new float[c.getLength()]), 1E-4F);
+		
+		a.setupDiffs(true);
+		b.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(c);
+		
+		final float[] expectedDiffs = new float[a.getLength()];
+		
+		for (int k = 0; k < stride; ++k) {
+			for (int r = 0; r < rows; ++r) {
+				double value = 0.0;
+				
+				for (int j = 0; j < columns; ++j) {
+					value += b.get(k + j * stride);
+				}
+				
+				expectedDiffs[r + k * rows] = (float) value;
+			}
+		}
+		
+		assertArrayEquals(expectedDiffs, a.getDiffs().get(new float[a.getLength()]), 1E-4F);
+	}
+	
+	@Test
+	public final void testStructuredMatrixMultiplication1() {
+		final Random random = new Random(0L);
+		final StructuredMatrix[] matrices = {
+				StructuredMatrix.innerReplicator(3, 2),
+				StructuredMatrix.outerReplicator(3, 2),
+				StructuredMatrix.permutation(2, 0, 1),
+				StructuredMatrix.oneHot(4, 3, -1, 0),
+				StructuredMatrix.sparse(3, 4, ints(0, 2, 2, 0), ints(1, 3, 0, 1), new float[] { 2F, -1F, 0.5F, 3F }),
+				StructuredMatrix.ones(3, 4),
+				StructuredMatrix.lowerTriangularOnes(3),
+				StructuredMatrix.lowerTriangularOnes(3).transpose(),
+		};
+		
+		for (final StructuredMatrix matrix : matrices) {
+			final int k = matrix.getRows();
+			final int n = matrix.getColumns();
+			final Node<?> structured = structured(matrix);
+			final Node<?> dense = new Data().setShape(k, n).set(structured.get(new float[k * n]));
+			final Node<?> x = newRandomData(random, 2, k);
+			final Node<?> xt = newRandomData(random, k, 2);
+			final Node<?> y = newRandomData(random, n, 2);
+			final Node<?> yt = newRandomData(random, 2, n);
+			
+			assertSameProducts(matrix, $(x, structured), $(x, dense), x);
+			assertSameProducts(matrix, $(xt, T, structured), $(xt, T, dense), xt);
+			assertSameProducts(matrix, $(structured, y), $(dense, y), y);
+			assertSameProducts(matrix, $(structured, yt, T), $(dense, yt, T), yt);
+			assertSameProducts(matrix, $(yt, structured, T), $(yt, dense, T), yt);
+			assertSameProducts(matrix, $(structured, T, xt), $(dense, T, xt), xt);
+		}
+	}
+	
+	private final void assertSameProducts(final StructuredMatrix matrix, final Node<?> structuredProduct,
+			final Node<?> denseProduct, final Node<?> denseOperand) {
+		denseOperand.setupDiffs(true);
+		
+		this.getProcessor().fullForward(denseProduct);
+		this.getProcessor().fullBackwardDiff(denseProduct);
+		
+		final float[] expected = denseProduct.get(new float[denseProduct.getLength()]);
+		final float[] expectedDiffs = denseOperand.getDiffs().get(new float[denseOperand.getLength()]);
+		
+		this.getProcessor().fullForward(structuredProduct);
+		this.getProcessor().fullBackwardDiff(structuredProduct);
+		
+		assertArrayEquals(matrix.toString(), expected, structuredProduct.get(new float[structuredProduct.getLength()]), 1E-5F);
+		assertArrayEquals(matrix.toString(), expectedDiffs, denseOperand.getDiffs().get(new float[denseOperand.getLength()]), 1E-5F);
+	}
+	
 	@Test
 	public final void testSum1() {
 		final Node<?> x = new Data().setShape(1, 2, 3).set(1F, 2F, 3F, 4F, 5F, 6F);
@@ -694,6 +839,52 @@ public abstract class ProcessorTest {
 		assertArrayEquals(new float[] { 1F, 1F, 1F, 1F, 1F, 1F }, x.getDiffs().get(new float[x.getLength()]), 0F);
 	}
 	
+	@Test
+	public final void testSum5() {
+		final Node<?> x = new Data().setShape(3, 4).set(
+				1F, 2F, 3F, 4F,
+				5F, 6F, 7F, 8F,
+				9F, 10F, 11F, 12F);
+		final Node<?> c = new Data().setShape(3, 2).set(
+				1F, 2F,
+				3F, 4F,
+				5F, 6F);
+		final Node<?> y = sum(x, 1, 2);
+		final Node<?> z = sum($(y, "*", c));
+		
+		assertArrayEquals(new int[] { 3, 2 }, y.getShape());
+		
+		this.getProcessor().fullForward(z);
+		
+		assertArrayEquals(new float[] { 3F, 7F, 11F, 15F, 19F, 23F }, y.get(new float[y.getLength()]), 0F);
+		assertArrayEquals(new float[] { 3F + 14F + 33F + 60F + 95F + 138F }, z.get(new float[z.getLength()]), 0F);
+		
+		x.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(z);
+		
+		assertArrayEquals(new float[] {
+				1F, 1F, 2F, 2F,
+				3F, 3F, 4F, 4F,
+				5F, 5F, 6F, 6F
+		}, x.getDiffs().get(new float[x.getLength()]), 0F);
+	}
+	
+	@Test
+	public final void testSum6() {
+		final int m = 60000;
+		final int n = 10;
+		final Node<?> x = this.getProcessor().fill(new Data().setShape(m, n), 1F);
+		final Node<?> y = sum(x, 1, n);
+		
+		assertArrayEquals(new int[] { m, 1 }, y.getShape());
+		
+		this.getProcessor().fullForward(y);
+		
+		assertEquals(n, y.get(0), 0F);
+		assertEquals(n, y.get(m - 1), 0F);
+	}
+	
 	@Test
 	public final void testMerge1() {
 		final Node<?> x = new Data().setShape(2).set(1F, 2F);
@@ -817,6 +1008,71 @@ public abstract class ProcessorTest {
 		}, x.getDiffs().get(new float[x.getLength()]), epsilon);
 	}
 	
+	@Test
+	public final void testMaxPooling4() {
+		final Node<?> x = new Data().setShape(1, 1, 3, 3).set(
+				1F, 2F, 3F,
+				4F, 5F, 6F,
+				7F, 8F, 9F);
+		final GridSampling grid = new GridSampling().setInputsShape(x.getShape()).setOffsets(ints(0, 0, 0, 0)).setStrides(ints(2, 2));
+		// shaped explicitly instead of with autoShape()
+		final Pooling y = new Pooling(new PatchSampling(grid).setPatchShape(ints(2, 2))).setInputs(x).setShape(1, 1, 2, 2);
+		
+		assertArrayEquals(new int[] { 1, 4 }, y.getIndices().getShape());
+		
+		this.getProcessor().fullForward(y);
+		
+		assertArrayEquals(new float[] {
+				5F, 6F,
+				8F, 9F
+		}, y.get(new float[y.getLength()]), 0F);
+		
+		x.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(y);
+		
+		assertArrayEquals(new float[] {
+				0F, 0F, 0F,
+				0F, 1F, 1F,
+				0F, 1F, 1F
+		}, x.getDiffs().get(new float[x.getLength()]), 1E-6F);
+	}
+	
+	@Test
+	public final void testMaxPooling3() {
+		final Node<?> x = new Data().setShape(2, 1, 2, 2).set(
+				1F, -2F,
+				-3F, 4F,
+				
+				-1F, -2F,
+				-3F, -4F);
+		final Node<?> y = maxPooling(x, ints(0, 0, 0, 0), ints(1, 1), ints(2, 2));
+		
+		assertArrayEquals(new int[] { 2, 1, 2, 2 }, y.getShape());
+		
+		this.getProcessor().fullForward(y);
+		
+		assertArrayEquals(new float[] {
+				4F, 4F,
+				4F, 4F,
+				
+				-1F, 0F,
+				0F, 0F
+		}, y.get(new float[y.getLength()]), 0F);
+		
+		x.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(y);
+		
+		assertArrayEquals(new float[] {
+				0F, 0F,
+				0F, 4F,
+				
+				1F, 0F,
+				0F, 0F
+		}, x.getDiffs().get(new float[x.getLength()]), 0F);
+	}
+	
 	@Test
 	public final void testPatches1() {
 		final Node<?> inputs = new Data().setShape(1, 1, 3, 3).set(
@@ -1030,6 +1286,132 @@ public abstract class ProcessorTest {
 		}, kernel.getDiffs().get(new float[kernel.getLength()]), 0F);
 	}
 	
+	@Test
+	public final void testConvolutions4() {
+		final Node<?> inputs = new Data().setShape(2, 1, 3, 3).set(
+				1F, 2F, 3F,
+				4F, 5F, 6F,
+				7F, 8F, 9F,
+				
+				1F, 1F, 1F,
+				1F, 1F, 1F,
+				1F, 1F, 1F);
+		final Node<?> kernel = this.getProcessor().fill(new Data().setShape(1, 1, 3, 3), 1F);
+		final Node<?> y = convolutions(inputs, ints(0, 0, 0, 0), ints(1, 1), kernel);
+		
+		assertArrayEquals(new int[] { 2, 1, 3, 3 }, y.getShape());
+		
+		this.getProcessor().fullForward(y);
+		
+		assertArrayEquals(new float[] {
+				12F, 21F, 16F,
+				27F, 45F, 33F,
+				24F, 39F, 28F,
+				
+				4F, 6F, 4F,
+				6F, 9F, 6F,
+				4F, 6F, 4F
+		}, y.get(new float[y.getLength()]), 0F);
+		
+		inputs.setupDiffs(true);
+		kernel.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(y);
+		
+		assertArrayEquals(new float[] {
+				4F, 6F, 4F,
+				6F, 9F, 6F,
+				4F, 6F, 4F,
+				
+				4F, 6F, 4F,
+				6F, 9F, 6F,
+				4F, 6F, 4F
+		}, inputs.getDiffs().get(new float[inputs.getLength()]), 0F);
+		
+		assertArrayEquals(new float[] {
+				16F, 27F, 20F,
+				33F, 54F, 39F,
+				28F, 45F, 32F
+		}, kernel.getDiffs().get(new float[kernel.getLength()]), 0F);
+	}
+	
+	@Test
+	public final void testConvolutions5() {
+		final Node<?> inputs = new Data().setShape(1, 1, 3, 3).set(
+				1F, 2F, 3F,
+				4F, 5F, 6F,
+				7F, 8F, 9F);
+		final Node<?> outputsDiffs = new Data().setShape(1, 1, 2, 2).set(
+				1F, 2F,
+				3F, 4F);
+		final Convolution y = (Convolution) convolutions(inputs, ints(0, 1, 0, 1), ints(1, 1), new Data().setShape(1, 1, 2, 2));
+		final Node<?> kernelsDiffs = new Convolution(y.getSampling()).setOperation(Convolution.Operation.KERNELS_DIFFS)
+				.setLeft(inputs).setRight(outputsDiffs).autoShape();
+		
+		assertArrayEquals(new int[] { 1, 1, 2, 2 }, kernelsDiffs.getShape());
+		
+		this.getProcessor().fullForward(kernelsDiffs);
+		
+		assertArrayEquals(new float[] {
+				37F, 47F,
+				67F, 77F
+		}, kernelsDiffs.get(new float[kernelsDiffs.getLength()]), 0F);
+		
+		inputs.setupDiffs(true);
+		outputsDiffs.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(kernelsDiffs);
+		
+		assertArrayEquals(new float[] {
+				1F, 3F, 2F,
+				4F, 10F, 6F,
+				3F, 7F, 4F
+		}, inputs.getDiffs().get(new float[inputs.getLength()]), 0F);
+		
+		assertArrayEquals(new float[] {
+				12F, 16F,
+				24F, 28F
+		}, outputsDiffs.getDiffs().get(new float[outputsDiffs.getLength()]), 0F);
+	}
+	
+	@Test
+	public final void testConvolutions6() {
+		final Node<?> outputsDiffs = new Data().setShape(1, 1, 2, 2).set(
+				1F, 0F,
+				0F, 2F);
+		final Node<?> kernels = new Data().setShape(1, 1, 2, 2).set(
+				1F, 2F,
+				3F, 4F);
+		final Convolution y = (Convolution) convolutions(new Data().setShape(1, 1, 3, 3), ints(0, 1, 0, 1), ints(1, 1), kernels);
+		final Node<?> inputsDiffs = new Convolution(y.getSampling()).setOperation(Convolution.Operation.INPUTS_DIFFS)
+				.setLeft(outputsDiffs).setRight(kernels).autoShape();
+		
+		assertArrayEquals(new int[] { 1, 1, 3, 3 }, inputsDiffs.getShape());
+		
+		this.getProcessor().fullForward(inputsDiffs);
+		
+		assertArrayEquals(new float[] {
+				1F, 2F, 0F,
+				3F, 6F, 4F,
+				0F, 6F, 8F
+		}, inputsDiffs.get(new float[inputsDiffs.getLength()]), 0F);
+		
+		outputsDiffs.setupDiffs(true);
+		kernels.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(inputsDiffs);
+		
+		assertArrayEquals(new float[] {
+				10F, 10F,
+				10F, 10F
+		}, outputsDiffs.getDiffs().get(new float[outputsDiffs.getLength()]), 0F);
+		
+		assertArrayEquals(new float[] {
+				3F, 3F,
+				3F, 3F
+		}, kernels.getDiffs().get(new float[kernels.getLength()]), 0F);
+	}
+	
 	@Test
 	public final void testMapping1() {
 		final Node<?> x = new Data().set(-1F, 0F, 1F);
@@ -1048,6 +1430,30 @@ public abstract class ProcessorTest {
 		assertArrayEquals(new float[] { 1F, 1F, 1F }, x.getDiffs().get(new float[x.getLength()]), 0F);
 	}
 	
+	@Test
+	public final void testFusion1() {
+		final Node<?> x = new Data().set(-1F, 0F, 1F, 2F);
+		final Node<?> x2 = $(x, SQUARED);
+		final Node<?> y = $($(x2, "-", x), SQUARED);
+		
+		this.getProcessor().fullForward(y);
+		
+		assertArrayEquals(new float[] { 4F, 0F, 0F, 4F }, y.get(new float[y.getLength()]), 0F);
+		// a fused intermediate is never allocated
+		assertEquals(this.getProcessor().isFusing(), !x2.getStorage().isAllocated());
+		
+		x.setupDiffs(true);
+		
+		this.getProcessor().fullBackwardDiff(y);
+		
+		assertArrayEquals(new float[] { 1F, 0F, 1F, 4F }, x2.get(new float[x2.getLength()]), 0F);
+		assertArrayEquals(new float[] { -12F, 0F, 0F, 12F }, x.getDiffs().get(new float[x.getLength()]), 0F);
+		
+		this.getProcessor().fullForward(y);
+		
+		assertArrayEquals(new float[] { 4F, 0F, 0F, 4F }, y.get(new float[y.getLength()]), 0F);
+	}
+	
 	@Test
 	public final void testMapping2() {
 		final Node<?> x = new Data().set(-1F, 0F, 1F);
@@ -1175,6 +1581,16 @@ public abstract class ProcessorTest {
 		this.getProcessor().reset();
 	}
 	
+	public static final Node<?> newRandomData(final Random random, final int... shape) {
+		final Node<?> result = new Data().setShape(shape);
+		
+		for (int i = 0; i < result.getLength(); ++i) {
+			result.set(i, random.nextFloat() - 0.5F);
+		}
+		
+		return result;
+	}
+	
 	public static final float sigmoid(final float x) {
 		return 1F / (1F + (float) exp(-x));
 	}
@@ -0,0 +1,19 @@
+package autodiff.computing.test;
+
+import autodiff.computing.CLProcessor;
+
+/**
+ * Runs the processor tests with several command queues, event dependencies and profiling.
+ * 
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class QueuedCLProcessorTest extends ProcessorTest {
+	
+	@Override
+	public final CLProcessor getProcessor() {
+		return PROCESSOR;
+	}
+	
+	private static final CLProcessor PROCESSOR = new CLProcessor(CLProcessor.INSTANCE.getContext()).setQueueCount(2).setProfiling(true);
+	
+}
@@ -0,0 +1,93 @@
+package autodiff.io.test;
+
+import static org.junit.Assert.*;
+
+import autodiff.io.CSVParser;
+import autodiff.io.CSVReader;
+import autodiff.nodes.Data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class CSVReaderTest {
+	
+	@Test
+	public final void testRead1() throws IOException {
+		final File file = File.createTempFile("records", ".csv");
+		
+		try {
+			Files.write(file.toPath(), newCSV(12_000, new Random(0L)).getBytes(StandardCharsets.US_ASCII));
+			
+			// larger than 2 * MINIMUM_CHUNK_BYTES, so that windows are split into parallel chunks
+			assertTrue(2L * CSVReader.MINIMUM_CHUNK_BYTES < file.length());
+			
+			final CSVParser.FloatData expected;
+			
+			try (final InputStream input = new FileInputStream(file)) {
+				expected = CSVParser.readCSV(input, ",", new CSVParser.FloatData());
+			}
+			
+			// FloatData has an empty record for each empty line
+			final List<float[]> expectedRecords = expected.getRecords().stream().filter(r -> 0 < r.length).collect(Collectors.toList());
+			final int columns = expectedRecords.get(0).length;
+			
+			for (final int parallelism : new int[] { 1, 4 }) {
+				for (final int windowBytes : new int[] { 100, 1_000, 3 * CSVReader.MINIMUM_CHUNK_BYTES, CSVReader.DEFAULT_WINDOW_BYTES }) {
+					final String message = "parallelism: " + parallelism + ", windowBytes: " + windowBytes;
+					final CSVReader reader = new CSVReader().setParallelism(parallelism).setWindowBytes(windowBytes);
+					final Data actual = reader.read(file);
+					
+					assertArrayEquals(message, new int[] { expectedRecords.size(), columns }, actual.getShape());
+					assertEquals(message, columns, reader.getColumnCount());
+					assertEquals(message, expected.getCategories(), reader.getCategories());
+					
+					final float[] values = actual.get(new float[actual.getLength()]);
+					
+					for (int i = 0; i < expectedRecords.size(); ++i) {
+						for (int j = 0; j < columns; ++j) {
+							assertEquals(message + ", row: " + i + ", column: " + j,
+									expectedRecords.get(i)[j], values[i * columns + j], 0F);
+						}
+					}
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+	
+	/**
+	 * @return <code>rows</code> lines of 4 cells, with mixed line endings and empty lines;
+	 * the classes of column 2 appear progressively, and column 3 is numerical except for a few "NA"
+	 */
+	private static final String newCSV(final int rows, final Random random) {
+		final StringBuilder result = new StringBuilder();
+		
+		for (int i = 0; i < rows; ++i) {
+			result.append(Float.toString((float) random.nextGaussian() * 1E3F)).append(',');
+			result.append(random.nextInt(100) - 50).append(',');
+			result.append("class").append(random.nextInt(1 + i / 1_000)).append(',');
+			result.append(i % 500 == 7 ? "NA" : Float.toString((float) random.nextGaussian() * 1E-6F));
+			result.append(random.nextBoolean() ? "\r\n" : "\n");
+			
+			if (i % 97 == 0) {
+				result.append(random.nextBoolean() ? "\r\n" : "\n");
+			}
+		}
+		
+		return result.toString();
+	}
+	
+}
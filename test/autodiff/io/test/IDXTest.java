@@ -0,0 +1,90 @@
+package autodiff.io.test;
+
+import static org.junit.Assert.*;
+
+import autodiff.io.IDX;
+import autodiff.nodes.Data;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class IDXTest {
+	
+	@Test
+	public final void testReadData1() throws IOException {
+		final File directory = Files.createTempDirectory("idx").toFile();
+		
+		try {
+			// more than one chunk, with the extreme values at the start
+			final int[] shape = { 3, 150, 200 };
+			final byte[] bytes = new byte[shape[0] * shape[1] * shape[2]];
+			
+			new Random(0L).nextBytes(bytes);
+			bytes[0] = 0;
+			bytes[1] = 127;
+			bytes[2] = (byte) 128;
+			bytes[3] = (byte) 255;
+			
+			assertTrue(IDX.CHUNK_BYTES < bytes.length);
+			
+			for (final String name : new String[] { "x.idx", "x.idx.gz" }) {
+				final File file = new File(directory, name);
+				
+				write(file, IDX.MAGIC_IDX3, shape, bytes);
+				
+				final Data x = IDX.readData(file.getPath());
+				
+				assertArrayEquals(name, shape, x.getShape());
+				
+				final float[] values = x.get(new float[x.getLength()]);
+				
+				for (int i = 0; i < bytes.length; ++i) {
+					assertEquals(name + ", index: " + i, bytes[i] & 0xFF, values[i], 0F);
+				}
+			}
+			
+			{
+				final File file = new File(directory, "y.idx.gz");
+				
+				write(file, IDX.MAGIC_IDX1, new int[] { 4 }, new byte[] { 9, 0, (byte) 200, 1 });
+				
+				final Data y = IDX.readData(file.getPath());
+				
+				assertArrayEquals(new int[] { 4 }, y.getShape());
+				assertArrayEquals(new float[] { 9F, 0F, 200F, 1F }, y.get(new float[4]), 0F);
+			}
+		} finally {
+			for (final File file : directory.listFiles()) {
+				file.delete();
+			}
+			
+			directory.delete();
+		}
+	}
+	
+	private static final void write(final File file, final int magic, final int[] shape, final byte[] bytes) throws IOException {
+		final OutputStream stream = new FileOutputStream(file);
+		
+		try (final DataOutputStream output = new DataOutputStream(file.getName().endsWith(".gz") ? new GZIPOutputStream(stream) : stream)) {
+			output.writeInt(magic);
+			
+			for (final int dimension : shape) {
+				output.writeInt(dimension);
+			}
+			
+			output.write(bytes);
+		}
+	}
+	
+}
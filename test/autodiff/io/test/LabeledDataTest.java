@@ -0,0 +1,105 @@
+package autodiff.io.test;
+
+import static org.junit.Assert.*;
+
+import autodiff.io.LabeledData;
+import autodiff.nodes.Node;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class LabeledDataTest {
+	
+	@Test
+	public final void testShuffle1() {
+		final int n = 37;
+		final int inputLength = 3;
+		
+		for (final long seed : new long[] { 0L, 1L, 42L }) {
+			final LabeledData data = newData(n, inputLength);
+			final float[] expectedInputs = values(data.getInputs());
+			final float[] expectedLabels = values(data.getLabels());
+			
+			data.shuffle(new Random(seed));
+			
+			// previous implementation: one swap per item, from the last to the second
+			{
+				final Random random = new Random(seed);
+				
+				for (int i = n; 1 < i; --i) {
+					final int j = random.nextInt(i);
+					
+					for (int k = 0; k < inputLength; ++k) {
+						swap(expectedInputs, (i - 1) * inputLength + k, j * inputLength + k);
+					}
+					
+					swap(expectedLabels, i - 1, j);
+				}
+			}
+			
+			assertArrayEquals(expectedInputs, values(data.getInputs()), 0F);
+			assertArrayEquals(expectedLabels, values(data.getLabels()), 0F);
+		}
+	}
+	
+	@Test
+	public final void testPermute1() {
+		final int n = 37;
+		final int inputLength = 3;
+		final LabeledData data = newData(n, inputLength);
+		final int[] permutation = LabeledData.randomPermutation(n, new Random(0L));
+		
+		data.permute(permutation);
+		
+		final float[] inputs = values(data.getInputs());
+		final float[] labels = values(data.getLabels());
+		
+		for (int i = 0; i < n; ++i) {
+			final int item = permutation[i];
+			
+			assertEquals(item, labels[i], 0F);
+			
+			for (int j = 0; j < inputLength; ++j) {
+				assertEquals(item * inputLength + j, inputs[i * inputLength + j], 0F);
+			}
+		}
+		
+		Arrays.sort(labels);
+		
+		assertArrayEquals(values(newData(n, inputLength).getLabels()), labels, 0F);
+	}
+	
+	/**
+	 * @return Data whose item <code>i</code> has label <code>i</code>
+	 * and inputs <code>[i * inputLength .. (i + 1) * inputLength - 1]</code>
+	 */
+	private static final LabeledData newData(final int itemCount, final int inputLength) {
+		final LabeledData result = new LabeledData(itemCount, inputLength);
+		
+		for (int i = 0; i < itemCount; ++i) {
+			result.getLabels().set(i, i);
+			
+			for (int j = 0; j < inputLength; ++j) {
+				result.getInputs().set(i * inputLength + j, i * inputLength + j);
+			}
+		}
+		
+		return result;
+	}
+	
+	private static final void swap(final float[] values, final int i, final int j) {
+		final float tmp = values[i];
+		values[i] = values[j];
+		values[j] = tmp;
+	}
+	
+	private static final float[] values(final Node<?> node) {
+		return node.get(new float[node.getLength()]);
+	}
+	
+}
@@ -0,0 +1,162 @@
+package autodiff.io.test;
+
+import static org.junit.Assert.*;
+
+import autodiff.io.CSVReader;
+import autodiff.io.IDX;
+import autodiff.io.TensorFile;
+import autodiff.nodes.Data;
+import autodiff.nodes.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author codistmonk (creation 2026-10-18)
+ */
+public final class TensorFileTest {
+	
+	@Test
+	public final void testWriteMap1() throws IOException {
+		final File directory = Files.createTempDirectory("tensors").toFile();
+		final File file = new File(directory, "x" + TensorFile.EXTENSION);
+		
+		try {
+			final Node<?> x = new Data().setShape(2, 3).set(1F, -2F, 3.5F, Float.MAX_VALUE, 0F, Float.MIN_VALUE);
+			
+			TensorFile.write(x, file);
+			
+			assertEquals(Arrays.asList(file.getName()), Arrays.asList(directory.list()));
+			assertArrayEquals(new int[] { 2, 3 }, TensorFile.readShape(file));
+			assertEquals(TensorFile.getDataOffset(2) + Float.BYTES * 6L, file.length());
+			
+			final byte[] bytes = Files.readAllBytes(file.toPath());
+			final Data y = TensorFile.map(file);
+			
+			assertArrayEquals(x.getShape(), y.getShape());
+			assertArrayEquals(x.get(new float[6]), y.get(new float[6]), 0F);
+			
+			// mapped copy-on-write
+			y.set(0, 42F);
+			
+			assertEquals(42F, y.get(0), 0F);
+			assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+			assertEquals(1F, TensorFile.map(file).get(0), 0F);
+			
+			// overwritten atomically
+			TensorFile.write(new Data().setShape(4).set(5F, 6F, 7F, 8F), file);
+			
+			assertEquals(Arrays.asList(file.getName()), Arrays.asList(directory.list()));
+			assertArrayEquals(new float[] { 5F, 6F, 7F, 8F }, TensorFile.map(file).get(new float[4]), 0F);
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	@Test
+	public final void testReject1() throws IOException {
+		final File directory = Files.createTempDirectory("tensors").toFile();
+		final File file = new File(directory, "x" + TensorFile.EXTENSION);
+		
+		try {
+			TensorFile.write(new Data().setShape(2, 2).set(1F, 2F, 3F, 4F), file);
+			
+			try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+				channel.truncate(file.length() - 1L);
+			}
+			
+			assertRejected(file);
+			
+			Files.write(file.toPath(), "1,2\n3,4\n".getBytes(StandardCharsets.US_ASCII));
+			
+			assertRejected(file);
+			
+			Files.write(file.toPath(), new byte[0]);
+			
+			assertRejected(file);
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	@Test
+	public final void testConvertIDX1() throws IOException {
+		final File directory = Files.createTempDirectory("tensors").toFile();
+		final File idxFile = new File(directory, "x.idx");
+		final File file = new File(directory, "x" + TensorFile.EXTENSION);
+		
+		try {
+			try (final DataOutputStream output = new DataOutputStream(new FileOutputStream(idxFile))) {
+				output.writeInt(IDX.MAGIC_IDX3);
+				output.writeInt(2);
+				output.writeInt(1);
+				output.writeInt(3);
+				output.write(new byte[] { 0, 1, 127, (byte) 128, (byte) 254, (byte) 255 });
+			}
+			
+			TensorFile.convertIDX(idxFile.getPath(), file);
+			
+			final Data x = TensorFile.map(file);
+			
+			assertArrayEquals(new int[] { 2, 1, 3 }, x.getShape());
+			assertArrayEquals(new float[] { 0F, 1F, 127F, 128F, 254F, 255F }, x.get(new float[6]), 0F);
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	@Test
+	public final void testConvertCSV1() throws IOException {
+		final File directory = Files.createTempDirectory("tensors").toFile();
+		final File csvFile = new File(directory, "x.csv");
+		final File file1 = new File(directory, "x1" + TensorFile.EXTENSION);
+		final File file2 = new File(directory, "x2" + TensorFile.EXTENSION);
+		final String csv = "1,a\n2.5,b\n-3,a\n";
+		
+		try {
+			Files.write(csvFile.toPath(), csv.getBytes(StandardCharsets.US_ASCII));
+			
+			TensorFile.convertCSV(new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)), ",", file1);
+			TensorFile.convertCSV(csvFile, new CSVReader(), file2);
+			
+			for (final File file : new File[] { file1, file2 }) {
+				final Data x = TensorFile.map(file);
+				
+				assertArrayEquals(new int[] { 3, 2 }, x.getShape());
+				assertArrayEquals(new float[] { 1F, 0F, 2.5F, 1F, -3F, 0F }, x.get(new float[6]), 0F);
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	private static final void assertRejected(final File file) {
+		try {
+			TensorFile.map(file);
+			
+			fail();
+		} catch (final UncheckedIOException exception) {
+			// expected
+		}
+	}
+	
+	private static final void delete(final File directory) {
+		for (final File file : directory.listFiles()) {
+			file.delete();
+		}
+		
+		directory.delete();
+	}
+	
+}
@@ -17,6 +17,7 @@ import autodiff.io.Iris;
 import autodiff.io.LabeledData;
 import autodiff.learning.ConfusionMatrix;
 import autodiff.learning.GradientDescent;
+import autodiff.learning.MinibatchContext;
 import autodiff.learning.MinibatchMinimizer;
 import autodiff.nodes.Data;
 import autodiff.nodes.Mapping;
@@ -24,6 +25,7 @@ import autodiff.nodes.Node;
 import autodiff.nodes.Zipping;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -227,6 +229,42 @@ public abstract class GradientDescentTest {
 		}
 	}
 	
+	@Test
+	public final void testMinibatchPrefetching1() {
+		final LabeledData sourceData = new LabeledData(11, 3);
+		
+		for (int i = 0; i < sourceData.getInputs().getLength(); ++i) {
+			sourceData.getInputs().set(i, i);
+		}
+		
+		for (int i = 0; i < sourceData.getItemCount(); ++i) {
+			sourceData.getLabels().set(i, i);
+		}
+		
+		List<String> expected = null;
+		
+		for (final int prefetchedMinibatches : new int[] { 0, 1, 2 }) {
+			for (final boolean swapping : new boolean[] { true, false }) {
+				final LabeledData minibatchData = new LabeledData(4, 3);
+				final MinibatchContext context = new MinibatchContext(sourceData, minibatchData)
+						.setPrefetchedMinibatches(prefetchedMinibatches).setSwapping(swapping).setShuffler(new Random(0L))
+						.setPreparation(data -> data.getLabels().set(0, -data.getLabels().get(0)));
+				final List<String> actual = new ArrayList<>();
+				
+				for (int epoch = 0; epoch < 3; ++epoch) {
+					context.forEachMinibatch(() -> actual.add(Arrays.toString(minibatchData.getInputs().get(new float[12]))
+							+ Arrays.toString(minibatchData.getLabels().get(new float[4]))));
+				}
+				
+				if (expected == null) {
+					expected = actual;
+				} else {
+					assertEquals(prefetchedMinibatches + " " + swapping, expected, actual);
+				}
+			}
+		}
+	}
+	
 	public abstract NodeProcessor getProcessor();
 	
 	public static final List<?> toTree(final Node<?> node) {
@@ -1,11 +1,17 @@
 package autodiff.nodes.test;
 
+import static autodiff.nodes.NodesTools.$;
 import static org.junit.Assert.*;
 
 import autodiff.computing.DefaultProcessor;
 import autodiff.nodes.Computation;
 import autodiff.nodes.Data;
 import autodiff.nodes.Node;
+import autodiff.nodes.Storage;
+import autodiff.nodes.StorageAllocator;
+import autodiff.nodes.StorageArena;
+
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -36,6 +42,47 @@ public final class NodeTest {
 		assertArrayEquals(new int[] { 2, 3, 4, 1 }, x.getLengths(new int [4]));
 	}
 	
+	@Test
+	public final void testShapes3() {
+		final int[] shape = { 2, 3, 4 };
+		final Node<?> x = new Data().setShape(shape);
+		final Node<?> y = new Data().setShape(5);
+		
+		shape[0] = 7;
+		
+		assertArrayEquals(new int[] { 2, 3, 4 }, x.getShape());
+		assertEquals(24, x.getLength());
+		assertEquals(3, x.getRank());
+		assertArrayEquals(new int[] { 12, 4, 1 }, x.getShapeStrides());
+		
+		for (final Node<?> node : new Node<?>[] { x, y }) {
+			for (int dimensions = 1; dimensions <= 4; ++dimensions) {
+				final int[] lengths = node.getLengths(new int[dimensions]);
+				
+				for (int dimension = 0; dimension < dimensions; ++dimension) {
+					assertEquals(lengths[dimension], node.getLength(dimensions, dimension));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public final void testArguments1() {
+		final Node<?> x = new Data().setShape(2);
+		final Data y = new Data().setShape(2);
+		
+		assertTrue(y.getArguments().isEmpty());
+		
+		final Node<?> a = $(x, "+", x).setStorage(y);
+		
+		assertEquals(Arrays.asList(a), y.getArguments());
+		assertSame(y.getArguments(), y.getArguments());
+		
+		final Node<?> b = $(x, "*", x).setStorage(y);
+		
+		assertEquals(Arrays.asList(a, b), y.getArguments());
+	}
+	
 	@Test
 	public final void testGetSet1() {
 		final Node<?> x = new Data().setShape(1);
@@ -117,4 +164,93 @@ public final class NodeTest {
 		assertArrayEquals(new float[] { 0F, 0F, 5F, 5F, 10F, 10F }, node.get(new float[node.getLength()]), 0F);
 	}
 	
+	@Test
+	public final void testStorageSynchronization1() {
+		final Node<?> x = new Data().setShape(2);
+		final Storage storage = x.getStorage();
+		final int[] synchronizations = { 0 };
+		final long version0 = storage.getVersion();
+		
+		x.set(0, 1F);
+		
+		final long version1 = storage.getVersion();
+		
+		assertNotEquals(version0, version1);
+		
+		storage.setHostSynchronizer(() -> {
+			++synchronizations[0];
+			storage.getRawFloatBuffer().put(1, 2F);
+		});
+		
+		assertFalse(storage.isHostSynchronized());
+		assertEquals(2F, x.get(1), 0F);
+		assertEquals(1F, x.get(0), 0F);
+		assertTrue(storage.isHostSynchronized());
+		assertEquals(1, synchronizations[0]);
+		assertEquals(version1, storage.getVersion());
+		
+		storage.setHostSynchronizer(() -> ++synchronizations[0]);
+		x.set(3F, 4F);
+		
+		assertArrayEquals(new float[] { 3F, 4F }, x.get(new float[2]), 0F);
+		assertEquals(2, synchronizations[0]);
+		assertNotEquals(version1, storage.getVersion());
+	}
+	
+	@Test
+	public final void testStorageArena1() {
+		final StorageArena arena = new StorageArena(1 << 12);
+		
+		Storage.setDefaultAllocator(arena);
+		
+		try {
+			final Node<?> x = new Data().setShape(3);
+			final Node<?> y = new Data().setShape(100);
+			final Node<?> z = new Data().setShape(2000);
+			
+			x.set(1F, 2F, 3F);
+			y.set(0, 4F);
+			z.set(0, 5F);
+			
+			assertSame(arena, x.getStorage().getAllocator());
+			assertEquals(0, x.getStorage().getByteOffset());
+			assertEquals(StorageArena.MINIMUM_BLOCK_BYTES, y.getStorage().getByteOffset());
+			assertEquals(Float.BYTES * 2103L, arena.getAllocatedBytes());
+			assertEquals((1 << 12) + Float.BYTES * 2000L, arena.getReservedBytes());
+			assertEquals(64L - 12L + 512L - 400L, arena.getFragmentedBytes());
+			assertArrayEquals(new float[] { 1F, 2F, 3F }, x.get(new float[3]), 0F);
+			
+			final int offset = y.getStorage().getByteOffset();
+			
+			y.getStorage().release();
+			
+			assertFalse(y.getStorage().isAllocated());
+			assertEquals(Float.BYTES * 2003L, arena.getAllocatedBytes());
+			
+			final Node<?> w = new Data().setShape(128);
+			
+			w.set(0, 6F);
+			
+			assertEquals(offset, w.getStorage().getByteOffset());
+			assertEquals(Float.BYTES * 2131L, arena.getPeakAllocatedBytes());
+			
+			arena.close();
+			
+			assertFalse(x.getStorage().isAllocated());
+			assertFalse(w.getStorage().isAllocated());
+			assertEquals(0L, arena.getAllocatedBytes());
+			assertEquals(0L, arena.getReservedBytes());
+			
+			try {
+				x.get(0);
+				
+				fail();
+			} catch (final IllegalStateException exception) {
+				// expected
+			}
+		} finally {
+			Storage.setDefaultAllocator(StorageAllocator.DIRECT);
+		}
+	}
+	
 }